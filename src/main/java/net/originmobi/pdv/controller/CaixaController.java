@@ -26,10 +26,9 @@ import net.originmobi.pdv.filter.CaixaFilter;
 import net.originmobi.pdv.model.Caixa;
 import net.originmobi.pdv.model.CaixaLancamento;
 import net.originmobi.pdv.model.Usuario;
+import net.originmobi.pdv.security.UsuarioAtual;
 import net.originmobi.pdv.service.CaixaLancamentoService;
 import net.originmobi.pdv.service.CaixaService;
-import net.originmobi.pdv.service.UsuarioService;
-import net.originmobi.pdv.singleton.Aplicacao;
 
 @Controller
 @RequestMapping("/caixa")
@@ -48,7 +47,7 @@ public class CaixaController {
 	private CaixaLancamentoService lancamentos;
 
 	@Autowired
-	private UsuarioService usuarios;
+	private UsuarioAtual usuarioAtual;
 
 	@GetMapping("/form")
 	public ModelAndView form() {
@@ -112,8 +111,7 @@ public class CaixaController {
 
 		try {
 			Optional<Caixa> caixa = caixas.busca(codCaixa);
-			Aplicacao aplicacao = Aplicacao.getInstancia();
-			Usuario usuario = usuarios.buscaUsuario(aplicacao.getUsuarioAtual());
+			Usuario usuario = usuarioAtual.getUsuario();
 
 			CaixaLancamento lancamento = new CaixaLancamento(observacao, valor, TipoLancamento.SUPRIMENTO,
 					EstiloLancamento.ENTRADA, caixa.get(), usuario);
@@ -136,8 +134,7 @@ public class CaixaController {
 
 		try {
 			Optional<Caixa> caixa = caixas.busca(codCaixa);
-			Aplicacao aplicacao = Aplicacao.getInstancia();
-			Usuario usuario = usuarios.buscaUsuario(aplicacao.getUsuarioAtual());
+			Usuario usuario = usuarioAtual.getUsuario();
 
 			CaixaLancamento lancamento = new CaixaLancamento(observacao, valor, TipoLancamento.SANGRIA,
 					EstiloLancamento.SAIDA, caixa.get(), usuario);
@@ -166,8 +163,7 @@ public class CaixaController {
 	
 	@ModelAttribute("usuarioAtual")
 	public String usuarioAtual() {
-		Aplicacao aplicacao = Aplicacao.getInstancia();
-		return aplicacao.getUsuarioAtual();
+		return usuarioAtual.getUser();
 	}
 
 	@ModelAttribute("caixatipo")
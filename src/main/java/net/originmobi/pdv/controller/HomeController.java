@@ -4,11 +4,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import net.originmobi.pdv.service.PagarParcelaService;
-import net.originmobi.pdv.service.ReceberService;
-import net.originmobi.pdv.service.VendaService;
-import net.originmobi.pdv.service.notafiscal.NotaFiscalService;
+import net.originmobi.pdv.service.DashboardResumo;
+import net.originmobi.pdv.service.DashboardService;
 
 @Controller
 public class HomeController {
@@ -16,28 +15,28 @@ public class HomeController {
 	private static final String DASHBOARD_DASHBOARD = "dashboard/dashboard";
 
 	@Autowired
-	private VendaService vendas;
-
-	@Autowired
-	private ReceberService receberServ;
-
-	@Autowired
-	private PagarParcelaService pagarServ;
-
-	@Autowired
-	private NotaFiscalService notas;
+	private DashboardService dashboard;
 
 	@GetMapping({ "", "/" })
 	public ModelAndView home() {
+		DashboardResumo resumo = dashboard.resumo();
+
 		ModelAndView mv = new ModelAndView(DASHBOARD_DASHBOARD);
-		mv.addObject("pedidosAberto", vendas.qtdAbertos());
-		mv.addObject("total_a_receber", receberServ.total_a_receber());
-		mv.addObject("total_a_pagar", pagarServ.totalParagarAberto());
-		mv.addObject("total_notas_emitidas", notas.totalNotaFiscalEmitidas());
+		mv.addObject("pedidosAberto", resumo.getPedidosAberto());
+		mv.addObject("total_a_receber", resumo.getTotalReceber());
+		mv.addObject("total_a_pagar", resumo.getTotalPagar());
+		mv.addObject("vencido_a_receber", resumo.getVencidoReceber());
+		mv.addObject("vencido_a_pagar", resumo.getVencidoPagar());
+		mv.addObject("total_notas_emitidas", resumo.getNotasEmitidas());
 
 		return mv;
 	}
 
+	@GetMapping("/dashboard/eventos")
+	public SseEmitter eventos() {
+		return dashboard.inscreve();
+	}
+
 	@GetMapping("/login")
 	public String login() {
 		return "login/login";
@@ -1,11 +1,23 @@
 package net.originmobi.pdv.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
@@ -27,7 +39,9 @@ import net.originmobi.pdv.service.PessoaService;
 import net.originmobi.pdv.service.ProdutoService;
 import net.originmobi.pdv.service.notafiscal.FreteTipoService;
 import net.originmobi.pdv.service.notafiscal.NotaFiscalItemService;
+import net.originmobi.pdv.service.notafiscal.NotaFiscalLoteService;
 import net.originmobi.pdv.service.notafiscal.NotaFiscalService;
+import net.originmobi.pdv.service.notafiscal.NotaFiscalXmlService;
 
 @Controller
 @RequestMapping("/notafiscal")
@@ -52,6 +66,12 @@ public class NotaFiscalController {
 	@Autowired
 	private FreteTipoService fretes;
 
+	@Autowired
+	private NotaFiscalLoteService lotes;
+
+	@Autowired
+	private NotaFiscalXmlService arquivosXml;
+
 	@GetMapping("/form")
 	public ModelAndView form() {
 		ModelAndView mv = new ModelAndView(NOTAFISCAL_FORM);
@@ -101,6 +121,56 @@ public class NotaFiscalController {
 		return "ok";
 	}
 	
+	@RequestMapping(value = "/lote", method = RequestMethod.POST)
+	public @ResponseBody String emitirLote(@RequestParam("codigos") List<Long> codigos) {
+		return lotes.emite(codigos);
+	}
+
+	@GetMapping(value = "/lote/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+	public @ResponseBody Map<String, Object> situacaoLote(@PathVariable("id") String id) {
+		return lotes.situacao(id);
+	}
+	
+	@GetMapping("/xml/{chave}")
+	public void downloadXml(@PathVariable("chave") String chave, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		response.setContentType(MediaType.APPLICATION_XML_VALUE);
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + chave + ".xml");
+
+		// o xml arquivado já está compactado, quando o cliente aceita gzip é enviado sem descompactar
+		String encoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+		Optional<Path> compactado = arquivosXml.compactado(chave);
+
+		if (compactado.isPresent() && encoding != null && encoding.contains("gzip")) {
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+			Files.copy(compactado.get(), response.getOutputStream());
+			return;
+		}
+
+		Optional<InputStream> xml = arquivosXml.abre(chave);
+
+		if (!xml.isPresent()) {
+			response.reset();
+			response.sendError(HttpServletResponse.SC_NOT_FOUND, "XML da nota fiscal não encontrado");
+			return;
+		}
+
+		try (InputStream entrada = xml.get()) {
+			entrada.transferTo(response.getOutputStream());
+		}
+	}
+
+	@GetMapping("/xml")
+	public void exportaXml(@RequestParam("inicio") @DateTimeFormat(iso = ISO.DATE) LocalDate inicio,
+			@RequestParam("fim") @DateTimeFormat(iso = ISO.DATE) LocalDate fim, HttpServletResponse response)
+			throws IOException {
+		response.setContentType("application/zip");
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+				"attachment; filename=xmlNfe_" + inicio + "_" + fim + ".zip");
+
+		arquivosXml.exporta(inicio.atStartOfDay(), fim.plusDays(1).atStartOfDay(), response.getOutputStream());
+	}
+
 	@GetMapping
 	public ModelAndView lista() {
 		System.out.println("veio aqui");
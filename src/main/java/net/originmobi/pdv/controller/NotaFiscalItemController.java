@@ -1,5 +1,6 @@
 package net.originmobi.pdv.controller;
 
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,6 +34,23 @@ public class NotaFiscalItemController {
 		return "ok";
 	}
 	
+	@RequestMapping(value = "/lote", method = RequestMethod.POST)
+	public @ResponseBody String insereItensNota(@RequestParam("nota") Long codnota, @RequestParam("tipo") String tipo,
+			@RequestParam("produtos") List<Long> produtos, @RequestParam("qtds") List<Integer> qtds) {
+		NotaFiscalTipo tipoNota = tipo.equals("ENTRADA") ? NotaFiscalTipo.ENTRADA : NotaFiscalTipo.SAIDA;
+
+		int total = itens.insereLote(codnota, produtos, qtds, tipoNota);
+
+		return total + " itens lançados na nota";
+	}
+	
+	@RequestMapping(value = "/impostos", method = RequestMethod.POST)
+	public @ResponseBody String recalculaImpostos(@RequestParam("nota") Long codnota) {
+		int total = itens.recalculaImpostos(codnota);
+
+		return total + " itens recalculados na nota";
+	}
+	
 	@RequestMapping(method = RequestMethod.DELETE)
 	public @ResponseBody String remove(@RequestParam Map<String, String> request) {
 		Long notaitem = Long.decode(request.get("notaitem"));
@@ -7,8 +7,8 @@ import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -30,6 +30,9 @@ import net.originmobi.pdv.service.FornecedorService;
 import net.originmobi.pdv.service.PagarParcelaService;
 import net.originmobi.pdv.service.PagarService;
 import net.originmobi.pdv.service.PagarTipoService;
+import net.originmobi.pdv.service.PaginaCursor;
+import net.originmobi.pdv.service.PosicaoVencimentos;
+import net.originmobi.pdv.service.PosicaoVencimentosService;
 
 @Controller
 @RequestMapping("/pagar")
@@ -53,22 +56,27 @@ public class PagarController {
 	@Autowired
 	private CaixaService caixas;
 
+	@Autowired
+	private PosicaoVencimentosService vencimentos;
+
 	@ModelAttribute("filter")
 	public PagarParcelaFilter inicializerFilter() {
 		return new PagarParcelaFilter();
 	}
 	
 	@GetMapping
-	public ModelAndView list(@ModelAttribute("filter") PagarParcelaFilter filter, Pageable pageable, Model model) {
+	public ModelAndView list(@ModelAttribute("filter") PagarParcelaFilter filter,
+			@RequestParam(value = "depois", required = false) String depois,
+			@RequestParam(value = "antes", required = false) String antes,
+			@RequestParam(value = "contar", defaultValue = "false") boolean contar, Pageable pageable, Model model) {
 		ModelAndView mv = new ModelAndView(PAGAR_FORM);
 		
-		Page<PagarParcela> paginas = pagarParcelas.lista(filter, pageable);
-		mv.addObject("parcelas", paginas);
+		PaginaCursor<PagarParcela> paginas = pagarParcelas.lista(filter, depois, antes, contar, pageable);
+		mv.addObject("parcelas", paginas.getConteudo());
 		
-		model.addAttribute("qtdpaginas", paginas.getTotalPages());
-		model.addAttribute("pagAtual", paginas.getPageable().getPageNumber());
-		model.addAttribute("proxPagina", paginas.getPageable().next().getPageNumber());
-		model.addAttribute("pagAnterior", paginas.getPageable().previousOrFirst().getPageNumber());
+		model.addAttribute("qtdparcelas", paginas.getTotal());
+		model.addAttribute("proxPagina", paginas.getProximo());
+		model.addAttribute("pagAnterior", paginas.getAnterior());
 		model.addAttribute("hasNext", paginas.hasNext());
 		model.addAttribute("hasPrevious", paginas.hasPrevious());
 		
@@ -120,4 +128,10 @@ public class PagarController {
 		return caixas.caixasAbertos();
 	}
 
+	@GetMapping(value = "/vencimentos", produces = MediaType.APPLICATION_JSON_VALUE)
+	public @ResponseBody PosicaoVencimentos vencimentos(
+			@RequestParam(value = "fornecedor", required = false) Long fornecedor) {
+		return fornecedor == null ? vencimentos.pagar() : vencimentos.pagar(fornecedor);
+	}
+
 }
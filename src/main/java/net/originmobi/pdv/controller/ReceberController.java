@@ -5,6 +5,7 @@ import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
@@ -23,6 +24,8 @@ import net.originmobi.pdv.model.Pessoa;
 import net.originmobi.pdv.model.Receber;
 import net.originmobi.pdv.service.ParcelaService;
 import net.originmobi.pdv.service.PessoaService;
+import net.originmobi.pdv.service.PosicaoVencimentos;
+import net.originmobi.pdv.service.PosicaoVencimentosService;
 import net.originmobi.pdv.service.RecebimentoService;
 
 @Controller
@@ -43,6 +46,9 @@ public class ReceberController {
 	@Autowired
 	private RecebimentoService recebimentos;
 
+	@Autowired
+	private PosicaoVencimentosService vencimentos;
+
 	@SuppressWarnings("deprecation")
 	@GetMapping("/form")
 	public ModelAndView form() {
@@ -99,6 +105,16 @@ public class ReceberController {
 		return headers.toString() + retorno;
 	}
 
+	@RequestMapping(value = "/cobranca", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+	public @ResponseBody Map<Long, Long> cobranca(@RequestParam("parcelas") List<Long> codigos) {
+		return recebimentos.abrirRecebimentos(codigos);
+	}
+
+	@GetMapping(value = "/vencimentos", produces = MediaType.APPLICATION_JSON_VALUE)
+	public @ResponseBody PosicaoVencimentos vencimentos(@RequestParam(value = "pessoa", required = false) Long pessoa) {
+		return pessoa == null ? vencimentos.receber() : vencimentos.receber(pessoa);
+	}
+
 	@ModelAttribute("pessoas")
 	public List<Pessoa> pessoas() {
 		return pessoas.lista();
@@ -1,23 +1,37 @@
 package net.originmobi.pdv.controller;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 import net.originmobi.pdv.relatorios.GerarRelatorio;
+import net.originmobi.pdv.relatorios.RelatorioFila;
 
 @Controller
 @RequestMapping("/relatorio")
 public class RelatorioController {
+
+	@Autowired
+	private GerarRelatorio relatorio;
+
+	@Autowired
+	private RelatorioFila fila;
 	
 	@GetMapping
 	public String relatorio(HttpServletResponse response) {
-		GerarRelatorio relatorio = new GerarRelatorio();
 		Map<String, Object> parametros = new HashMap<>();
 		parametros.put("codvenda", 1);
 		
@@ -26,4 +40,22 @@ public class RelatorioController {
 		return "relatorio";
 	}
 
+	@GetMapping(value = "/job/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+	public @ResponseBody Map<String, Object> situacaoJob(@PathVariable("id") String id) {
+		return fila.situacao(id);
+	}
+
+	@GetMapping("/job/{id}/pdf")
+	public void downloadJob(@PathVariable("id") String id, HttpServletResponse response) throws IOException {
+		Optional<Path> arquivo = fila.arquivo(id);
+
+		if (!arquivo.isPresent()) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND, "Relatório não encontrado ou ainda em geração");
+			return;
+		}
+
+		response.setContentType("application/pdf");
+		Files.copy(arquivo.get(), response.getOutputStream());
+	}
+
 }
@@ -5,7 +5,6 @@ import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
@@ -31,9 +30,9 @@ import net.originmobi.pdv.model.Produto;
 import net.originmobi.pdv.model.Titulo;
 import net.originmobi.pdv.model.Venda;
 import net.originmobi.pdv.service.PagamentoTipoService;
+import net.originmobi.pdv.service.PaginaCursor;
 import net.originmobi.pdv.service.PessoaService;
 import net.originmobi.pdv.service.ProdutoService;
-import net.originmobi.pdv.service.VendaProdutoService;
 import net.originmobi.pdv.service.VendaService;
 
 @Controller
@@ -53,9 +52,6 @@ public class VendaController {
 	@Autowired
 	private ProdutoService produtos;
 
-	@Autowired
-	private VendaProdutoService vendaProdutos;
-
 	@Autowired
 	private PagamentoTipoService pagamentoTipos;
 
@@ -71,20 +67,19 @@ public class VendaController {
 
 	@GetMapping("/status/{status}")
 	public ModelAndView listaPedidos(@ModelAttribute("filter") VendaFilter filter,
-			@PathVariable("status") String status, Pageable pageable, Model model) {
+			@PathVariable("status") String status, @RequestParam(value = "depois", required = false) String depois,
+			@RequestParam(value = "antes", required = false) String antes,
+			@RequestParam(value = "contar", defaultValue = "false") boolean contar, Pageable pageable, Model model) {
 		ModelAndView mv = new ModelAndView(VENDA_LIST);
-		Page<Venda> vendasPaginadas = vendas.busca(filter, status, pageable);
-		mv.addObject("vendas", vendasPaginadas);
+		PaginaCursor<Venda> vendasPaginadas = vendas.busca(filter, status, depois, antes, contar, pageable);
+		mv.addObject("vendas", vendasPaginadas.getConteudo());
 
-		model.addAttribute("qtdpaginas", vendasPaginadas.getTotalPages());
-		model.addAttribute("pagAtual", vendasPaginadas.getPageable().getPageNumber());
-		model.addAttribute("proxPagina", vendasPaginadas.getPageable().next().getPageNumber());
-		model.addAttribute("pagAnterior", vendasPaginadas.getPageable().previousOrFirst().getPageNumber());
+		model.addAttribute("qtdvendas", vendasPaginadas.getTotal());
+		model.addAttribute("proxPagina", vendasPaginadas.getProximo());
+		model.addAttribute("pagAnterior", vendasPaginadas.getAnterior());
 		model.addAttribute("hasNext", vendasPaginadas.hasNext());
 		model.addAttribute("hasPrevious", vendasPaginadas.hasPrevious());
-		
-		if (vendasPaginadas.getContent().size() > 0)
-			model.addAttribute("statuVenda", vendasPaginadas.getContent().get(0).getSituacao());
+		model.addAttribute("statuVenda", status);
 
 		return mv;
 	}
@@ -111,7 +106,8 @@ public class VendaController {
 	public ModelAndView buscaVenda(@PathVariable("codigo") Venda venda) {
 		ModelAndView mv = new ModelAndView(VENDA_FORM);
 		mv.addObject("venda", venda);
-		mv.addObject("produtosVenda", vendaProdutos.listaProdutosVenda(venda));
+		mv.addObject("produtosVenda", vendas.listaProdutosVenda(venda));
+		mv.addObject("valorProdutos", vendas.valorProdutos(venda));
 		return mv;
 	}
 
@@ -0,0 +1,5 @@
+package net.originmobi.pdv.enumerado.notafiscal;
+
+public enum NotaFiscalEmissaoSituacao {
+	AGUARDANDO, PROCESSANDO, EMITIDA, ERRO;
+}
@@ -0,0 +1,5 @@
+package net.originmobi.pdv.enumerado.relatorio;
+
+public enum RelatorioSituacao {
+	AGUARDANDO, PROCESSANDO, CONCLUIDO, ERRO;
+}
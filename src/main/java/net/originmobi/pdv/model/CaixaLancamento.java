@@ -58,6 +58,9 @@ public class CaixaLancamento implements Serializable {
 	@DateTimeFormat(pattern = "dd/MM/yyyy hh:mm:ss")
 	private Timestamp data_cadastro;
 
+	// lançamentos não conciliados ainda não foram somados aos totais do caixa
+	private boolean conciliado = true;
+
 	@Deprecated
 	public CaixaLancamento() {
 	}
@@ -148,4 +151,12 @@ public class CaixaLancamento implements Serializable {
 		this.parcelaPagar = parcelaPagar;
 	}
 
+	public boolean isConciliado() {
+		return conciliado;
+	}
+
+	public void setConciliado(boolean conciliado) {
+		this.conciliado = conciliado;
+	}
+
 }
@@ -0,0 +1,75 @@
+package net.originmobi.pdv.model;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+@Entity
+@Table(name = "nota_fiscal_xml")
+public class NotaFiscalXml implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private String chave_acesso;
+	private int serie;
+	private String caminho;
+	private long tamanho;
+	private Timestamp data_cadastro;
+
+	public NotaFiscalXml() {
+		super();
+	}
+
+	public NotaFiscalXml(String chave_acesso, int serie, String caminho, long tamanho, Timestamp data_cadastro) {
+		this.chave_acesso = chave_acesso;
+		this.serie = serie;
+		this.caminho = caminho;
+		this.tamanho = tamanho;
+		this.data_cadastro = data_cadastro;
+	}
+
+	public String getChave_acesso() {
+		return chave_acesso;
+	}
+
+	public void setChave_acesso(String chave_acesso) {
+		this.chave_acesso = chave_acesso;
+	}
+
+	public int getSerie() {
+		return serie;
+	}
+
+	public void setSerie(int serie) {
+		this.serie = serie;
+	}
+
+	public String getCaminho() {
+		return caminho;
+	}
+
+	public void setCaminho(String caminho) {
+		this.caminho = caminho;
+	}
+
+	public long getTamanho() {
+		return tamanho;
+	}
+
+	public void setTamanho(long tamanho) {
+		this.tamanho = tamanho;
+	}
+
+	public Timestamp getData_cadastro() {
+		return data_cadastro;
+	}
+
+	public void setData_cadastro(Timestamp data_cadastro) {
+		this.data_cadastro = data_cadastro;
+	}
+
+}
@@ -5,6 +5,7 @@ import java.util.Map;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -15,16 +16,33 @@ import org.springframework.web.bind.annotation.ResponseBody;
 @RequestMapping("/caixa/relatorio")
 public class CaixaRelatorioController {
 	
+	@Autowired
 	private GerarRelatorio relatorio;
+
+	@Autowired
+	private RelatorioFila fila;
 	
 	@GetMapping("/caixa/{codigo}")
 	public @ResponseBody String caixa(@PathVariable("codigo") Integer codigo, HttpServletResponse response) {
 		Map<String, Object> parametros = new HashMap<>();
 		parametros.put("codcaixa", codigo);
 
-		relatorio = new GerarRelatorio();
-		relatorio.gerar("caixa.jrxml", response, parametros);
+		// o relatório de caixa pode ter milhares de lançamentos, por isso é gerado
+		// no modo virtualizado
+		relatorio.gerar("caixa.jrxml", response, parametros, true);
 		
 		return "ok";
 	}
+
+	/*
+	 * Enfileira a geração do relatório de caixa e retorna o id do job, a
+	 * situação e o PDF ficam disponíveis em /relatorio/job/{id}
+	 */
+	@GetMapping("/caixa/{codigo}/job")
+	public @ResponseBody String caixaJob(@PathVariable("codigo") Integer codigo) {
+		Map<String, Object> parametros = new HashMap<>();
+		parametros.put("codcaixa", codigo);
+
+		return fila.enfileira("caixa.jrxml", parametros, true);
+	}
 }
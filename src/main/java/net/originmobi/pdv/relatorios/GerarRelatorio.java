@@ -1,63 +1,182 @@
 package net.originmobi.pdv.relatorios;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.http.HttpServletResponse;
 import javax.sql.DataSource;
 
-import net.originmobi.pdv.utilitarios.ConexaoJDBC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRParameter;
 import net.sf.jasperreports.engine.JasperCompileManager;
-import net.sf.jasperreports.engine.JasperExportManager;
 import net.sf.jasperreports.engine.JasperFillManager;
 import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.export.JRPdfExporter;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import net.sf.jasperreports.engine.util.JRSwapFile;
+import net.sf.jasperreports.export.SimpleExporterInput;
+import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
 
+/**
+ * Responsável por gerar os relatórios de resources/relatorios.
+ *
+ * Cada .jrxml é compilado uma única vez e mantido em cache, sendo recompilado
+ * apenas quando a data de modificação do arquivo muda. Assim a geração de um
+ * relatório custa somente o preenchimento e a exportação. O preenchimento usa
+ * o DataSource (pool de conexões) da aplicação.
+ */
+@Component
 public class GerarRelatorio {
-	private String contexto;
-	private ConexaoJDBC conexao;
 
-	public void gerar(String relatorio, HttpServletResponse resposta, Map<String, Object> parametros) {
+	private static final String DIRETORIO = "classpath:relatorios/";
 
-		try {
-			contexto = new File(".").getCanonicalPath();
-		} catch (IOException e1) {
-			e1.printStackTrace();
-			System.out.println("Erro ao pegar path da aplicação");
-		}
+	private static final int TAMANHO_BLOCO_SWAP = 4096;
 
-		String jrxml = contexto.toString().replace("/bin", "") + "/webapps/pdv/WEB-INF/classes/relatorios/" + relatorio;
-		
-		conexao = new ConexaoJDBC();
-		DataSource dataSource = conexao.abre();
+	private static final int CRESCIMENTO_SWAP = 100;
 
-		JasperReport report;
-		JasperPrint print = null;
+	@Value("${pdv.relatorio.virtualizador.paginas:50}")
+	private int paginasEmMemoria;
 
-		try {
-			report = JasperCompileManager.compileReport(jrxml);
+	@Value("${pdv.relatorio.virtualizador.diretorio:${java.io.tmpdir}}")
+	private String diretorioSwap;
 
-			print = JasperFillManager.fillReport(report, parametros, dataSource.getConnection());
+	@Autowired
+	private ResourcePatternResolver resources;
 
-			dataSource.getConnection().close();
+	@Autowired
+	private DataSource dataSource;
+
+	private final Map<String, RelatorioCompilado> compilados = new ConcurrentHashMap<>();
+
+	/*
+	 * Compila todos os relatórios na inicialização para que a primeira impressão
+	 * não pague o custo da compilação
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void compilaRelatorios() {
+		try {
+			for (Resource jrxml : resources.getResources(DIRETORIO + "*.jrxml"))
+				compilado(jrxml.getFilename());
 		} catch (Exception e) {
-			System.out.println(e);
+			System.out.println("Erro ao compilar relatórios: " + e);
 		}
-		
+	}
+
+	public void gerar(String relatorio, HttpServletResponse resposta, Map<String, Object> parametros) {
+		gerar(relatorio, resposta, parametros, false);
+	}
+
+	public void gerar(String relatorio, HttpServletResponse resposta, Map<String, Object> parametros,
+			boolean virtualizado) {
 		try {
 			OutputStream saida = resposta.getOutputStream();
-			
+
 			resposta.setContentType("application/pdf");
-			
-			JasperExportManager.exportReportToPdfStream(print, saida);
-			
+
+			exporta(relatorio, parametros, virtualizado, saida);
+
 			saida.flush();
 			saida.close();
 		} catch (Exception e) {
 			System.out.println(e);
 		}
+	}
+
+	/*
+	 * Preenche o relatório e escreve o PDF na saída informada.
+	 * 
+	 * No modo virtualizado apenas as últimas páginas preenchidas ficam em memória,
+	 * as demais são gravadas em um arquivo de swap em disco. A exportação lê as
+	 * páginas do swap uma a uma e escreve o PDF direto na saída, assim o uso de
+	 * heap fica limitado por relatório, independente do número de páginas
+	 */
+	public void exporta(String relatorio, Map<String, Object> parametros, boolean virtualizado, OutputStream saida)
+			throws IOException, JRException, SQLException {
+		JRSwapFileVirtualizer virtualizer = null;
+
+		try {
+			JasperReport report = compilado(relatorio);
+
+			Map<String, Object> parametrosRelatorio = new HashMap<>(parametros);
+
+			if (virtualizado) {
+				virtualizer = new JRSwapFileVirtualizer(paginasEmMemoria,
+						new JRSwapFile(diretorioSwap, TAMANHO_BLOCO_SWAP, CRESCIMENTO_SWAP), true);
+				parametrosRelatorio.put(JRParameter.REPORT_VIRTUALIZER, virtualizer);
+			}
+
+			JasperPrint print;
+
+			// a conexão vem do pool da aplicação e é devolvida ao final do preenchimento
+			try (Connection conexao = dataSource.getConnection()) {
+				print = JasperFillManager.fillReport(report, parametrosRelatorio, conexao);
+			}
+
+			if (virtualizer != null)
+				virtualizer.setReadOnly(true);
+
+			JRPdfExporter exporter = new JRPdfExporter();
+			exporter.setExporterInput(new SimpleExporterInput(print));
+			exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(saida));
+			exporter.exportReport();
+		} finally {
+			if (virtualizer != null)
+				virtualizer.cleanup();
+		}
+	}
+
+	/*
+	 * Retorna o relatório compilado do cache, compilando novamente caso o .jrxml
+	 * tenha sido alterado desde a última compilação
+	 */
+	public JasperReport compilado(String relatorio) throws IOException, JRException {
+		Resource jrxml = resources.getResource(DIRETORIO + relatorio);
+
+		if (!jrxml.exists())
+			throw new IOException("Relatório " + relatorio + " não encontrado");
+
+		long modificado = jrxml.lastModified();
+		RelatorioCompilado atual = compilados.get(relatorio);
+
+		if (atual != null && atual.modificado == modificado)
+			return atual.report;
+
+		synchronized (compilados) {
+			atual = compilados.get(relatorio);
+
+			if (atual == null || atual.modificado != modificado) {
+				try (InputStream entrada = jrxml.getInputStream()) {
+					atual = new RelatorioCompilado(JasperCompileManager.compileReport(entrada), modificado);
+				}
+				compilados.put(relatorio, atual);
+			}
+		}
+
+		return atual.report;
+	}
 
+	private static class RelatorioCompilado {
+		private final JasperReport report;
+		private final long modificado;
+
+		RelatorioCompilado(JasperReport report, long modificado) {
+			this.report = report;
+			this.modificado = modificado;
+		}
 	}
 }
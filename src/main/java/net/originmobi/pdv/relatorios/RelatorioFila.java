@@ -0,0 +1,207 @@
+package net.originmobi.pdv.relatorios;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import net.originmobi.pdv.enumerado.relatorio.RelatorioSituacao;
+
+/**
+ * Fila de geração assíncrona de relatórios.
+ *
+ * Os relatórios são gerados por um pool limitado de threads, fora das threads
+ * de requisição do Tomcat, e o PDF é gravado em disco, onde fica disponível
+ * para download até expirar (pdv.relatorio.fila.ttl). Pedidos do mesmo
+ * relatório com os mesmos parâmetros reutilizam o job enquanto ele ainda está
+ * na fila ou sendo gerado; depois de concluído um novo pedido gera o relatório
+ * novamente, pois comandas e caixas abertos mudam entre uma impressão e outra.
+ */
+@Component
+public class RelatorioFila {
+
+	@Value("${pdv.relatorio.fila.threads:2}")
+	private int threads;
+
+	@Value("${pdv.relatorio.fila.capacidade:20}")
+	private int capacidade;
+
+	@Value("${pdv.relatorio.fila.ttl:600000}")
+	private long ttl;
+
+	@Value("${pdv.relatorio.fila.diretorio:dados/relatorios}")
+	private String diretorio;
+
+	@Autowired
+	private GerarRelatorio relatorios;
+
+	private ThreadPoolExecutor executor;
+
+	private final Map<String, RelatorioJob> jobs = new ConcurrentHashMap<>();
+
+	// chave do relatório (nome + parâmetros) -> id do job
+	private final Map<String, String> jobsPorChave = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void inicia() throws IOException {
+		Files.createDirectories(Paths.get(diretorio));
+		executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(capacidade));
+	}
+
+	@PreDestroy
+	public void encerra() {
+		executor.shutdownNow();
+	}
+
+	/*
+	 * Enfileira a geração do relatório e retorna o id do job, caso o mesmo
+	 * relatório com os mesmos parâmetros ainda esteja na fila ou sendo gerado,
+	 * retorna o id existente
+	 */
+	public synchronized String enfileira(String relatorio, Map<String, Object> parametros, boolean virtualizado) {
+		String chave = relatorio + new TreeMap<>(parametros).toString();
+
+		RelatorioJob existente = Optional.ofNullable(jobsPorChave.get(chave)).map(jobs::get).orElse(null);
+
+		if (existente != null && (existente.situacao.equals(RelatorioSituacao.AGUARDANDO)
+				|| existente.situacao.equals(RelatorioSituacao.PROCESSANDO)))
+			return existente.id;
+
+		RelatorioJob job = new RelatorioJob(UUID.randomUUID().toString(), chave);
+
+		try {
+			executor.execute(() -> gera(job, relatorio, parametros, virtualizado));
+		} catch (RejectedExecutionException e) {
+			throw new RuntimeException("Fila de relatórios cheia, tente novamente em instantes");
+		}
+
+		jobs.put(job.id, job);
+		jobsPorChave.put(chave, job.id);
+
+		return job.id;
+	}
+
+	public Map<String, Object> situacao(String id) {
+		RelatorioJob job = jobs.get(id);
+		Map<String, Object> situacao = new HashMap<>();
+
+		situacao.put("id", id);
+
+		if (job == null) {
+			situacao.put("situacao", "NAO_ENCONTRADO");
+			return situacao;
+		}
+
+		situacao.put("situacao", job.situacao);
+		situacao.put("mensagem", job.mensagem);
+		return situacao;
+	}
+
+	/*
+	 * Retorna o arquivo do relatório caso já esteja concluído e não tenha
+	 * expirado
+	 */
+	public Optional<Path> arquivo(String id) {
+		RelatorioJob job = jobs.get(id);
+
+		if (job == null || !job.situacao.equals(RelatorioSituacao.CONCLUIDO) || job.expirado(ttl))
+			return Optional.empty();
+
+		return Optional.of(job.arquivo);
+	}
+
+	/*
+	 * Remove os jobs expirados e seus arquivos
+	 */
+	@Scheduled(fixedDelayString = "${pdv.relatorio.fila.limpeza:60000}")
+	public synchronized void removeExpirados() {
+		jobs.values().removeIf(job -> {
+			if (!job.expirado(ttl) || job.situacao.equals(RelatorioSituacao.AGUARDANDO)
+					|| job.situacao.equals(RelatorioSituacao.PROCESSANDO))
+				return false;
+
+			jobsPorChave.remove(job.chave, job.id);
+
+			try {
+				if (job.arquivo != null)
+					Files.deleteIfExists(job.arquivo);
+			} catch (IOException e) {
+				System.out.println("Erro ao remover relatório expirado: " + e);
+			}
+
+			return true;
+		});
+	}
+
+	private void gera(RelatorioJob job, String relatorio, Map<String, Object> parametros, boolean virtualizado) {
+		job.situacao = RelatorioSituacao.PROCESSANDO;
+
+		Path arquivo = Paths.get(diretorio, job.id + ".pdf");
+		Path temporario = Paths.get(diretorio, job.id + ".pdf.tmp");
+
+		try {
+			try (OutputStream saida = Files.newOutputStream(temporario)) {
+				relatorios.exporta(relatorio, parametros, virtualizado, saida);
+			}
+
+			Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			job.arquivo = arquivo;
+			job.concluido = System.currentTimeMillis();
+			job.situacao = RelatorioSituacao.CONCLUIDO;
+		} catch (Exception e) {
+			System.out.println(e);
+
+			try {
+				Files.deleteIfExists(temporario);
+			} catch (IOException e1) {
+				e1.printStackTrace();
+			}
+
+			job.concluido = System.currentTimeMillis();
+			job.mensagem = "Erro ao gerar relatório, chame o suporte";
+			job.situacao = RelatorioSituacao.ERRO;
+		}
+	}
+
+	private static class RelatorioJob {
+		private final String id;
+		private final String chave;
+
+		private volatile RelatorioSituacao situacao = RelatorioSituacao.AGUARDANDO;
+		private volatile String mensagem;
+		private volatile Path arquivo;
+		private volatile long concluido;
+
+		RelatorioJob(String id, String chave) {
+			this.id = id;
+			this.chave = chave;
+		}
+
+		boolean expirado(long ttl) {
+			return concluido > 0 && System.currentTimeMillis() - concluido > ttl;
+		}
+	}
+
+}
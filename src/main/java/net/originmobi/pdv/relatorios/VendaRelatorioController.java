@@ -5,6 +5,7 @@ import java.util.Map;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -15,14 +16,17 @@ import org.springframework.web.bind.annotation.ResponseBody;
 @RequestMapping("/venda/relatorio")
 public class VendaRelatorioController {
 	
-	GerarRelatorio relatorio;
+	@Autowired
+	private GerarRelatorio relatorio;
+
+	@Autowired
+	private RelatorioFila fila;
 
 	@GetMapping("/controle/{codigo}")
 	public void controle(@PathVariable("codigo") Integer codigo, HttpServletResponse response) {
 		Map<String, Object> parametros = new HashMap<>();
 		parametros.put("codvenda", codigo);
 
-		relatorio = new GerarRelatorio();
 		relatorio.gerar("controle.jrxml", response, parametros);
 	}
 	
@@ -31,9 +35,20 @@ public class VendaRelatorioController {
 		Map<String, Object> parametros = new HashMap<>();
 		parametros.put("codvenda", codigo);
 		
-		relatorio = new GerarRelatorio();
 		relatorio.gerar("comanda.jrxml", response, parametros);
 		
 		return "ok";
-	} 
+	}
+
+	/*
+	 * Enfileira a geração do relatório (controle ou comanda) e retorna o id do
+	 * job, a situação e o PDF ficam disponíveis em /relatorio/job/{id}
+	 */
+	@GetMapping("/{relatorio:controle|comanda}/{codigo}/job")
+	public @ResponseBody String job(@PathVariable("relatorio") String nome, @PathVariable("codigo") Integer codigo) {
+		Map<String, Object> parametros = new HashMap<>();
+		parametros.put("codvenda", codigo);
+
+		return fila.enfileira(nome + ".jrxml", parametros, false);
+	}
 }
@@ -7,7 +7,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import net.originmobi.pdv.model.Caixa;
 import net.originmobi.pdv.model.CaixaLancamento;
 
-public interface CaixaLancamentoRepository extends JpaRepository<CaixaLancamento, Long> {
+public interface CaixaLancamentoRepository extends JpaRepository<CaixaLancamento, Long>, CaixaLancamentoRepositoryCustom {
 
 	public List<CaixaLancamento> findByCaixaEquals(Caixa caixa);
 
@@ -0,0 +1,15 @@
+package net.originmobi.pdv.repository;
+
+import java.util.Map;
+
+public interface CaixaLancamentoRepositoryCustom {
+
+	/*
+	 * Soma aos totais de cada caixa os lançamentos ainda não conciliados, com a
+	 * mesma regra do trigger tr_atualizaValoresCaixa, e marca os lançamentos como
+	 * conciliados. Retorna o valor conciliado por caixa (codigo do caixa ->
+	 * {entrada, saida}), saida com o sinal negativo do lançamento
+	 */
+	public Map<Long, double[]> conciliaPendentes();
+
+}
@@ -0,0 +1,60 @@
+package net.originmobi.pdv.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+public class CaixaLancamentoRepositoryImpl implements CaixaLancamentoRepositoryCustom {
+
+	// leitura com bloqueio para que os lançamentos somados sejam exatamente os
+	// marcados como conciliados, mesmo com inserções concorrentes
+	private static final String PENDENTES = "select codigo, caixa_codigo, estilo, valor from caixa_lancamento "
+			+ "where conciliado = 0 for update";
+
+	private static final String ATUALIZA_CAIXA = "update caixa set valor_entrada = coalesce(valor_entrada, 0) + ?, "
+			+ "valor_saida = coalesce(valor_saida, 0) - ?, valor_total = coalesce(valor_total, 0) + ? where codigo = ?";
+
+	private static final String MARCA_CONCILIADO = "update caixa_lancamento set conciliado = 1 where codigo = ?";
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Override
+	@Transactional(readOnly = false, propagation = Propagation.REQUIRED)
+	public Map<Long, double[]> conciliaPendentes() {
+		Map<Long, double[]> totais = new HashMap<>();
+		List<Object[]> conciliados = new ArrayList<>();
+
+		jdbc.query(PENDENTES, rs -> {
+			double[] total = totais.computeIfAbsent(rs.getLong("caixa_codigo"), codigo -> new double[2]);
+
+			if ("ENTRADA".equals(rs.getString("estilo")))
+				total[0] += rs.getDouble("valor");
+			else if ("SAIDA".equals(rs.getString("estilo")))
+				total[1] += rs.getDouble("valor");
+
+			conciliados.add(new Object[] { rs.getLong("codigo") });
+		});
+
+		if (conciliados.isEmpty())
+			return totais;
+
+		List<Object[]> caixas = new ArrayList<>(totais.size());
+
+		for (Map.Entry<Long, double[]> total : totais.entrySet())
+			caixas.add(new Object[] { total.getValue()[0], total.getValue()[1],
+					total.getValue()[0] + total.getValue()[1], total.getKey() });
+
+		jdbc.batchUpdate(ATUALIZA_CAIXA, caixas);
+		jdbc.batchUpdate(MARCA_CONCILIADO, conciliados);
+
+		return totais;
+	}
+
+}
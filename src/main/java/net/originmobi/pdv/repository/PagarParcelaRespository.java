@@ -2,8 +2,8 @@ package net.originmobi.pdv.repository;
 
 import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.List;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
@@ -26,14 +26,45 @@ public interface PagarParcelaRespository extends JpaRepository<PagarParcela, Lon
 			@Param("quitado") int quitado, @Param("cadastro") Timestamp cadastro,
 			@Param("vencimento") LocalDate vencimento, @Param("pagar") Pagar pagar);
 
-	@Query("select p from PagarParcela p where p.quitado = 0 order by p.data_vencimento")
-	Page<PagarParcela> listaOrdenada(Pageable pageable);
+	// paginação por chave, as consultas limitadas pelo pageable não fazem o count
 
-	@Query(value = "select * from parcela_pagar pp, pagar p, fornecedor f where p.codigo = pp.pagar_codigo and f.codigo = p.fornecedor_codigo "
-			+ "and f.nome like %:nome% order by pp.quitado", nativeQuery = true)
-	Page<PagarParcela> listaOrdenada(@Param("nome") String nome, Pageable pageable);
+	// parcelas em aberto por (vencimento, código)
+	@Query("select p from PagarParcela p where p.quitado = 0 order by p.data_vencimento, p.codigo")
+	List<PagarParcela> listaAbertas(Pageable limite);
+
+	@Query("select p from PagarParcela p where p.quitado = 0 and (p.data_vencimento > :vencimento "
+			+ "or (p.data_vencimento = :vencimento and p.codigo > :codigo)) order by p.data_vencimento, p.codigo")
+	List<PagarParcela> listaAbertasDepois(@Param("vencimento") LocalDate vencimento, @Param("codigo") Long codigo,
+			Pageable limite);
+
+	@Query("select p from PagarParcela p where p.quitado = 0 and (p.data_vencimento < :vencimento "
+			+ "or (p.data_vencimento = :vencimento and p.codigo < :codigo)) order by p.data_vencimento desc, p.codigo desc")
+	List<PagarParcela> listaAbertasAntes(@Param("vencimento") LocalDate vencimento, @Param("codigo") Long codigo,
+			Pageable limite);
+
+	@Query("select count(p) from PagarParcela p where p.quitado = 0")
+	long totalAbertas();
+
+	// parcelas do fornecedor por (quitado, código), as primeiras partem de quitado -1
+	@Query("select p from PagarParcela p where p.pagar.fornecedor.nome like %:nome% and (p.quitado > :quitado "
+			+ "or (p.quitado = :quitado and p.codigo > :codigo)) order by p.quitado, p.codigo")
+	List<PagarParcela> listaPorNomeDepois(@Param("nome") String nome, @Param("quitado") int quitado,
+			@Param("codigo") Long codigo, Pageable limite);
+
+	@Query("select p from PagarParcela p where p.pagar.fornecedor.nome like %:nome% and (p.quitado < :quitado "
+			+ "or (p.quitado = :quitado and p.codigo < :codigo)) order by p.quitado desc, p.codigo desc")
+	List<PagarParcela> listaPorNomeAntes(@Param("nome") String nome, @Param("quitado") int quitado,
+			@Param("codigo") Long codigo, Pageable limite);
+
+	@Query("select count(p) from PagarParcela p where p.pagar.fornecedor.nome like %:nome%")
+	long totalPorNome(@Param("nome") String nome);
 
 	@Query(value = "select coalesce(format(sum(pp.valor_restante), 2, 'de_DE'), '0,00') from pagar p, parcela_pagar pp where pp.pagar_codigo = p.codigo "
 			+ "and pp.quitado = 0", nativeQuery = true)
 	String valorDespesasAbertas();
+
+	@Query(value = "select p.fornecedor_codigo as codigo, pp.data_vencimento as vencimento, sum(pp.valor_restante) as valor "
+			+ "from pagar p, parcela_pagar pp where pp.pagar_codigo = p.codigo and pp.quitado = 0 "
+			+ "group by p.fornecedor_codigo, pp.data_vencimento", nativeQuery = true)
+	List<VencimentoAberto> vencimentosAbertos();
 }
@@ -2,12 +2,11 @@ package net.originmobi.pdv.repository;
 
 import java.sql.Date;
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 
 import javax.transaction.Transactional;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -16,7 +15,7 @@ import org.springframework.data.repository.query.Param;
 import net.originmobi.pdv.model.Parcela;
 import net.originmobi.pdv.model.Receber;
 
-public interface ParcelaRepository extends JpaRepository<Parcela, Long> {
+public interface ParcelaRepository extends JpaRepository<Parcela, Long>, ParcelaRepositoryCustom {
 
 	@Transactional
 	@Modifying
@@ -46,8 +45,14 @@ public interface ParcelaRepository extends JpaRepository<Parcela, Long> {
 			+ "and pes.codigo = :codigo and p.quitado = :quitado order by p.codigo", nativeQuery = true)
 	public String somaTotaAReceberPessoaCodigo(@Param("codigo") Long codpessoa, @Param("quitado") Boolean quitado);
 
-	@Query("select p from Parcela p where p.quitado = ?1")
-	public Page<Parcela> findByParcelasOrdenadas(int quitado, Pageable pageable);
-
 	Parcela findByCodigoEquals(Long codigo);
+
+	@Query("select p.codigo as codigo, p.quitado as quitado, p.valor_restante as restante, r.pessoa.codigo as pessoa "
+			+ "from Parcela p join p.receber r where p.codigo in ?1")
+	public List<ParcelaSituacao> buscaSituacao(Collection<Long> codigos);
+
+	@Query(value = "select r.pessoa_codigo as codigo, p.data_vencimento as vencimento, sum(p.valor_restante) as valor "
+			+ "from parcela p, receber r where r.codigo = p.receber_codigo and p.quitado = 0 "
+			+ "group by r.pessoa_codigo, p.data_vencimento", nativeQuery = true)
+	public List<VencimentoAberto> vencimentosAbertos();
 }
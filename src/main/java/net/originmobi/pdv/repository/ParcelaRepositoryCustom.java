@@ -0,0 +1,18 @@
+package net.originmobi.pdv.repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import net.originmobi.pdv.service.ParcelaBaixa;
+
+public interface ParcelaRepositoryCustom {
+
+	/*
+	 * Grava a baixa de várias parcelas em um único lote, somando o valor de
+	 * cada baixa ao recebido e subtraindo do restante. Apenas parcelas não
+	 * quitadas com restante suficiente são alteradas. Retorna os códigos das
+	 * parcelas que não foram alteradas
+	 */
+	public List<Long> recebeEmLote(List<ParcelaBaixa> baixas, Timestamp pagamento);
+
+}
@@ -0,0 +1,42 @@
+package net.originmobi.pdv.repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import net.originmobi.pdv.service.ParcelaBaixa;
+
+public class ParcelaRepositoryImpl implements ParcelaRepositoryCustom {
+
+	// grava a diferença sobre os valores atuais da linha, assim recebimentos
+	// simultâneos da mesma parcela não se sobrescrevem; quitado é calculado
+	// primeiro, ainda sobre o restante anterior
+	private static final String RECEBE = "update parcela set quitado = case when round(valor_restante - ?, 2) <= 0 then 1 else 0 end, "
+			+ "valor_recebido = valor_recebido + ?, valor_restante = round(valor_restante - ?, 2), data_pagamento = ? "
+			+ "where codigo = ? and quitado = 0 and round(valor_restante, 2) >= ?";
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Override
+	public List<Long> recebeEmLote(List<ParcelaBaixa> baixas, Timestamp pagamento) {
+		List<Object[]> parametros = new ArrayList<>(baixas.size());
+
+		for (ParcelaBaixa baixa : baixas)
+			parametros.add(new Object[] { baixa.getValor(), baixa.getValor(), baixa.getValor(), pagamento,
+					baixa.getParcela(), baixa.getValor() });
+
+		int[] alteradas = jdbc.batchUpdate(RECEBE, parametros);
+		List<Long> naoAlteradas = new ArrayList<>();
+
+		for (int i = 0; i < alteradas.length; i++)
+			if (alteradas[i] == 0)
+				naoAlteradas.add(baixas.get(i).getParcela());
+
+		return naoAlteradas;
+	}
+
+}
@@ -0,0 +1,17 @@
+package net.originmobi.pdv.repository;
+
+/*
+ * Dados da parcela usados na abertura de um recebimento, buscados sem carregar
+ * o receber, a pessoa e a venda da parcela
+ */
+public interface ParcelaSituacao {
+
+	Long getCodigo();
+
+	Integer getQuitado();
+
+	Double getRestante();
+
+	Long getPessoa();
+
+}
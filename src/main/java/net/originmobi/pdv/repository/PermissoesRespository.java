@@ -15,4 +15,8 @@ public interface PermissoesRespository extends JpaRepository<Permissoes, Long> {
 	@Query(value = "select * from permissoes p, permissoes_grupo_usuario pgu where pgu.permissoes_codigo = p.codigo "
 			+ "and pgu.grupo_usuario_codigo = ?1 order by pgu.permissoes_codigo", nativeQuery = true)
 	List<Permissoes> listaPermissoesDoGrupo(Long codigo);
+
+	@Query(value = "select pgu.grupo_usuario_codigo, p.nome from permissoes p, permissoes_grupo_usuario pgu "
+			+ "where pgu.permissoes_codigo = p.codigo", nativeQuery = true)
+	List<Object[]> listaPermissoesPorGrupo();
 }
@@ -1,5 +1,6 @@
 package net.originmobi.pdv.repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -13,7 +14,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import net.originmobi.pdv.model.Produto;
 
-public interface ProdutoRepository extends JpaRepository<Produto, Long> {
+public interface ProdutoRepository extends JpaRepository<Produto, Long>, ProdutoRepositoryCustom {
 
 	public Page<Produto> findByDescricaoContaining(String descricao, Pageable pageable);
 
@@ -58,6 +59,14 @@ public interface ProdutoRepository extends JpaRepository<Produto, Long> {
 	@Query(value = "select pe.qtd from produto p, produto_estoque pe where pe.produto_codigo = p.codigo and p.codigo = :codprod", nativeQuery = true)
 	public int saldoEstoque(@Param("codprod") Long codprod);
 
+	/*
+	 * Retorna codigo, controla_estoque e saldo de estoque de todos os produtos
+	 * informados em uma única consulta
+	 */
+	@Query(value = "select p.codigo, p.controla_estoque, coalesce(pe.qtd, 0) from produto p "
+			+ "left join produto_estoque pe on pe.produto_codigo = p.codigo where p.codigo in (:codigos)", nativeQuery = true)
+	public List<Object[]> saldosEstoque(@Param("codigos") Collection<Long> codigos);
+
 	@Query("select p from Produto p where p.vendavel = 'SIM'")
 	public List<Produto> produtosVendaveis();
 
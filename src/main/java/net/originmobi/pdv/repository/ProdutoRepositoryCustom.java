@@ -0,0 +1,15 @@
+package net.originmobi.pdv.repository;
+
+import java.sql.Date;
+import java.util.Map;
+
+public interface ProdutoRepositoryCustom {
+
+	/*
+	 * Grava as movimentações de estoque informadas (codigo do produto -> qtd) em
+	 * um único lote JDBC
+	 */
+	public void movimentaEstoqueEmLote(Map<Long, Integer> movimentacoes, String tipo, String origem,
+			Date data_movimentacao);
+
+}
@@ -0,0 +1,31 @@
+package net.originmobi.pdv.repository;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class ProdutoRepositoryImpl implements ProdutoRepositoryCustom {
+
+	private static final String INSERE_MOVIMENTACAO = "insert into estoque_movimentacao (produto_codigo, tipo, qtd, origem_operacao, data_movimentacao) "
+			+ "values (?, ?, ?, ?, ?)";
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Override
+	public void movimentaEstoqueEmLote(Map<Long, Integer> movimentacoes, String tipo, String origem,
+			Date data_movimentacao) {
+		List<Object[]> parametros = new ArrayList<>(movimentacoes.size());
+
+		for (Map.Entry<Long, Integer> movimentacao : movimentacoes.entrySet())
+			parametros.add(new Object[] { movimentacao.getKey(), tipo, movimentacao.getValue(), origem,
+					data_movimentacao });
+
+		jdbc.batchUpdate(INSERE_MOVIMENTACAO, parametros);
+	}
+
+}
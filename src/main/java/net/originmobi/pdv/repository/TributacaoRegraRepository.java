@@ -25,6 +25,9 @@ public interface TributacaoRegraRepository extends JpaRepository<TributacaoRegra
 			@Param("aliq_ipi") String aliq_ipi, @Param("aliq_icms") String aliq_icms, @Param("cst_ipi") String cst_ipi,
 			@Param("data_cadastro") Date data_cadastro);
 
+	@Query("select r from TributacaoRegra r join fetch r.tributacao join fetch r.uf order by r.codigo")
+	List<TributacaoRegra> listaComTributacao();
+
 	List<TributacaoRegra> findByTributacaoCodigoAndTipoEquals(Long codtributacao, EntradaSaida tipo);
 
 	@Transactional
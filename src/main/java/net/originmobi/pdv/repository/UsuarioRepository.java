@@ -1,6 +1,8 @@
 package net.originmobi.pdv.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import net.originmobi.pdv.model.Usuario;
 
@@ -10,7 +12,8 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
 
 	public Usuario findByUserEquals(String user);
 
-	public Usuario findByUserContaining(String usuario);
+	@Query("select distinct u from Usuario u join fetch u.pessoa left join fetch u.grupousuario where u.user = :user")
+	public Usuario buscaLogin(@Param("user") String user);
 
 	public Usuario findByCodigoIn(Long codigo);
 	
@@ -0,0 +1,16 @@
+package net.originmobi.pdv.repository;
+
+import java.sql.Date;
+
+/*
+ * Valor em aberto de um cliente ou fornecedor em uma data de vencimento
+ */
+public interface VencimentoAberto {
+
+	Long getCodigo();
+
+	Date getVencimento();
+
+	Double getValor();
+
+}
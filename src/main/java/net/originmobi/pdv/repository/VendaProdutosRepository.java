@@ -13,7 +13,7 @@ import net.originmobi.pdv.model.Produto;
 import net.originmobi.pdv.model.Venda;
 import net.originmobi.pdv.model.VendaProduto;
 
-public interface VendaProdutosRepository extends JpaRepository<VendaProduto, Long> {
+public interface VendaProdutosRepository extends JpaRepository<VendaProduto, Long>, VendaProdutosRepositoryCustom {
 
 	/*
 	 * Esta query define os dados de apresentação dos produtos da tela de venda,
@@ -0,0 +1,14 @@
+package net.originmobi.pdv.repository;
+
+import java.util.List;
+
+import net.originmobi.pdv.model.VendaProduto;
+
+public interface VendaProdutosRepositoryCustom {
+
+	/*
+	 * Grava os produtos informados na tabela venda_produtos em um único lote JDBC
+	 */
+	public void insereEmLote(List<VendaProduto> produtos);
+
+}
@@ -0,0 +1,28 @@
+package net.originmobi.pdv.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import net.originmobi.pdv.model.VendaProduto;
+
+public class VendaProdutosRepositoryImpl implements VendaProdutosRepositoryCustom {
+
+	private static final String INSERE_PRODUTO = "insert into venda_produtos (produto_codigo, venda_codigo, valor_balanca) values (?, ?, ?)";
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Override
+	public void insereEmLote(List<VendaProduto> produtos) {
+		List<Object[]> parametros = new ArrayList<>(produtos.size());
+
+		for (VendaProduto produto : produtos)
+			parametros.add(new Object[] { produto.getProduto(), produto.getVenda(), produto.getValor_balanca() });
+
+		jdbc.batchUpdate(INSERE_PRODUTO, parametros);
+	}
+
+}
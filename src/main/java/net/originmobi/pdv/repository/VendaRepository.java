@@ -1,10 +1,10 @@
 package net.originmobi.pdv.repository;
 
 import java.sql.Timestamp;
+import java.util.List;
 
 import javax.transaction.Transactional;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
@@ -18,8 +18,6 @@ import net.originmobi.pdv.model.Venda;
 
 public interface VendaRepository extends JpaRepository<Venda, Long> {
 
-	public Page<Venda> findByCodigoIn(Long codigo, Pageable pageable);
-
 	@Transactional
 	@Modifying
 	@Query("update Venda v set v.pessoa = :pessoa, v.observacao = :observacao where v.codigo = :codigo")
@@ -36,8 +34,14 @@ public interface VendaRepository extends JpaRepository<Venda, Long> {
 	@Query("update Venda v set v.valor_produtos = :valorProdutos where v.codigo = :codigo")
 	public void atualizaValorProdutos(@Param("valorProdutos") Double vlProdutos, @Param("codigo") Long codigo);
 
-	@Query("select v from Venda v where v.situacao = ?1")
-	public Page<Venda> findBySituacaoEquals(VendaSituacao situacao, Pageable pageable);
+	// paginação por chave, as consultas limitadas pelo pageable não fazem o count
+	@Query("select v from Venda v where v.situacao = ?1 and v.codigo > ?2 order by v.codigo")
+	public List<Venda> listaDepois(VendaSituacao situacao, Long codigo, Pageable limite);
+
+	@Query("select v from Venda v where v.situacao = ?1 and v.codigo < ?2 order by v.codigo desc")
+	public List<Venda> listaAntes(VendaSituacao situacao, Long codigo, Pageable limite);
+
+	public long countBySituacao(VendaSituacao situacao);
 
 	public Venda findByCodigoEquals(Long codigo);
 
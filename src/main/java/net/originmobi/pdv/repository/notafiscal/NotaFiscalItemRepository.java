@@ -7,7 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 
 import net.originmobi.pdv.model.NotaFiscalItem;
 
-public interface NotaFiscalItemRepository extends JpaRepository<NotaFiscalItem, Long> {
+public interface NotaFiscalItemRepository extends JpaRepository<NotaFiscalItem, Long>, NotaFiscalItemRepositoryCustom {
 
 	@Query(value = "select nfi.cod_prod, prod.descricao, prod.ncm, nfii.cst, nfi.cfop, prod.unidade, nfi.qtd qtd, format(prod.valor_venda, 2, 'de_DE'), "
 			+ "format(nfi.vl_total, 2 , 'de_DE') total_produto, format(nfii.v_bc, 2, 'de_DE') bc_icms, format(nfii.v_icms, 2, 'de_DE') vl_icms, "
@@ -0,0 +1,20 @@
+package net.originmobi.pdv.repository.notafiscal;
+
+import java.util.List;
+
+import net.originmobi.pdv.model.NotaFiscalItem;
+
+public interface NotaFiscalItemRepositoryCustom {
+
+	/*
+	 * Grava os impostos e depois os itens informados em lotes JDBC, preenchendo o
+	 * código gerado de cada imposto
+	 */
+	public void insereEmLote(List<NotaFiscalItem> itens);
+
+	/*
+	 * Atualiza os itens já existentes na nota e seus impostos em lotes JDBC
+	 */
+	public void atualizaEmLote(List<NotaFiscalItem> itens);
+
+}
@@ -0,0 +1,114 @@
+package net.originmobi.pdv.repository.notafiscal;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import net.originmobi.pdv.model.NotaFiscalItem;
+import net.originmobi.pdv.model.NotaFiscalItemImposto;
+
+public class NotaFiscalItemRepositoryImpl implements NotaFiscalItemRepositoryCustom {
+
+	private static final String COLUNAS_IMPOSTO = "orig, cst, mod_bc, v_bc, p_icms, v_icms, cst_pis, vbc_pis, p_pis, v_pis, "
+			+ "cst_cofins, vbc_cofins, p_cofins, v_cofins, cst_ipi, vbc_ipi, p_ipi, v_ipi";
+
+	private static final String INSERE_IMPOSTO = "insert into nota_fiscal_item_imposto (" + COLUNAS_IMPOSTO
+			+ ") values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String ATUALIZA_IMPOSTO = "update nota_fiscal_item_imposto set orig = ?, cst = ?, mod_bc = ?, v_bc = ?, "
+			+ "p_icms = ?, v_icms = ?, cst_pis = ?, vbc_pis = ?, p_pis = ?, v_pis = ?, cst_cofins = ?, vbc_cofins = ?, "
+			+ "p_cofins = ?, v_cofins = ?, cst_ipi = ?, vbc_ipi = ?, p_ipi = ?, v_ipi = ? where codigo = ?";
+
+	private static final String INSERE_ITEM = "insert into nota_fiscal_item (cod_prod, qtd, vl_total, unidade_tribu, qtd_tribu, "
+			+ "vl_uni_tribu, cfop, nota_fiscal_codigo, imposto_codigo) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String ATUALIZA_ITEM = "update nota_fiscal_item set cod_prod = ?, qtd = ?, vl_total = ?, unidade_tribu = ?, "
+			+ "qtd_tribu = ?, vl_uni_tribu = ?, cfop = ? where codigo = ?";
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Override
+	public void insereEmLote(List<NotaFiscalItem> itens) {
+		if (itens.isEmpty())
+			return;
+
+		// os itens referenciam os impostos, que são gravados primeiro para pegar os códigos gerados
+		jdbc.execute((ConnectionCallback<Void>) conexao -> {
+			try (PreparedStatement ps = conexao.prepareStatement(INSERE_IMPOSTO, Statement.RETURN_GENERATED_KEYS)) {
+				for (NotaFiscalItem item : itens) {
+					preencheImposto(ps, item.getImpostos());
+					ps.addBatch();
+				}
+
+				ps.executeBatch();
+
+				try (ResultSet codigos = ps.getGeneratedKeys()) {
+					for (NotaFiscalItem item : itens) {
+						if (!codigos.next())
+							throw new SQLException("Código do imposto não retornado no lote");
+
+						item.getImpostos().setCodigo(codigos.getLong(1));
+					}
+				}
+			}
+
+			return null;
+		});
+
+		List<Object[]> parametros = new ArrayList<>(itens.size());
+
+		for (NotaFiscalItem item : itens)
+			parametros.add(new Object[] { item.getCodProd(), item.getQtd(), item.getVlTotal(), item.getUnidade_tribu(),
+					item.getQtd_tribu(), item.getV_uniTribu(), item.getCfop(), item.getNotaFiscal().getCodigo(),
+					item.getImpostos().getCodigo() });
+
+		jdbc.batchUpdate(INSERE_ITEM, parametros);
+	}
+
+	@Override
+	public void atualizaEmLote(List<NotaFiscalItem> itens) {
+		if (itens.isEmpty())
+			return;
+
+		List<Object[]> impostos = new ArrayList<>(itens.size());
+		List<Object[]> parametros = new ArrayList<>(itens.size());
+
+		for (NotaFiscalItem item : itens) {
+			Object[] imposto = valores(item.getImpostos());
+			Object[] comCodigo = Arrays.copyOf(imposto, imposto.length + 1);
+			comCodigo[imposto.length] = item.getImpostos().getCodigo();
+			impostos.add(comCodigo);
+
+			parametros.add(new Object[] { item.getCodProd(), item.getQtd(), item.getVlTotal(), item.getUnidade_tribu(),
+					item.getQtd_tribu(), item.getV_uniTribu(), item.getCfop(), item.getCodigo() });
+		}
+
+		jdbc.batchUpdate(ATUALIZA_IMPOSTO, impostos);
+		jdbc.batchUpdate(ATUALIZA_ITEM, parametros);
+	}
+
+	private void preencheImposto(PreparedStatement ps, NotaFiscalItemImposto imposto) throws SQLException {
+		Object[] valores = valores(imposto);
+
+		for (int i = 0; i < valores.length; i++)
+			ps.setObject(i + 1, valores[i]);
+	}
+
+	private Object[] valores(NotaFiscalItemImposto imposto) {
+		return new Object[] { imposto.getOrig(), imposto.getCst(), imposto.getMod_bc(), imposto.getV_bc(),
+				imposto.getP_icms(), imposto.getV_icms(), imposto.getCst_pis(), imposto.getVbc_pis(), imposto.getP_pis(),
+				imposto.getV_pis(), imposto.getCst_cofins(), imposto.getVbc_cofins(), imposto.getP_cofins(),
+				imposto.getV_cofins(), imposto.getCst_ipi(), imposto.getVbc_ipi(), imposto.getP_ipi(),
+				imposto.getV_ipi() };
+	}
+
+}
@@ -0,0 +1,29 @@
+package net.originmobi.pdv.repository.notafiscal;
+
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import net.originmobi.pdv.model.NotaFiscalNumeracao;
+
+public interface NotaFiscalNumeracaoRepository extends JpaRepository<NotaFiscalNumeracao, Integer> {
+
+	/*
+	 * Cria a numeração da série, continuando das notas já cadastradas, caso ainda
+	 * não exista
+	 */
+	@Modifying
+	@Query(value = "insert ignore into nota_fiscal_numeracao (serie, proximo) select ?1, coalesce(max(numero), 0) + 1 "
+			+ "from nota_fiscal where serie = ?1", nativeQuery = true)
+	int inicia(int serie);
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select n from NotaFiscalNumeracao n where n.serie = ?1")
+	Optional<NotaFiscalNumeracao> bloqueia(int serie);
+
+}
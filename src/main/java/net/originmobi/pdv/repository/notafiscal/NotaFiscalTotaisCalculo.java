@@ -0,0 +1,18 @@
+package net.originmobi.pdv.repository.notafiscal;
+
+/*
+ * Valores dos itens de uma nota que compõem os totais
+ */
+public interface NotaFiscalTotaisCalculo {
+
+	Double getProdutos();
+
+	Double getIcms();
+
+	Double getPis();
+
+	Double getCofins();
+
+	Double getIpi();
+
+}
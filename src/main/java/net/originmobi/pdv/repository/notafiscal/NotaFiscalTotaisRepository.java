@@ -1,17 +1,40 @@
 package net.originmobi.pdv.repository.notafiscal;
 
+import javax.transaction.Transactional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import net.originmobi.pdv.model.NotaFiscalTotais;
 
 public interface NotaFiscalTotaisRepository extends JpaRepository<NotaFiscalTotais, Long> {
 
-	@Query(value = "select coalesce(sum(nfi.vl_total), 0) total, coalesce(sum(nfii.v_icms), 0) icms, coalesce(sum(nfii.v_pis), 0) pis, "
+	@Query(value = "select coalesce(sum(nfi.vl_total), 0) produtos, coalesce(sum(nfii.v_icms), 0) icms, coalesce(sum(nfii.v_pis), 0) pis, "
 			+ "coalesce(sum(nfii.v_cofins), 0) cofins, coalesce(sum(nfii.v_ipi), 0) ipi "
 			+ "from	nota_fiscal_item nfi, nota_fiscal_item_imposto nfii "
 			+ "where nfii.codigo = nfi.imposto_codigo "
 			+ "and nfi.nota_fiscal_codigo = ?1", nativeQuery = true)
-	String calcula(Long codNota);
+	NotaFiscalTotaisCalculo calcula(Long codNota);
+
+	@Query(value = "select v_prod produtos, v_icms icms, v_pis pis, v_cofins cofins, v_ipi ipi "
+			+ "from nota_fiscal_totais where codigo = ?1", nativeQuery = true)
+	NotaFiscalTotaisCalculo buscaValores(Long codigo);
+
+	@Transactional
+	@Modifying
+	@Query(value = "update nota_fiscal_totais set v_bc = v_bc + :produtos, v_prod = v_prod + :produtos, v_icms = v_icms + :icms, "
+			+ "v_pis = v_pis + :pis, v_cofins = v_cofins + :cofins, v_ipi = v_ipi + :ipi, v_nf = v_nf + :produtos + :ipi "
+			+ "where codigo = :codigo", nativeQuery = true)
+	int soma(@Param("codigo") Long codigo, @Param("produtos") double produtos, @Param("icms") double icms,
+			@Param("pis") double pis, @Param("cofins") double cofins, @Param("ipi") double ipi);
+
+	@Transactional
+	@Modifying
+	@Query(value = "update nota_fiscal_totais set v_bc = :produtos, v_prod = :produtos, v_icms = :icms, v_pis = :pis, "
+			+ "v_cofins = :cofins, v_ipi = :ipi, v_nf = :produtos + :ipi where codigo = :codigo", nativeQuery = true)
+	int define(@Param("codigo") Long codigo, @Param("produtos") double produtos, @Param("icms") double icms,
+			@Param("pis") double pis, @Param("cofins") double cofins, @Param("ipi") double ipi);
 
 }
@@ -0,0 +1,16 @@
+package net.originmobi.pdv.repository.notafiscal;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import net.originmobi.pdv.model.NotaFiscalXml;
+
+public interface NotaFiscalXmlRepository extends JpaRepository<NotaFiscalXml, String> {
+
+	@Query("select x from NotaFiscalXml x where x.data_cadastro >= ?1 and x.data_cadastro < ?2 order by x.data_cadastro")
+	List<NotaFiscalXml> buscaPorPeriodo(Timestamp inicio, Timestamp fim);
+
+}
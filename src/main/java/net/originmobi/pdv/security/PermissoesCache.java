@@ -0,0 +1,63 @@
+package net.originmobi.pdv.security;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import net.originmobi.pdv.model.GrupoUsuario;
+import net.originmobi.pdv.repository.PermissoesRespository;
+import net.originmobi.pdv.utilitarios.CacheCarregado;
+
+/**
+ * Cache das permissões de cada grupo de usuário.
+ *
+ * Todas as permissões de todos os grupos são carregadas em uma única consulta
+ * e mantidas em memória até que algum grupo ou permissão de grupo seja
+ * alterado, assim o login não consulta as permissões de cada grupo.
+ */
+@Component
+public class PermissoesCache {
+
+	@Autowired
+	private PermissoesRespository permissoes;
+
+	private final CacheCarregado<Map<Long, Set<GrantedAuthority>>> grupos = new CacheCarregado<>(this::carrega);
+
+	public Collection<GrantedAuthority> authorities(List<GrupoUsuario> gruposUsuario) {
+		Map<Long, Set<GrantedAuthority>> atual = grupos.get();
+		Set<GrantedAuthority> auths = new HashSet<>();
+
+		for (GrupoUsuario grupo : gruposUsuario)
+			auths.addAll(atual.getOrDefault(grupo.getCodigo(), Collections.emptySet()));
+
+		return auths;
+	}
+
+	/*
+	 * Descarta o cache, deve ser chamado sempre que um grupo ou as permissões de
+	 * um grupo forem alteradas
+	 */
+	public void invalida() {
+		grupos.invalida();
+	}
+
+	private Map<Long, Set<GrantedAuthority>> carrega() {
+		Map<Long, Set<GrantedAuthority>> novo = new HashMap<>();
+
+		for (Object[] linha : permissoes.listaPermissoesPorGrupo())
+			novo.computeIfAbsent(((Number) linha[0]).longValue(), codigo -> new HashSet<>())
+					.add(new SimpleGrantedAuthority("ROLE_" + linha[1]));
+
+		return novo;
+	}
+
+}
@@ -20,8 +20,12 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter{
 		http.csrf().disable()
 			.authorizeRequests()
 			.antMatchers("/resources/**", "/css/**", "/js/**", "/fonts/**", "/webjars/**").permitAll()
+			// métricas para o coletor do Prometheus, servidas apenas na porta de gerenciamento
+			// (management.server.port), que só aceita conexões de 127.0.0.1
+			.antMatchers("/actuator/health", "/actuator/prometheus").permitAll()
 			
 			.antMatchers("/").hasRole("ENTRAR_NO_SISTEMA")
+			.antMatchers("/dashboard/eventos").hasRole("ENTRAR_NO_SISTEMA")
 			.antMatchers("/pessoa").hasRole("VISUALIZAR_PESSOA")
 			.antMatchers("/pessoa/form").hasRole("EDITAR_PESSOA")
 			.antMatchers("/fornecedor").hasRole("VISUALIZAR_FORNECEDOR")
@@ -0,0 +1,55 @@
+package net.originmobi.pdv.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import net.originmobi.pdv.model.Usuario;
+import net.originmobi.pdv.repository.UsuarioRepository;
+
+/**
+ * Usuário autenticado da requisição corrente.
+ *
+ * Os dados vêm do principal (UsuarioSistema) guardado no SecurityContext da
+ * requisição, que já traz o código do usuário resolvido no login, assim as
+ * operações não precisam consultar o usuário no banco e cada terminal enxerga
+ * o seu próprio usuário.
+ */
+@Component
+public class UsuarioAtual {
+
+	@Autowired
+	private UsuarioRepository usuarios;
+
+	public String getUser() {
+		return autenticacao().getName();
+	}
+
+	public Long getCodigo() {
+		Object principal = autenticacao().getPrincipal();
+
+		if (!(principal instanceof UsuarioSistema))
+			throw new RuntimeException("Usuário não autenticado");
+
+		return ((UsuarioSistema) principal).getCodigo();
+	}
+
+	/*
+	 * Referência ao usuário atual, usada para vincular o usuário às operações
+	 * sem realizar consulta no banco
+	 */
+	public Usuario getUsuario() {
+		return usuarios.getOne(getCodigo());
+	}
+
+	private Authentication autenticacao() {
+		Authentication autenticacao = SecurityContextHolder.getContext().getAuthentication();
+
+		if (autenticacao == null)
+			throw new RuntimeException("Usuário não autenticado");
+
+		return autenticacao;
+	}
+
+}
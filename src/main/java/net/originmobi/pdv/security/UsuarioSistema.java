@@ -10,15 +10,22 @@ public class UsuarioSistema extends User implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 
+	private Long codigo;
+
 	private String nome;
 
-	public UsuarioSistema(String nome, String username, String password,
+	public UsuarioSistema(Long codigo, String nome, String username, String password,
 			Collection<? extends GrantedAuthority> authorities) {
 		super(username, password, authorities);
 
+		this.codigo = codigo;
 		this.nome = nome;
 	}
 
+	public Long getCodigo() {
+		return codigo;
+	}
+
 	public String getNome() {
 		return nome;
 	}
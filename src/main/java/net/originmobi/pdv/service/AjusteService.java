@@ -16,7 +16,7 @@ import net.originmobi.pdv.enumerado.ajuste.AjusteStatus;
 import net.originmobi.pdv.filter.AjusteFilter;
 import net.originmobi.pdv.model.Ajuste;
 import net.originmobi.pdv.repository.AjusteRepository;
-import net.originmobi.pdv.singleton.Aplicacao;
+import net.originmobi.pdv.security.UsuarioAtual;
 
 @Service
 public class AjusteService {
@@ -27,6 +27,9 @@ public class AjusteService {
 	@Autowired
 	private ProdutoService produtos;
 
+	@Autowired
+	private UsuarioAtual usuarioAtual;
+
 	LocalDate dataAtual;
 
 	public Page<Ajuste> lista(Pageable pageable, AjusteFilter filter) {
@@ -42,9 +45,7 @@ public class AjusteService {
 
 	public Long novo() {
 		dataAtual = LocalDate.now();
-		Aplicacao aplicacao = Aplicacao.getInstancia();
-
-		Ajuste ajuste = new Ajuste(AjusteStatus.APROCESSAR, aplicacao.getUsuarioAtual(), Date.valueOf(dataAtual));
+		Ajuste ajuste = new Ajuste(AjusteStatus.APROCESSAR, usuarioAtual.getUser(), Date.valueOf(dataAtual));
 		return ajustes.save(ajuste).getCodigo();
 	}
 
@@ -24,6 +24,9 @@ public class CaixaLancamentoService {
 	@Autowired
 	UsuarioService usuarios;
 
+	@Autowired
+	private CaixaRazaoService razao;
+
 	private Timestamp dataHoraAtual;
 
 	public CaixaLancamentoService() {
@@ -44,7 +47,7 @@ public class CaixaLancamentoService {
 			// se for realizar uma saida de caixa, verifica se tem saldo
 			// suficiente para isso
 			if (lancamento.getEstilo().equals(EstiloLancamento.SAIDA)) {
-				Optional<Double> vlTotalCaixa = lancamento.getCaixa().map(Caixa::getValor_total);
+				Optional<Double> vlTotalCaixa = lancamento.getCaixa().map(razao::saldo);
 				
 				if (lancamento.getValor() > vlTotalCaixa.get()) {
 					return "Saldo insuficiente para realizar esta operação";
@@ -75,8 +78,15 @@ public class CaixaLancamentoService {
 			throw new RuntimeException();
 		}
 
+		// no modo razão o trigger não atualiza o caixa, o valor fica pendente até a
+		// conciliação
+		lancamento.setConciliado(!razao.isAtivo());
+
 		try {
 			caixaLancamento.save(lancamento);
+
+			if (razao.isAtivo())
+				razao.registra(lancamento);
 		} catch (Exception e) {
 			e.getMessage();
 			throw new RuntimeException("Erro ao realizar lançamento, chame o suporte");
@@ -0,0 +1,123 @@
+package net.originmobi.pdv.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.originmobi.pdv.model.Caixa;
+import net.originmobi.pdv.model.CaixaLancamento;
+import net.originmobi.pdv.repository.CaixaLancamentoRepository;
+
+/**
+ * Livro razão dos caixas (pdv.caixa.razao.ativo).
+ *
+ * No modo razão os lançamentos são apenas inseridos, sem que o trigger
+ * atualize a linha do caixa, assim terminais lançando no mesmo caixa ou banco
+ * não disputam o bloqueio dessa linha. Os valores ainda não conciliados ficam
+ * em acumuladores em memória (DoubleAdder, particionados entre threads) e são
+ * somados ao caixa periodicamente, em lote, pela conciliação.
+ *
+ * O saldo do caixa é o valor_total gravado mais o valor pendente em memória.
+ * Os acumuladores pressupõem uma única instância da aplicação gravando os
+ * lançamentos.
+ */
+@Service
+public class CaixaRazaoService {
+
+	@Value("${pdv.caixa.razao.ativo:false}")
+	private boolean ativo;
+
+	@Autowired
+	private CaixaLancamentoRepository lancamentos;
+
+	private final Map<Long, Acumulador> pendentes = new ConcurrentHashMap<>();
+
+	/*
+	 * Concilia os lançamentos que ficaram pendentes na última execução antes que
+	 * a aplicação comece a receber lançamentos
+	 */
+	@PostConstruct
+	public void inicia() {
+		if (ativo)
+			lancamentos.conciliaPendentes();
+	}
+
+	public boolean isAtivo() {
+		return ativo;
+	}
+
+	/*
+	 * Registra o valor do lançamento nos acumuladores do caixa após o commit da
+	 * transação em que ele foi gravado
+	 */
+	public void registra(CaixaLancamento lancamento) {
+		Long caixa = lancamento.getCaixa().map(Caixa::getCodigo).get();
+		boolean entrada = lancamento.isEntrada();
+		double valor = lancamento.getValor();
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					acumula(caixa, entrada, valor);
+				}
+			});
+		} else {
+			acumula(caixa, entrada, valor);
+		}
+	}
+
+	public double pendente(Long caixa) {
+		Acumulador acumulador = pendentes.get(caixa);
+		return acumulador == null ? 0.0 : acumulador.entrada.sum() + acumulador.saida.sum();
+	}
+
+	public double saldo(Caixa caixa) {
+		double total = caixa.getValor_total() == null ? 0.0 : caixa.getValor_total();
+		return ativo ? total + pendente(caixa.getCodigo()) : total;
+	}
+
+	/*
+	 * Soma os lançamentos pendentes aos totais dos caixas e desconta dos
+	 * acumuladores o que foi conciliado
+	 */
+	@Scheduled(fixedDelayString = "${pdv.caixa.razao.intervalo:5000}")
+	public synchronized void concilia() {
+		if (!ativo)
+			return;
+
+		try {
+			for (Map.Entry<Long, double[]> conciliado : lancamentos.conciliaPendentes().entrySet()) {
+				Acumulador acumulador = pendentes.computeIfAbsent(conciliado.getKey(), codigo -> new Acumulador());
+				acumulador.entrada.add(-conciliado.getValue()[0]);
+				acumulador.saida.add(-conciliado.getValue()[1]);
+			}
+		} catch (Exception e) {
+			System.out.println("Erro ao conciliar lançamentos de caixa: " + e);
+		}
+	}
+
+	private void acumula(Long caixa, boolean entrada, double valor) {
+		Acumulador acumulador = pendentes.computeIfAbsent(caixa, codigo -> new Acumulador());
+
+		if (entrada)
+			acumulador.entrada.add(valor);
+		else
+			acumulador.saida.add(valor);
+	}
+
+	private static class Acumulador {
+		private final DoubleAdder entrada = new DoubleAdder();
+		private final DoubleAdder saida = new DoubleAdder();
+	}
+
+}
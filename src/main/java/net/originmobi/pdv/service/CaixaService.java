@@ -21,13 +21,12 @@ import net.originmobi.pdv.model.Caixa;
 import net.originmobi.pdv.model.CaixaLancamento;
 import net.originmobi.pdv.model.Usuario;
 import net.originmobi.pdv.repository.CaixaRepository;
-import net.originmobi.pdv.singleton.Aplicacao;
+import net.originmobi.pdv.security.UsuarioAtual;
 
 @Service
 public class CaixaService {
 
 	private String descricao;
-	private Usuario usuario;
 
 	@Autowired
 	private CaixaRepository caixas;
@@ -35,9 +34,15 @@ public class CaixaService {
 	@Autowired
 	private UsuarioService usuarios;
 
+	@Autowired
+	private UsuarioAtual usuarioAtual;
+
 	@Autowired
 	private CaixaLancamentoService lancamentos;
 
+	@Autowired
+	private CaixaRazaoService razao;
+
 	@Transactional(readOnly = false, propagation = Propagation.REQUIRED)
 	public Long cadastro(Caixa caixa) {
 
@@ -52,8 +57,7 @@ public class CaixaService {
 		if (caixa.getValor_abertura() < 0)
 			throw new RuntimeException("Valor informado é inválido");
 
-		Aplicacao aplicacao = Aplicacao.getInstancia();
-		usuario = usuarios.buscaUsuario(aplicacao.getUsuarioAtual());
+		Usuario usuario = usuarioAtual.getUsuario();
 
 		if (caixa.getTipo().equals(CaixaTipo.CAIXA))
 			descricao = caixa.getDescricao().isEmpty() ? "Caixa diário" : caixa.getDescricao();
@@ -109,8 +113,8 @@ public class CaixaService {
 
 	public String fechaCaixa(Long caixa, String senha) {
 
-		Aplicacao aplicacao = Aplicacao.getInstancia();
-		Usuario usuario = usuarios.buscaUsuario(aplicacao.getUsuarioAtual());
+		// a senha não fica no principal autenticado, por isso o usuário é carregado
+		Usuario usuario = usuarios.buscaUsuario(usuarioAtual.getUser());
 
 		BCryptPasswordEncoder decode = new BCryptPasswordEncoder();
 
@@ -119,6 +123,11 @@ public class CaixaService {
 
 		if (decode.matches(senha, usuario.getSenha())) {
 
+			// no modo razão os lançamentos pendentes são somados ao caixa antes do
+			// fechamento
+			if (razao.isAtivo())
+				razao.concilia();
+
 			// busca caixa atual
 			Optional<Caixa> caixaAtual = caixas.findById(caixa);
 
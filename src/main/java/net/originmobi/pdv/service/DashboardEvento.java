@@ -0,0 +1,49 @@
+package net.originmobi.pdv.service;
+
+/*
+ * Alteração em um dos contadores do dashboard, publicada pelos serviços e
+ * aplicada pelo DashboardService depois do commit da transação
+ */
+public class DashboardEvento {
+
+	public enum Contador {
+		VENDAS_ABERTAS, NOTAS_EMITIDAS, FINANCEIRO
+	}
+
+	private final Contador contador;
+	private final long diferenca;
+
+	public DashboardEvento(Contador contador, long diferenca) {
+		this.contador = contador;
+		this.diferenca = diferenca;
+	}
+
+	public static DashboardEvento vendaAberta() {
+		return new DashboardEvento(Contador.VENDAS_ABERTAS, 1);
+	}
+
+	public static DashboardEvento vendaFechada() {
+		return new DashboardEvento(Contador.VENDAS_ABERTAS, -1);
+	}
+
+	public static DashboardEvento notaCadastrada() {
+		return new DashboardEvento(Contador.NOTAS_EMITIDAS, 1);
+	}
+
+	/*
+	 * Valores a receber ou a pagar alterados, já atualizados pelo
+	 * PosicaoVencimentosService
+	 */
+	public static DashboardEvento financeiro() {
+		return new DashboardEvento(Contador.FINANCEIRO, 0);
+	}
+
+	public Contador getContador() {
+		return contador;
+	}
+
+	public long getDiferenca() {
+		return diferenca;
+	}
+
+}
@@ -0,0 +1,58 @@
+package net.originmobi.pdv.service;
+
+import java.math.BigDecimal;
+
+/*
+ * Valores exibidos no dashboard em um determinado momento
+ */
+public class DashboardResumo {
+
+	private final long pedidosAberto;
+	private final String totalReceber;
+	private final BigDecimal vencidoReceber;
+	private final String totalPagar;
+	private final BigDecimal vencidoPagar;
+	private final long notasEmitidas;
+
+	DashboardResumo(long pedidosAberto, String totalReceber, BigDecimal vencidoReceber, String totalPagar,
+			BigDecimal vencidoPagar, long notasEmitidas) {
+		this.pedidosAberto = pedidosAberto;
+		this.totalReceber = totalReceber;
+		this.vencidoReceber = vencidoReceber;
+		this.totalPagar = totalPagar;
+		this.vencidoPagar = vencidoPagar;
+		this.notasEmitidas = notasEmitidas;
+	}
+
+	public long getPedidosAberto() {
+		return pedidosAberto;
+	}
+
+	public String getTotalReceber() {
+		return totalReceber;
+	}
+
+	public BigDecimal getVencidoReceber() {
+		return vencidoReceber;
+	}
+
+	public String getTotalPagar() {
+		return totalPagar;
+	}
+
+	public BigDecimal getVencidoPagar() {
+		return vencidoPagar;
+	}
+
+	public long getNotasEmitidas() {
+		return notasEmitidas;
+	}
+
+	boolean igual(DashboardResumo outro) {
+		return outro != null && pedidosAberto == outro.pedidosAberto && notasEmitidas == outro.notasEmitidas
+				&& totalReceber.equals(outro.totalReceber) && totalPagar.equals(outro.totalPagar)
+				&& vencidoReceber.compareTo(outro.vencidoReceber) == 0
+				&& vencidoPagar.compareTo(outro.vencidoPagar) == 0;
+	}
+
+}
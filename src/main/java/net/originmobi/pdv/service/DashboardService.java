@@ -0,0 +1,189 @@
+package net.originmobi.pdv.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import net.originmobi.pdv.repository.VendaRepository;
+import net.originmobi.pdv.repository.notafiscal.NotaFiscalRepository;
+
+/**
+ * Contadores do dashboard mantidos em memória.
+ *
+ * As vendas em aberto e as notas cadastradas são contadas no banco uma vez e
+ * depois atualizadas pelos DashboardEvento publicados pelos serviços, após o
+ * commit; os valores a receber e a pagar vêm do PosicaoVencimentosService. Os
+ * contadores são conferidos com o banco a cada pdv.dashboard.reconcilia ms.
+ *
+ * Os dashboards abertos recebem o resumo atualizado por SSE sempre que algum
+ * valor muda, sem precisar recarregar a página. O envio é feito por uma thread
+ * própria, fora da transação que publicou o evento, e alterações seguidas são
+ * enviadas juntas em um único resumo.
+ */
+@Service
+public class DashboardService {
+
+	private static final long NAO_CARREGADO = -1;
+
+	@Value("${pdv.dashboard.sse.timeout:1800000}")
+	private long timeout;
+
+	@Autowired
+	private VendaRepository vendas;
+
+	@Autowired
+	private NotaFiscalRepository notas;
+
+	@Autowired
+	private PosicaoVencimentosService vencimentos;
+
+	private final AtomicLong vendasAbertas = new AtomicLong(NAO_CARREGADO);
+
+	private final AtomicLong notasEmitidas = new AtomicLong(NAO_CARREGADO);
+
+	private final List<SseEmitter> inscritos = new CopyOnWriteArrayList<>();
+
+	private volatile DashboardResumo enviado;
+
+	private final AtomicBoolean envioPendente = new AtomicBoolean();
+
+	private ThreadPoolExecutor executor;
+
+	@PostConstruct
+	public void inicia() {
+		// no máximo um envio aguardando, os demais eventos são incluídos nele
+		executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+				new ThreadPoolExecutor.DiscardPolicy());
+	}
+
+	@PreDestroy
+	public void encerra() {
+		executor.shutdownNow();
+	}
+
+	public DashboardResumo resumo() {
+		PosicaoVencimentos receber = vencimentos.receber();
+		PosicaoVencimentos pagar = vencimentos.pagar();
+
+		return new DashboardResumo(contador(vendasAbertas), vencimentos.totalReceber(), receber.getVencido(),
+				vencimentos.totalPagar(), pagar.getVencido(), contador(notasEmitidas));
+	}
+
+	/*
+	 * Aplica a alteração nos contadores e agenda o envio do resumo aos dashboards
+	 * abertos
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void atualiza(DashboardEvento evento) {
+		switch (evento.getContador()) {
+		case VENDAS_ABERTAS:
+			soma(vendasAbertas, evento.getDiferenca());
+			break;
+		case NOTAS_EMITIDAS:
+			soma(notasEmitidas, evento.getDiferenca());
+			break;
+		default:
+			break;
+		}
+
+		agendaEnvio();
+	}
+
+	/*
+	 * Confere os contadores com o banco, corrigindo diferenças de alterações
+	 * feitas fora do sistema
+	 */
+	@Scheduled(fixedDelayString = "${pdv.dashboard.reconcilia:300000}")
+	public void reconcilia() {
+		vendasAbertas.set(vendas.qtdVendasEmAberto());
+		notasEmitidas.set(notas.totalNotaFiscalEmitidas());
+
+		agendaEnvio();
+	}
+
+	/*
+	 * Inscreve um dashboard para receber o resumo sempre que ele mudar, o resumo
+	 * atual é enviado em seguida
+	 */
+	public SseEmitter inscreve() {
+		SseEmitter emitter = new SseEmitter(timeout);
+
+		emitter.onCompletion(() -> inscritos.remove(emitter));
+		emitter.onTimeout(() -> inscritos.remove(emitter));
+		inscritos.add(emitter);
+
+		envia(emitter, resumo());
+
+		return emitter;
+	}
+
+	private void agendaEnvio() {
+		if (inscritos.isEmpty() || !envioPendente.compareAndSet(false, true))
+			return;
+
+		executor.execute(() -> {
+			envioPendente.set(false);
+			envia();
+		});
+	}
+
+	private void envia() {
+		if (inscritos.isEmpty())
+			return;
+
+		DashboardResumo resumo = resumo();
+
+		if (resumo.igual(enviado))
+			return;
+
+		enviado = resumo;
+
+		for (SseEmitter emitter : inscritos)
+			envia(emitter, resumo);
+	}
+
+	private void envia(SseEmitter emitter, DashboardResumo resumo) {
+		try {
+			emitter.send(SseEmitter.event().name("resumo").data(resumo, MediaType.APPLICATION_JSON));
+		} catch (IOException | IllegalStateException e) {
+			// dashboard fechado
+			inscritos.remove(emitter);
+		}
+	}
+
+	private long contador(AtomicLong contador) {
+		if (contador.get() == NAO_CARREGADO) {
+			synchronized (this) {
+				if (vendasAbertas.get() == NAO_CARREGADO || notasEmitidas.get() == NAO_CARREGADO)
+					reconcilia();
+			}
+		}
+
+		return contador.get();
+	}
+
+	/*
+	 * Antes da primeira contagem não há o que somar, a contagem já inclui a
+	 * alteração
+	 */
+	private void soma(AtomicLong contador, long diferenca) {
+		contador.updateAndGet(atual -> atual == NAO_CARREGADO ? atual : atual + diferenca);
+	}
+
+}
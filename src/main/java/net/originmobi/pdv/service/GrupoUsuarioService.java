@@ -9,6 +9,7 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import net.originmobi.pdv.model.GrupoUsuario;
 import net.originmobi.pdv.model.Usuario;
 import net.originmobi.pdv.repository.GrupoUsuarioRepository;
+import net.originmobi.pdv.security.PermissoesCache;
 
 @Service
 public class GrupoUsuarioService {
@@ -16,6 +17,9 @@ public class GrupoUsuarioService {
 	@Autowired
 	private GrupoUsuarioRepository grupousuarios;
 
+	@Autowired
+	private PermissoesCache permissoesCache;
+
 	public List<GrupoUsuario> buscaGrupos(Usuario usuario) {
 		return grupousuarios.findByUsuarioIn(usuario);
 	}
@@ -43,6 +47,8 @@ public class GrupoUsuarioService {
 			grupousuarios.update(grupoUsuario.getNome(), grupoUsuario.getDescricao(), grupoUsuario.getCodigo());
 		}
 
+		permissoesCache.invalida();
+
 	}
 
 	public String remove(Long codigo, RedirectAttributes attributes) {
@@ -56,6 +62,7 @@ public class GrupoUsuarioService {
 
 		try {
 			grupousuarios.deleteById(codigo);
+			permissoesCache.invalida();
 		} catch (Exception e) {
 			System.out.println(e);
 		}
@@ -72,6 +79,7 @@ public class GrupoUsuarioService {
 
 		try {
 			grupousuarios.addPermissao(codgrupo, codpermissao);
+			permissoesCache.invalida();
 		} catch (Exception e) {
 			System.out.println(e);
 			throw new RuntimeException("Erro ao tentar adicionar permissão, chame o suporte");
@@ -83,6 +91,7 @@ public class GrupoUsuarioService {
 	public String removePermissao(Long codigo, Long codgrupo) {
 		try {
 			grupousuarios.removePermissao(codigo, codgrupo);
+			permissoesCache.invalida();
 		} catch (Exception e) {
 			throw new RuntimeException("Erro ao tentar remover permissão, chame o suporte");
 		}
@@ -2,10 +2,11 @@ package net.originmobi.pdv.service;
 
 import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
@@ -20,6 +21,9 @@ public class PagarParcelaService {
 	@Autowired
 	private PagarParcelaRespository parcelas;
 
+	@Autowired
+	private PosicaoVencimentosService vencimentos;
+
 	public void cadastrar(Double vltotal, Double vlrestante, int quitado, Timestamp cadastro, LocalDate vencimento,
 			Pagar pagar) {
 		try {
@@ -28,17 +32,64 @@ public class PagarParcelaService {
 			e.getStackTrace();
 			throw new RuntimeException();
 		}
+
+		if (quitado == 0)
+			vencimentos.somaPagar(pagar.getFornecedor().getCodigo(), vencimento, vlrestante);
 	}
 
 	public PagarParcela merger(PagarParcela parcela) {
 		return parcelas.save(parcela);
 	}
 
-	public Page<PagarParcela> lista(PagarParcelaFilter filter, Pageable pageable) {
-		if (filter.getNome() == null || filter.getNome().equals(""))
-			return parcelas.listaOrdenada(pageable);
+	/*
+	 * Lista as parcelas paginando por chave: sem filtro as parcelas em aberto
+	 * por (vencimento, código), filtrando pelo fornecedor todas as parcelas por
+	 * (quitado, código). depois e antes são os tokens da página seguinte e da
+	 * anterior, o total só é contado quando contar for verdadeiro
+	 */
+	public PaginaCursor<PagarParcela> lista(PagarParcelaFilter filter, String depois, String antes, boolean contar,
+			Pageable pageable) {
+		depois = PaginaCursor.token(depois);
+		antes = PaginaCursor.token(antes);
+
+		int tamanho = pageable.getPageSize();
+		Pageable limite = PageRequest.of(0, tamanho + 1);
+		List<PagarParcela> linhas;
+		Long total = null;
+
+		if (filter.getNome() == null || filter.getNome().equals("")) {
+			if (antes != null)
+				linhas = PaginaCursor.decodifica(antes, 2, chave -> parcelas
+						.listaAbertasAntes(LocalDate.parse(chave[0]), Long.valueOf(chave[1]), limite));
+			else if (depois != null)
+				linhas = PaginaCursor.decodifica(depois, 2, chave -> parcelas
+						.listaAbertasDepois(LocalDate.parse(chave[0]), Long.valueOf(chave[1]), limite));
+			else
+				linhas = parcelas.listaAbertas(limite);
+
+			if (contar)
+				total = parcelas.totalAbertas();
+
+			return PaginaCursor.de(linhas, tamanho, depois, antes,
+					parcela -> PaginaCursor.codifica(parcela.getData_vencimento(), parcela.getCodigo()), total);
+		}
+
+		String nome = filter.getNome();
+
+		if (antes != null)
+			linhas = PaginaCursor.decodifica(antes, 2, chave -> parcelas.listaPorNomeAntes(nome,
+					Integer.parseInt(chave[0]), Long.valueOf(chave[1]), limite));
+		else if (depois != null)
+			linhas = PaginaCursor.decodifica(depois, 2, chave -> parcelas.listaPorNomeDepois(nome,
+					Integer.parseInt(chave[0]), Long.valueOf(chave[1]), limite));
 		else
-			return parcelas.listaOrdenada(filter.getNome(), pageable);
+			linhas = parcelas.listaPorNomeDepois(nome, -1, 0L, limite);
+
+		if (contar)
+			total = parcelas.totalPorNome(nome);
+
+		return PaginaCursor.de(linhas, tamanho, depois, antes,
+				parcela -> PaginaCursor.codifica(parcela.getQuitado(), parcela.getCodigo()), total);
 	}
 
 	public Optional<PagarParcela> busca(Long codigo) {
@@ -46,7 +97,16 @@ public class PagarParcelaService {
 	}
 
 	public String totalParagarAberto() {
-		return parcelas.valorDespesasAbertas();
+		return vencimentos.totalPagar();
+	}
+
+	/*
+	 * Soma ao saldo a pagar do fornecedor a diferença do valor restante da
+	 * parcela após um pagamento
+	 */
+	public void atualizaVencimentos(PagarParcela parcela, Double restanteAnterior) {
+		vencimentos.somaPagar(parcela.getPagar().getFornecedor().getCodigo(), parcela.getData_vencimento(),
+				parcela.getValor_restante() - restanteAnterior);
 	}
 
 }
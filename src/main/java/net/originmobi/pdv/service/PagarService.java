@@ -20,7 +20,7 @@ import net.originmobi.pdv.model.PagarParcela;
 import net.originmobi.pdv.model.PagarTipo;
 import net.originmobi.pdv.model.Usuario;
 import net.originmobi.pdv.repository.PagarRepository;
-import net.originmobi.pdv.singleton.Aplicacao;
+import net.originmobi.pdv.security.UsuarioAtual;
 import net.originmobi.pdv.utilitarios.DataAtual;
 
 @Service
@@ -39,11 +39,14 @@ public class PagarService {
 	private CaixaService caixas;
 
 	@Autowired
-	private UsuarioService usuarios;
+	private UsuarioAtual usuarioAtual;
 
 	@Autowired
 	private CaixaLancamentoService lancamentos;
 
+	@Autowired
+	private CaixaRazaoService razao;
+
 	public List<Pagar> listar() {
 		return pagarRepo.findAll();
 	}
@@ -87,6 +90,7 @@ public class PagarService {
 		if (vlPago > Double.valueOf(df.format(parcela.map(PagarParcela::getValor_restante).get()).replace(",", ".")))
 			throw new RuntimeException("Valor de pagamento inválido");
 
+		Double restanteAnterior = parcela.map(PagarParcela::getValor_restante).get();
 		Double vlquitado = (vlPago + vlacre) + parcela.map(PagarParcela::getValor_pago).get();
 		Double vlRestante = (parcela.map(PagarParcela::getValor_restante).get() - (vlPago + vldesc));
 		Double vlDesconto = parcela.map(PagarParcela::getValor_desconto).get() + vldesc;
@@ -112,12 +116,12 @@ public class PagarService {
 			throw new RuntimeException("Ocorreu um erro ao realizar o pagamento, chame o suporte");
 		}
 
-		Aplicacao aplicacao = Aplicacao.getInstancia();
+		pagarParcelaServ.atualizaVencimentos(parcela.get(), restanteAnterior);
 
-		Usuario usuario = usuarios.buscaUsuario(aplicacao.getUsuarioAtual());
+		Usuario usuario = usuarioAtual.getUsuario();
 		Optional<Caixa> caixa = caixas.busca(codCaixa);
 
-		if (vlPago + vlacre > caixa.map(Caixa::getValor_total).get())
+		if (vlPago + vlacre > caixa.map(razao::saldo).get())
 			throw new RuntimeException("Saldo insuficiente para realizar este pagamento");
 
 		try {
@@ -0,0 +1,120 @@
+package net.originmobi.pdv.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/*
+ * Página de uma listagem paginada por chave (keyset): em vez do número da
+ * página, a página seguinte e a anterior são buscadas a partir da chave do
+ * último e do primeiro registro, passadas nos tokens proximo e anterior. O
+ * total de registros só é contado quando solicitado
+ */
+public class PaginaCursor<T> {
+
+	private static final String SEPARADOR = "|";
+
+	private final List<T> conteudo;
+	private final String anterior;
+	private final String proximo;
+	private final Long total;
+
+	PaginaCursor(List<T> conteudo, String anterior, String proximo, Long total) {
+		this.conteudo = conteudo;
+		this.anterior = anterior;
+		this.proximo = proximo;
+		this.total = total;
+	}
+
+	/*
+	 * Monta a página a partir das linhas buscadas, as consultas trazem um
+	 * registro a mais que o tamanho da página para saber se existe outra
+	 * página na mesma direção. Ao voltar as linhas vêm em ordem inversa
+	 */
+	static <T> PaginaCursor<T> de(List<T> linhas, int tamanho, String depois, String antes,
+			Function<T, String> chave, Long total) {
+		boolean existeMais = linhas.size() > tamanho;
+		List<T> conteudo = new ArrayList<>(existeMais ? linhas.subList(0, tamanho) : linhas);
+
+		if (antes != null)
+			Collections.reverse(conteudo);
+
+		if (conteudo.isEmpty())
+			return new PaginaCursor<>(conteudo, null, null, total);
+
+		String primeiro = chave.apply(conteudo.get(0));
+		String ultimo = chave.apply(conteudo.get(conteudo.size() - 1));
+
+		if (antes != null)
+			return new PaginaCursor<>(conteudo, existeMais ? primeiro : null, ultimo, total);
+
+		return new PaginaCursor<>(conteudo, depois != null ? primeiro : null, existeMais ? ultimo : null, total);
+	}
+
+	/*
+	 * Links sem token chegam com o parâmetro vazio
+	 */
+	static String token(String valor) {
+		return valor == null || valor.isEmpty() ? null : valor;
+	}
+
+	static String codifica(Object... partes) {
+		StringBuilder chave = new StringBuilder();
+
+		for (Object parte : partes) {
+			if (chave.length() > 0)
+				chave.append(SEPARADOR);
+
+			chave.append(parte);
+		}
+
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(chave.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/*
+	 * Lê a chave do token, tokens alterados ou de outra listagem são recusados
+	 */
+	static <R> R decodifica(String token, int partes, Function<String[], R> leitura) {
+		try {
+			String[] chave = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+					.split("\\" + SEPARADOR);
+
+			if (chave.length != partes)
+				throw new IllegalArgumentException(token);
+
+			return leitura.apply(chave);
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			throw new RuntimeException("Página inválida, volte para a primeira página");
+		}
+	}
+
+	public List<T> getConteudo() {
+		return conteudo;
+	}
+
+	public String getAnterior() {
+		return anterior;
+	}
+
+	public String getProximo() {
+		return proximo;
+	}
+
+	public Long getTotal() {
+		return total;
+	}
+
+	public boolean hasPrevious() {
+		return anterior != null;
+	}
+
+	public boolean hasNext() {
+		return proximo != null;
+	}
+
+}
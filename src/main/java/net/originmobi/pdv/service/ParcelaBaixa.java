@@ -0,0 +1,63 @@
+package net.originmobi.pdv.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/*
+ * Parte de um recebimento destinada a uma parcela, com os valores que a
+ * parcela passa a ter depois da baixa
+ */
+public class ParcelaBaixa {
+
+	private final Long parcela;
+	private final Long pessoa;
+	private final LocalDate vencimento;
+	private final BigDecimal valor;
+	private final BigDecimal recebido;
+	private final BigDecimal restante;
+
+	ParcelaBaixa(Long parcela, Long pessoa, LocalDate vencimento, BigDecimal valor, BigDecimal recebido,
+			BigDecimal restante) {
+		this.parcela = parcela;
+		this.pessoa = pessoa;
+		this.vencimento = vencimento;
+		this.valor = valor;
+		this.recebido = recebido;
+		this.restante = restante;
+	}
+
+	public Long getParcela() {
+		return parcela;
+	}
+
+	public Long getPessoa() {
+		return pessoa;
+	}
+
+	public LocalDate getVencimento() {
+		return vencimento;
+	}
+
+	/*
+	 * Valor do recebimento destinado à parcela
+	 */
+	public BigDecimal getValor() {
+		return valor;
+	}
+
+	/*
+	 * Total recebido da parcela, incluindo recebimentos anteriores
+	 */
+	public BigDecimal getRecebido() {
+		return recebido;
+	}
+
+	public BigDecimal getRestante() {
+		return restante;
+	}
+
+	public int getQuitado() {
+		return restante.signum() <= 0 ? 1 : 0;
+	}
+
+}
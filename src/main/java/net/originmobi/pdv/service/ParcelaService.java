@@ -1,8 +1,12 @@
 package net.originmobi.pdv.service;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.Date;
 import java.sql.Timestamp;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +17,7 @@ import net.originmobi.pdv.filter.ClienteFilter;
 import net.originmobi.pdv.model.Parcela;
 import net.originmobi.pdv.model.Receber;
 import net.originmobi.pdv.repository.ParcelaRepository;
+import net.originmobi.pdv.repository.ParcelaSituacao;
 import net.originmobi.pdv.utilitarios.DataAtual;
 
 @Service
@@ -21,10 +26,16 @@ public class ParcelaService {
 	@Autowired
 	private ParcelaRepository parcelas;
 
+	@Autowired
+	private PosicaoVencimentosService vencimentos;
+
 	public void gerarParcela(Double total, Double desconto, Double acrescimo, Double recebido, Double restante,
 			Receber receber, int quitado, int sequencia, Timestamp cadastro, Date vencimento) {
 		parcelas.gerarparcela(total, desconto, acrescimo, recebido, restante, receber, quitado, sequencia, cadastro,
 				vencimento);
+
+		if (quitado == 0)
+			vencimentos.somaReceber(pessoa(receber), vencimento.toLocalDate(), restante);
 	}
 
 	public List<Parcela> lista() {
@@ -43,6 +54,20 @@ public class ParcelaService {
 		return parcelas.findByCodigoEquals(codigo);
 	}
 
+	/*
+	 * Situação das parcelas informadas, em uma única consulta
+	 */
+	public List<ParcelaSituacao> situacao(Collection<Long> codigos) {
+		return parcelas.buscaSituacao(codigos);
+	}
+
+	/*
+	 * Referência à parcela para vincular em outra entidade, sem consultar o banco
+	 */
+	public Parcela referencia(Long codigo) {
+		return parcelas.getOne(codigo);
+	}
+
 	public String receber(Long parcela, Double totalPago, Double acrescimo, Double desconto) {
 		DataAtual dataAtual = new DataAtual();
 
@@ -69,7 +94,76 @@ public class ParcelaService {
 			throw new RuntimeException();
 		}
 
+		vencimentos.somaReceber(pessoa(parcelaAtual.get().getReceber()),
+				parcelaAtual.get().getData_vencimento().toLocalDate(),
+				vlRestante - parcelaAtual.map(Parcela::getValor_restante).get());
+
 		return "ok";
 	}
 
+	/*
+	 * Distribui o valor recebido entre as parcelas, na ordem da lista, quitando
+	 * cada parcela antes de passar para a próxima. Os valores são calculados em
+	 * centavos exatos, sem gravar nada
+	 */
+	public List<ParcelaBaixa> distribui(List<Parcela> lista, Double valorRecebido) {
+		List<ParcelaBaixa> baixas = new ArrayList<>();
+		BigDecimal sobra = centavos(valorRecebido);
+
+		for (Parcela parcela : lista) {
+			if (sobra.signum() <= 0)
+				break;
+
+			if (parcela.getQuitado() == 1)
+				continue;
+
+			BigDecimal restante = centavos(parcela.getValor_restante()).max(BigDecimal.ZERO);
+			BigDecimal valor = sobra.min(restante);
+
+			sobra = sobra.subtract(valor);
+
+			baixas.add(new ParcelaBaixa(parcela.getCodigo(), pessoa(parcela.getReceber()),
+					parcela.getData_vencimento().toLocalDate(), valor, centavos(parcela.getValor_recebido()).add(valor),
+					restante.subtract(valor)));
+		}
+
+		return baixas;
+	}
+
+	/*
+	 * Grava a baixa das parcelas em um único lote
+	 */
+	public void baixa(List<ParcelaBaixa> baixas) {
+		if (baixas.isEmpty())
+			return;
+
+		DataAtual dataAtual = new DataAtual();
+		List<Long> naoAlteradas;
+
+		try {
+			naoAlteradas = parcelas.recebeEmLote(baixas, dataAtual.dataAtualTimeStamp());
+		} catch (Exception e) {
+			System.out.println(e);
+			throw new RuntimeException("Ocorreu um erro ao realizar o recebimento, chame o suporte");
+		}
+
+		if (!naoAlteradas.isEmpty())
+			throw new RuntimeException("Parcela " + naoAlteradas.get(0)
+					+ " já esta quitada ou recebeu outro pagamento, verifique.");
+
+		for (ParcelaBaixa baixa : baixas)
+			vencimentos.somaReceber(baixa.getPessoa(), baixa.getVencimento(), baixa.getValor().negate().doubleValue());
+	}
+
+	private Long pessoa(Receber receber) {
+		return receber == null || receber.getPessoa() == null ? null : receber.getPessoa().getCodigo();
+	}
+
+	private BigDecimal centavos(Double valor) {
+		if (valor == null)
+			return BigDecimal.ZERO.setScale(2);
+
+		return BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP);
+	}
+
 }
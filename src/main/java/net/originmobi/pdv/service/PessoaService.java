@@ -51,6 +51,13 @@ public class PessoaService {
 		return pessoas.findById(codigo);
 	}
 
+	/*
+	 * Referência à pessoa para vincular em outra entidade, sem consultar o banco
+	 */
+	public Pessoa referencia(Long codigo) {
+		return pessoas.getOne(codigo);
+	}
+
 	public List<Pessoa> filter(PessoaFilter filter) {
 		String nome = filter.getNome() == null ? "%" : filter.getNome();
 		return pessoas.findByNomeContaining(nome);
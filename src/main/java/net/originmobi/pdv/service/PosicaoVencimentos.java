@@ -0,0 +1,46 @@
+package net.originmobi.pdv.service;
+
+import java.math.BigDecimal;
+
+/*
+ * Valores em aberto separados por faixa de vencimento
+ */
+public class PosicaoVencimentos {
+
+	private BigDecimal vencido = BigDecimal.ZERO;
+	private BigDecimal ate30 = BigDecimal.ZERO;
+	private BigDecimal de31a60 = BigDecimal.ZERO;
+	private BigDecimal acima60 = BigDecimal.ZERO;
+
+	void soma(long diasParaVencer, BigDecimal valor) {
+		if (diasParaVencer < 0)
+			vencido = vencido.add(valor);
+		else if (diasParaVencer <= 30)
+			ate30 = ate30.add(valor);
+		else if (diasParaVencer <= 60)
+			de31a60 = de31a60.add(valor);
+		else
+			acima60 = acima60.add(valor);
+	}
+
+	public BigDecimal getVencido() {
+		return vencido;
+	}
+
+	public BigDecimal getAte30() {
+		return ate30;
+	}
+
+	public BigDecimal getDe31a60() {
+		return de31a60;
+	}
+
+	public BigDecimal getAcima60() {
+		return acima60;
+	}
+
+	public BigDecimal getTotal() {
+		return vencido.add(ate30).add(de31a60).add(acima60);
+	}
+
+}
@@ -0,0 +1,309 @@
+package net.originmobi.pdv.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.NumberFormat;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.originmobi.pdv.repository.PagarParcelaRespository;
+import net.originmobi.pdv.repository.ParcelaRepository;
+import net.originmobi.pdv.repository.VencimentoAberto;
+
+/**
+ * Posição dos valores a receber (por cliente) e a pagar (por fornecedor),
+ * separada por faixa de vencimento: vencido, até 30, de 31 a 60 e acima de 60
+ * dias.
+ *
+ * O saldo em aberto de cada cliente/fornecedor por data de vencimento fica em
+ * memória, carregado com uma consulta agrupada na primeira utilização, e é
+ * atualizado pela diferença a cada parcela gerada ou baixada, depois do commit
+ * da transação. As faixas são montadas na consulta, a partir da data atual. A
+ * posição é recarregada do banco periodicamente
+ * (pdv.financeiro.vencimentos.recarga), corrigindo alterações feitas fora do
+ * sistema.
+ */
+@Service
+public class PosicaoVencimentosService {
+
+	@Autowired
+	private ParcelaRepository parcelas;
+
+	@Autowired
+	private PagarParcelaRespository parcelasPagar;
+
+	@Autowired
+	private ApplicationEventPublisher eventos;
+
+	private final Estado receber = new Estado(() -> parcelas.vencimentosAbertos());
+
+	private final Estado pagar = new Estado(() -> parcelasPagar.vencimentosAbertos());
+
+	public PosicaoVencimentos receber() {
+		return receber.carteira().posicao(null);
+	}
+
+	public PosicaoVencimentos receber(Long pessoa) {
+		return receber.carteira().posicao(pessoa);
+	}
+
+	public PosicaoVencimentos pagar() {
+		return pagar.carteira().posicao(null);
+	}
+
+	public PosicaoVencimentos pagar(Long fornecedor) {
+		return pagar.carteira().posicao(fornecedor);
+	}
+
+	/*
+	 * Total a receber formatado para o dashboard
+	 */
+	public String totalReceber() {
+		return formata(receber().getTotal());
+	}
+
+	/*
+	 * Total a pagar formatado para o dashboard
+	 */
+	public String totalPagar() {
+		return formata(pagar().getTotal());
+	}
+
+	/*
+	 * Soma o valor ao saldo a receber do cliente no vencimento, valores
+	 * negativos são baixas
+	 */
+	public void somaReceber(Long pessoa, LocalDate vencimento, Double valor) {
+		aposCommit(receber, carteira -> carteira.soma(pessoa, vencimento, valor));
+	}
+
+	/*
+	 * Soma o valor ao saldo a pagar do fornecedor no vencimento, valores
+	 * negativos são baixas
+	 */
+	public void somaPagar(Long fornecedor, LocalDate vencimento, Double valor) {
+		aposCommit(pagar, carteira -> carteira.soma(fornecedor, vencimento, valor));
+	}
+
+	/*
+	 * Descarta a posição em memória, que é carregada novamente na próxima
+	 * consulta
+	 */
+	@Scheduled(fixedDelayString = "${pdv.financeiro.vencimentos.recarga:3600000}")
+	public void recarrega() {
+		receber.descarta();
+		pagar.descarta();
+	}
+
+	/*
+	 * Dentro de uma transação a posição só é alterada depois do commit, assim
+	 * um rollback não deixa a memória diferente do banco. Fora de transação a
+	 * alteração já está gravada e a posição é descartada, sendo carregada de
+	 * novo do banco. As alterações de uma transação são aplicadas juntas e o
+	 * dashboard recebe um único evento por transação
+	 */
+	private void aposCommit(Estado estado, Consumer<Carteira> alteracao) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			estado.descarta();
+			eventos.publishEvent(DashboardEvento.financeiro());
+			return;
+		}
+
+		Alteracoes alteracoes = (Alteracoes) TransactionSynchronizationManager.getResource(this);
+
+		if (alteracoes == null) {
+			alteracoes = new Alteracoes();
+			TransactionSynchronizationManager.bindResource(this, alteracoes);
+			TransactionSynchronizationManager.registerSynchronization(alteracoes);
+
+			// registrado depois das alterações, o dashboard é atualizado após elas
+			eventos.publishEvent(DashboardEvento.financeiro());
+		}
+
+		alteracoes.adiciona(estado, alteracao);
+	}
+
+	private String formata(BigDecimal valor) {
+		NumberFormat formato = NumberFormat.getNumberInstance(new Locale("pt", "BR"));
+		formato.setMinimumFractionDigits(2);
+		formato.setMaximumFractionDigits(2);
+		return formato.format(valor);
+	}
+
+	/*
+	 * Alterações da posição feitas em uma transação, aplicadas após o commit
+	 */
+	private class Alteracoes extends TransactionSynchronizationAdapter {
+		private final List<Estado> estados = new ArrayList<>();
+		private final List<Consumer<Carteira>> alteracoes = new ArrayList<>();
+
+		private boolean confirmando;
+
+		void adiciona(Estado estado, Consumer<Carteira> alteracao) {
+			estados.add(estado);
+			alteracoes.add(alteracao);
+		}
+
+		@Override
+		public void beforeCommit(boolean readOnly) {
+			for (Estado estado : new LinkedHashSet<>(estados))
+				estado.confirmando();
+			confirmando = true;
+		}
+
+		@Override
+		public void afterCommit() {
+			for (int i = 0; i < estados.size(); i++)
+				estados.get(i).aplica(alteracoes.get(i));
+		}
+
+		@Override
+		public void afterCompletion(int status) {
+			TransactionSynchronizationManager.unbindResourceIfPossible(PosicaoVencimentosService.this);
+
+			if (confirmando)
+				for (Estado estado : new LinkedHashSet<>(estados))
+					estado.confirmado();
+		}
+	}
+
+	/*
+	 * Posição em memória de um dos lados, receber ou pagar.
+	 *
+	 * A carteira carregada do banco já contém as alterações confirmadas antes
+	 * da consulta, então uma alteração só é somada à carteira que já estava
+	 * carregada. A geração muda a cada alteração em confirmação, confirmada ou
+	 * descarte, e a carga só é guardada se a geração não mudou enquanto a
+	 * consulta rodava; do contrário não se sabe se a consulta viu a alteração,
+	 * e a carteira é usada apenas nesta leitura
+	 */
+	private static class Estado {
+		private final Supplier<List<VencimentoAberto>> consulta;
+		private final Object carga = new Object();
+		private volatile Carteira carteira;
+		private long geracao;
+		private int emConfirmacao;
+
+		Estado(Supplier<List<VencimentoAberto>> consulta) {
+			this.consulta = consulta;
+		}
+
+		Carteira carteira() {
+			Carteira atual = carteira;
+
+			if (atual != null)
+				return atual;
+
+			synchronized (carga) {
+				long inicio;
+
+				synchronized (this) {
+					if (carteira != null)
+						return carteira;
+
+					inicio = geracao;
+				}
+
+				Carteira carregada = Carteira.de(consulta.get());
+
+				synchronized (this) {
+					if (geracao == inicio && emConfirmacao == 0)
+						carteira = carregada;
+				}
+
+				return carregada;
+			}
+		}
+
+		synchronized void confirmando() {
+			emConfirmacao++;
+			geracao++;
+		}
+
+		synchronized void aplica(Consumer<Carteira> alteracao) {
+			if (carteira != null)
+				alteracao.accept(carteira);
+
+			geracao++;
+		}
+
+		synchronized void confirmado() {
+			emConfirmacao--;
+			geracao++;
+		}
+
+		synchronized void descarta() {
+			carteira = null;
+			geracao++;
+		}
+	}
+
+	private static class Carteira {
+		private final Map<Long, TreeMap<LocalDate, BigDecimal>> porCodigo = new HashMap<>();
+		private final TreeMap<LocalDate, BigDecimal> geral = new TreeMap<>();
+
+		static Carteira de(List<VencimentoAberto> abertos) {
+			Carteira carteira = new Carteira();
+
+			for (VencimentoAberto aberto : abertos)
+				carteira.soma(aberto.getCodigo(), aberto.getVencimento().toLocalDate(), aberto.getValor());
+
+			return carteira;
+		}
+
+		synchronized void soma(Long codigo, LocalDate vencimento, Double valor) {
+			if (codigo == null || vencimento == null || valor == null)
+				return;
+
+			BigDecimal centavos = BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP);
+
+			if (centavos.signum() == 0)
+				return;
+
+			soma(porCodigo.computeIfAbsent(codigo, c -> new TreeMap<>()), vencimento, centavos);
+			soma(geral, vencimento, centavos);
+
+			if (porCodigo.get(codigo).isEmpty())
+				porCodigo.remove(codigo);
+		}
+
+		synchronized PosicaoVencimentos posicao(Long codigo) {
+			Map<LocalDate, BigDecimal> saldos = codigo == null ? geral : porCodigo.get(codigo);
+			PosicaoVencimentos posicao = new PosicaoVencimentos();
+
+			if (saldos == null)
+				return posicao;
+
+			LocalDate hoje = LocalDate.now();
+
+			for (Map.Entry<LocalDate, BigDecimal> saldo : saldos.entrySet())
+				posicao.soma(ChronoUnit.DAYS.between(hoje, saldo.getKey()), saldo.getValue());
+
+			return posicao;
+		}
+
+		private static void soma(Map<LocalDate, BigDecimal> saldos, LocalDate vencimento, BigDecimal valor) {
+			BigDecimal saldo = saldos.merge(vencimento, valor, BigDecimal::add);
+
+			if (saldo.signum() == 0)
+				saldos.remove(vencimento);
+		}
+	}
+
+}
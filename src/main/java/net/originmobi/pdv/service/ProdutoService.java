@@ -2,7 +2,10 @@ package net.originmobi.pdv.service;
 
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,6 +47,10 @@ public class ProdutoService {
 		return produtos.findById(codigo);
 	}
 
+	public List<Produto> buscaProdutos(Iterable<Long> codigos) {
+		return produtos.findAllById(codigos);
+	}
+
 	public Page<Produto> filter(ProdutoFilter filter, Pageable pageable) {
 		String descricao = filter.getDescricao() == null ? "%" : filter.getDescricao();
 		return produtos.findByDescricaoContaining(descricao, pageable);
@@ -80,25 +87,44 @@ public class ProdutoService {
 		return "Produdo cadastrado com sucesso";
 	}
 
-	@SuppressWarnings("static-access")
-	public void movimentaEstoque(Long codvenda, EntradaSaida tipo) {
+	/*
+	 * Realiza a baixa de estoque de todos os produtos da venda de uma só vez: o
+	 * controle e o saldo de estoque são carregados em uma única consulta, a
+	 * validação é feita em memória e as movimentações são gravadas em um único
+	 * lote JDBC. Retorna a quantidade de itens da venda
+	 */
+	public int movimentaEstoque(Long codvenda, EntradaSaida tipo) {
 		List<Object[]> resultado = vendaProdutos.buscaQtdProduto(codvenda);
 
-		for (int i = 0; i < resultado.size(); i++) {
-			Long codprod = Long.decode(resultado.get(i)[0].toString());
-			int qtd = Integer.parseInt(resultado.get(i)[1].toString());
+		if (resultado.isEmpty())
+			return 0;
+
+		Map<Long, Integer> qtdVendida = new LinkedHashMap<>();
+		for (Object[] linha : resultado)
+			qtdVendida.put(Long.decode(linha[0].toString()), Integer.parseInt(linha[1].toString()));
+
+		// codigo do produto -> [codigo, controla_estoque, saldo]
+		Map<Long, Object[]> saldos = new HashMap<>();
+		for (Object[] linha : produtos.saldosEstoque(qtdVendida.keySet()))
+			saldos.put(Long.decode(linha[0].toString()), linha);
 
-			Produto produto = produtos.findByCodigoIn(codprod);
+		Map<Long, Integer> movimentacoes = new LinkedHashMap<>();
 
-			if (produto.getControla_estoque().equals(ProdutoControleEstoque.SIM)) {
+		for (Map.Entry<Long, Integer> item : qtdVendida.entrySet()) {
+			Long codprod = item.getKey();
+			int qtd = item.getValue();
+			Object[] saldo = saldos.get(codprod);
+
+			if (saldo == null)
+				throw new RuntimeException("O produto de código " + codprod + " não foi encontrado, verifique");
+
+			if (ProdutoControleEstoque.SIM.toString().equals(saldo[1])) {
 
 				// estoque atual do produto
-				int qtd_estoque = produtos.saldoEstoque(codprod);
-				String origem_operacao = "Venda " + codvenda.toString();
+				int qtd_estoque = Integer.parseInt(saldo[2].toString());
 
 				if (qtd <= qtd_estoque) {
-					produtos.movimentaEstoque(codprod, tipo.SAIDA.toString(), qtd, origem_operacao,
-							Date.valueOf(dataAtual));
+					movimentacoes.put(codprod, qtd);
 				} else {
 					throw new RuntimeException(
 							"O produto de código " + codprod + " não tem estoque suficiente, verifique");
@@ -108,6 +134,11 @@ public class ProdutoService {
 			}
 		}
 
+		if (!movimentacoes.isEmpty())
+			produtos.movimentaEstoqueEmLote(movimentacoes, tipo.toString(), "Venda " + codvenda.toString(),
+					Date.valueOf(dataAtual));
+
+		return qtdVendida.values().stream().mapToInt(Integer::intValue).sum();
 	}
 	
 	public void ajusteEstoque(Long codprod, int qtd, EntradaSaida tipo, String origem_operacao, Date data_movimentacao) {
@@ -14,6 +14,9 @@ public class ReceberService {
 	@Autowired
 	private ReceberRepository receberRepo;
 
+	@Autowired
+	private PosicaoVencimentosService vencimentos;
+
 	public void cadastrar(Receber receber) {
 		try {
 			receberRepo.save(receber);
@@ -31,7 +34,7 @@ public class ReceberService {
 	}
 	
 	public String total_a_receber() {
-		return receberRepo.total_a_receber();
+		return vencimentos.totalReceber();
 	}
 
 }
@@ -1,16 +1,23 @@
 package net.originmobi.pdv.service;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.ibm.icu.text.DecimalFormat;
-
 import net.originmobi.pdv.controller.TituloService;
 import net.originmobi.pdv.enumerado.TituloTipo;
 import net.originmobi.pdv.enumerado.caixa.EstiloLancamento;
@@ -18,13 +25,13 @@ import net.originmobi.pdv.enumerado.caixa.TipoLancamento;
 import net.originmobi.pdv.model.Caixa;
 import net.originmobi.pdv.model.CaixaLancamento;
 import net.originmobi.pdv.model.Parcela;
-import net.originmobi.pdv.model.Pessoa;
 import net.originmobi.pdv.model.Recebimento;
 import net.originmobi.pdv.model.Titulo;
 import net.originmobi.pdv.model.Usuario;
+import net.originmobi.pdv.repository.ParcelaSituacao;
 import net.originmobi.pdv.repository.RecebimentoRepository;
+import net.originmobi.pdv.security.UsuarioAtual;
 import net.originmobi.pdv.service.cartao.CartaoLancamentoService;
-import net.originmobi.pdv.singleton.Aplicacao;
 import net.originmobi.pdv.utilitarios.DataAtual;
 
 @Service
@@ -46,7 +53,7 @@ public class RecebimentoService {
 	private CaixaService caixas;
 
 	@Autowired
-	private UsuarioService usuarios;
+	private UsuarioAtual usuarioAtual;
 
 	@Autowired
 	private CaixaLancamentoService lancamentos;
@@ -58,46 +65,81 @@ public class RecebimentoService {
 	private CartaoLancamentoService cartaoLancamentos;
 
 	public String abrirRecebimento(Long codpes, String[] arrayParcelas) {
-		List<Parcela> lista = new ArrayList<>();
+		List<Long> codigos = new ArrayList<>();
 
-		DataAtual dataAtual = new DataAtual();
-		Double vlTotal = 0.0;
+		for (String parcela : arrayParcelas)
+			codigos.add(Long.decode(parcela.trim()));
 
-		for (int i = 0; i < arrayParcelas.length; i++) {
-			Parcela parcela = parcelas.busca(Long.decode(arrayParcelas[i]));
+		return abre(codigos, codpes).get(codpes).getCodigo().toString();
+	}
 
-			if (parcela.getQuitado() == 1)
-				throw new RuntimeException("Parcela " + parcela.getCodigo() + " já esta quitada, verifique.");
+	/*
+	 * Abre um recebimento para cada cliente das parcelas informadas, usado nas
+	 * cobranças de vários clientes de uma vez. Retorna o código do recebimento
+	 * aberto para cada cliente
+	 */
+	@Transactional(readOnly = false, propagation = Propagation.REQUIRED)
+	public Map<Long, Long> abrirRecebimentos(List<Long> codigos) {
+		Map<Long, Long> abertos = new LinkedHashMap<>();
 
-			if (parcela.getReceber().getPessoa().getCodigo() != codpes)
-				throw new RuntimeException("A parcela " + parcela.getCodigo() + " não pertence ao cliente selecionado");
+		abre(codigos, null).forEach((pessoa, recebimento) -> abertos.put(pessoa, recebimento.getCodigo()));
 
-			try {
-				lista.add(parcela);
+		return abertos;
+	}
 
-				vlTotal = vlTotal + parcela.getValor_restante();
+	/*
+	 * Busca a situação de todas as parcelas em uma única consulta, valida e
+	 * agrupa as parcelas por cliente na mesma passada e grava um recebimento por
+	 * cliente. Com codpes informado todas as parcelas devem ser desse cliente
+	 */
+	private Map<Long, Recebimento> abre(List<Long> codigos, Long codpes) {
+		if (codigos == null || codigos.isEmpty())
+			throw new RuntimeException("Nenhuma parcela selecionada, verifique.");
 
-			} catch (Exception e) {
-				e.getMessage();
-				throw new RuntimeException("Erro ao receber, chame o suporte");
-			}
+		Set<Long> distintas = new LinkedHashSet<>(codigos);
+		Map<Long, ParcelaSituacao> situacoes = new HashMap<>();
+
+		for (ParcelaSituacao situacao : parcelas.situacao(distintas))
+			situacoes.put(situacao.getCodigo(), situacao);
+
+		Map<Long, List<Parcela>> parcelasPorCliente = new LinkedHashMap<>();
+		Map<Long, BigDecimal> totalPorCliente = new HashMap<>();
+
+		for (Long codigo : distintas) {
+			ParcelaSituacao parcela = situacoes.get(codigo);
+
+			if (parcela == null)
+				throw new RuntimeException("Parcela " + codigo + " não encontrada, verifique.");
+
+			if (parcela.getQuitado() == 1)
+				throw new RuntimeException("Parcela " + codigo + " já esta quitada, verifique.");
+
+			if (codpes != null && !codpes.equals(parcela.getPessoa()))
+				throw new RuntimeException("A parcela " + codigo + " não pertence ao cliente selecionado");
+
+			parcelasPorCliente.computeIfAbsent(parcela.getPessoa(), pessoa -> new ArrayList<>())
+					.add(parcelas.referencia(codigo));
+			totalPorCliente.merge(parcela.getPessoa(), BigDecimal.valueOf(parcela.getRestante()), BigDecimal::add);
 		}
 
-		Optional<Pessoa> pessoa = pessoas.buscaPessoa(codpes);
+		DataAtual dataAtual = new DataAtual();
+		Map<Long, Recebimento> abertos = new LinkedHashMap<>();
 
-		if (!pessoa.isPresent())
-			throw new RuntimeException("Cliente não encontrado");
+		for (Map.Entry<Long, List<Parcela>> cliente : parcelasPorCliente.entrySet()) {
+			Double vlTotal = totalPorCliente.get(cliente.getKey()).doubleValue();
 
-		Recebimento recebimento = new Recebimento(vlTotal, dataAtual.dataAtualTimeStamp(), pessoa.get(), lista);
+			abertos.put(cliente.getKey(), new Recebimento(vlTotal, dataAtual.dataAtualTimeStamp(),
+					pessoas.referencia(cliente.getKey()), cliente.getValue()));
+		}
 
 		try {
-			recebimentos.save(recebimento);
+			recebimentos.saveAll(abertos.values());
 		} catch (Exception e) {
-			e.getMessage();
+			System.out.println(e);
 			throw new RuntimeException("Erro ao receber, chame o suporte");
 		}
 
-		return recebimento.getCodigo().toString();
+		return abertos;
 	}
 
 	@Transactional(readOnly = false, propagation = Propagation.REQUIRED)
@@ -114,11 +156,10 @@ public class RecebimentoService {
 		// vincula o titulo ao recebimento
 		recebimento.get().setTitulo(titulo.get());
 
-		DecimalFormat formata = new DecimalFormat("0.00");
-		Double vlrecebimento = Double
-				.valueOf(formata.format(recebimento.map(Recebimento::getValor_total).get()).replaceAll(",", "."));
+		BigDecimal vlrecebimento = BigDecimal.valueOf(recebimento.map(Recebimento::getValor_total).get()).setScale(2,
+				RoundingMode.HALF_UP);
 
-		if (vlrecebido > vlrecebimento)
+		if (BigDecimal.valueOf(vlrecebido).setScale(2, RoundingMode.HALF_UP).compareTo(vlrecebimento) > 0)
 			throw new RuntimeException("Valor de recebimento é superior aos títulos");
 
 		List<Parcela> listParcelas = receParcelas.parcelasDoReceber(codreceber);
@@ -132,32 +173,11 @@ public class RecebimentoService {
 		// guarda o valor do lançamento de caixa
 		Double vllancamento = vlrecebido;
 
-		// verifica cada parcela que veio e realiza o seu recebimento individual
-		for (int i = 0; i < listParcelas.size(); i++) {
-
-			if (vlrecebido > 0) {
-				Double vlsobra = vlrecebido - listParcelas.get(i).getValor_restante();
-				vlsobra = vlsobra < 0 ? 0 : vlsobra;
-
-				Double vlquitado = vlsobra - vlrecebido;
-				vlquitado = vlquitado < 0 ? vlquitado * -1 : vlquitado;
-
-				vlrecebido = vlsobra;
-
-				Long parcela = listParcelas.get(i).getCodigo();
+		// distribui o valor entre as parcelas e grava todas as baixas em um único lote
+		List<ParcelaBaixa> baixas = parcelas.distribui(listParcelas, vlrecebido);
+		parcelas.baixa(baixas);
 
-				try {
-					parcelas.receber(parcela, vlquitado, 0.00, 0.00);
-				} catch (Exception e) {
-					e.getMessage();
-					throw new RuntimeException("Ocorreu um erro ao realizar o recebimento, chame o suporte");
-				}
-			}
-
-		}
-
-		Aplicacao aplicacao = new Aplicacao();
-		Usuario usuario = usuarios.buscaUsuario(aplicacao.getUsuarioAtual());
+		Usuario usuario = usuarioAtual.getUsuario();
 
 		// pega a sigla do titulo
 		String sigla = titulo.map(Titulo::getTipo).get().getSigla();
@@ -197,7 +217,27 @@ public class RecebimentoService {
 			throw new RuntimeException("Ocorreu um erro ao realizar o recebimento, chame o suporte");
 		}
 
-		return "Recebimento realizado com sucesso";
+		return "Recebimento realizado com sucesso" + detalhe(baixas);
+	}
+
+	/*
+	 * Valor recebido em cada parcela, para a mensagem de retorno
+	 */
+	private String detalhe(List<ParcelaBaixa> baixas) {
+		StringBuilder detalhe = new StringBuilder();
+		NumberFormat moeda = NumberFormat.getNumberInstance(new Locale("pt", "BR"));
+		moeda.setMinimumFractionDigits(2);
+
+		for (ParcelaBaixa baixa : baixas) {
+			detalhe.append("\nParcela ").append(baixa.getParcela()).append(": ").append(moeda.format(baixa.getValor()));
+
+			if (baixa.getQuitado() == 1)
+				detalhe.append(" (quitada)");
+			else
+				detalhe.append(" (restam ").append(moeda.format(baixa.getRestante())).append(")");
+		}
+
+		return detalhe.toString();
 	}
 
 	public String remover(Long codigo) {
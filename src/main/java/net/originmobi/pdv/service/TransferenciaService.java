@@ -9,7 +9,7 @@ import net.originmobi.pdv.model.Caixa;
 import net.originmobi.pdv.model.Transferencia;
 import net.originmobi.pdv.model.Usuario;
 import net.originmobi.pdv.repository.TransferenciaRepository;
-import net.originmobi.pdv.singleton.Aplicacao;
+import net.originmobi.pdv.security.UsuarioAtual;
 import net.originmobi.pdv.utilitarios.DataAtual;
 
 @Service
@@ -19,16 +19,18 @@ public class TransferenciaService {
 	private TransferenciaRepository transferencias;
 
 	@Autowired
-	private UsuarioService usuarios;
+	private UsuarioAtual usuarioAtual;
 
 	@Autowired
 	private CaixaService caixas;
 
+	@Autowired
+	private CaixaRazaoService razao;
+
 	public String cadastrar(Double valor, Long origem, Long destino, String obs) {
-		Aplicacao aplicacao = Aplicacao.getInstancia();
 		DataAtual dataAtual = new DataAtual();
 
-		Usuario usuario = usuarios.buscaUsuario(aplicacao.getUsuarioAtual());
+		Usuario usuario = usuarioAtual.getUsuario();
 
 		Optional<Caixa> caiOrigem = caixas.busca(origem);
 		Optional<Caixa> caiDestino = caixas.busca(destino);
@@ -42,7 +44,7 @@ public class TransferenciaService {
 		if (!caiDestino.isPresent() || caiDestino.map(Caixa::getData_fechamento).isPresent())
 			throw new RuntimeException("Conta destino não esta aberta, verifique");
 
-		if (caiOrigem.map(Caixa::getValor_total).get() < valor)
+		if (caiOrigem.map(razao::saldo).get() < valor)
 			throw new RuntimeException("Saldo insuficiente para realizar a transferência");
 
 		Transferencia transferencia = new Transferencia(valor, dataAtual.dataAtualTimeStamp(), caiOrigem.get(),
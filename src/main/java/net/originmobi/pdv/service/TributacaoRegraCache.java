@@ -0,0 +1,129 @@
+package net.originmobi.pdv.service;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import net.originmobi.pdv.enumerado.EntradaSaida;
+import net.originmobi.pdv.model.TributacaoRegra;
+import net.originmobi.pdv.repository.TributacaoRegraRepository;
+import net.originmobi.pdv.service.notafiscal.ImpostoRegra;
+import net.originmobi.pdv.utilitarios.CacheCarregado;
+
+/**
+ * Índice das regras de tributação por tributação, UF e tipo (entrada/saída).
+ *
+ * Todas as regras são carregadas em uma única consulta e mantidas em memória
+ * até que alguma regra seja alterada, assim a inclusão de itens na nota busca
+ * a regra no índice sem percorrer a lista de regras da tributação a cada item.
+ * Os dados de cálculo de cada regra (ImpostoRegra) também ficam no índice, e
+ * são descartados junto com ele.
+ */
+@Component
+public class TributacaoRegraCache {
+
+	@Autowired
+	private TributacaoRegraRepository regras;
+
+	private final CacheCarregado<Indice> indice = new CacheCarregado<>(this::carrega);
+
+	/*
+	 * Regra da tributação para a UF e o tipo informados, quando houver mais de
+	 * uma vale a última cadastrada
+	 */
+	public TributacaoRegra regra(Long tributacao, String uf, EntradaSaida tipo) {
+		return indice.get().regras.get(new Chave(tributacao, uf, tipo));
+	}
+
+	public boolean possuiRegra(Long tributacao, EntradaSaida tipo) {
+		return indice.get().tipos.getOrDefault(tributacao, Collections.emptySet()).contains(tipo);
+	}
+
+	/*
+	 * Primeira regra cadastrada da tributação
+	 */
+	public TributacaoRegra primeira(Long tributacao) {
+		return indice.get().primeiras.get(tributacao);
+	}
+
+	/*
+	 * Dados de cálculo dos impostos da regra, preparados uma vez por regra
+	 */
+	public ImpostoRegra impostos(TributacaoRegra regra) {
+		if (regra.getCodigo() == null)
+			return ImpostoRegra.de(regra);
+
+		return indice.get().impostos.computeIfAbsent(regra.getCodigo(), codigo -> ImpostoRegra.de(regra));
+	}
+
+	/*
+	 * Origem da mercadoria, primeiro dígito do CST/CSOSN da primeira regra da
+	 * tributação
+	 */
+	public char origem(Long tributacao) {
+		return primeira(tributacao).getCst_csosn().getCst_csosn().charAt(0);
+	}
+
+	/*
+	 * Descarta o índice, deve ser chamado sempre que uma regra for incluída,
+	 * alterada ou removida
+	 */
+	public void invalida() {
+		indice.invalida();
+	}
+
+	private Indice carrega() {
+		Indice novo = new Indice();
+
+		for (TributacaoRegra regra : regras.listaComTributacao()) {
+			Long tributacao = regra.getTributacao().getCodigo();
+
+			novo.regras.put(new Chave(tributacao, regra.getUf().getSigla(), regra.getTipo()), regra);
+			novo.tipos.computeIfAbsent(tributacao, codigo -> EnumSet.noneOf(EntradaSaida.class)).add(regra.getTipo());
+			novo.primeiras.putIfAbsent(tributacao, regra);
+		}
+
+		return novo;
+	}
+
+	private static class Indice {
+		private final Map<Chave, TributacaoRegra> regras = new HashMap<>();
+		private final Map<Long, Set<EntradaSaida>> tipos = new HashMap<>();
+		private final Map<Long, TributacaoRegra> primeiras = new HashMap<>();
+		private final Map<Long, ImpostoRegra> impostos = new ConcurrentHashMap<>();
+	}
+
+	private static class Chave {
+		private final Long tributacao;
+		private final String uf;
+		private final EntradaSaida tipo;
+
+		Chave(Long tributacao, String uf, EntradaSaida tipo) {
+			this.tributacao = tributacao;
+			this.uf = uf;
+			this.tipo = tipo;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Chave))
+				return false;
+
+			Chave outra = (Chave) obj;
+			return Objects.equals(tributacao, outra.tributacao) && Objects.equals(uf, outra.uf) && tipo == outra.tipo;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(tributacao, uf, tipo);
+		}
+	}
+
+}
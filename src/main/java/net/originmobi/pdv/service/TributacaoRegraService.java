@@ -17,6 +17,9 @@ public class TributacaoRegraService {
 	@Autowired
 	private TributacaoRegraRepository regras;
 
+	@Autowired
+	private TributacaoRegraCache cache;
+
 	public List<TributacaoRegra> lista() {
 		return regras.findAll();
 	}
@@ -33,6 +36,7 @@ public class TributacaoRegraService {
 			try {
 				regras.cadastrar(codtribu, tipo, uf, cfop, cst_csosn, cstpis, cstcofins, pis, cofins, aliq_ipi, aliq_icms, cst_ipi,
 						Date.valueOf(dataAtual));
+				cache.invalida();
 			} catch (Exception e) {
 				System.out.println(e.getStackTrace());
 				return "Erro ao tentar adicionar regra, chame o suporte";
@@ -40,6 +44,7 @@ public class TributacaoRegraService {
 		} else {
 			try {
 				regras.update(codregra, codtribu, tipo, uf, cfop, cst_csosn, cstpis, cstcofins, pis, cofins, aliq_ipi, aliq_icms, cst_ipi);
+				cache.invalida();
 			} catch (Exception e) {
 				System.out.println(e.getStackTrace());
 				return "Erro ao tentar alterar regra, chame o suporte";
@@ -54,6 +59,7 @@ public class TributacaoRegraService {
 	public String remover(Long codigo) {
 		try {
 			regras.deleteById(codigo);
+			cache.invalida();
 		} catch (Exception e) {
 			System.out.println(e.getStackTrace());
 			throw new RuntimeException("Erro ao tentar remover a regra, chame o suporte");
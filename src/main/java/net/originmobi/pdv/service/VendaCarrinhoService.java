@@ -0,0 +1,459 @@
+package net.originmobi.pdv.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import net.originmobi.pdv.enumerado.VendaSituacao;
+import net.originmobi.pdv.enumerado.produto.ProdutoBalanca;
+import net.originmobi.pdv.model.Produto;
+import net.originmobi.pdv.model.VendaProduto;
+import net.originmobi.pdv.repository.VendaRepository;
+
+/**
+ * Carrinho em memória das vendas em aberto.
+ *
+ * Quando ativo (pdv.venda.carrinho.ativo), os produtos adicionados à venda
+ * ficam em memória e são gravados em venda_produtos em um único lote no
+ * fechamento da venda ou periodicamente. Cada alteração é registrada antes em
+ * um arquivo de log (write-ahead), que é relido na inicialização, assim os
+ * itens ainda não gravados sobrevivem a um reinício da aplicação.
+ *
+ * Os itens do carrinho recebem posições negativas para não conflitar com os
+ * códigos de venda_produtos na tela da venda.
+ *
+ * Uma venda em fechamento não aceita novos itens no carrinho, assim um item
+ * adicionado por outro terminal não fica de fora da venda já fechada, e o
+ * checkpoint deixa os seus itens para o fechamento gravar.
+ */
+@Service
+public class VendaCarrinhoService {
+
+	private static final String ARQUIVO_LOG = "carrinho.log";
+
+	// tempo máximo que o fechamento aguarda a gravação de um checkpoint
+	private static final long ESPERA_GRAVACAO = 30000;
+
+	@Value("${pdv.venda.carrinho.ativo:false}")
+	private boolean ativo;
+
+	@Value("${pdv.venda.carrinho.diretorio:dados/carrinho}")
+	private String diretorio;
+
+	@Autowired
+	private ProdutoService produtos;
+
+	@Autowired
+	private VendaProdutoService vendaProdutos;
+
+	@Autowired
+	private VendaRepository vendas;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private final Map<Long, List<ItemCarrinho>> carrinhos = new LinkedHashMap<>();
+
+	private final Set<Long> fechando = new HashSet<>();
+
+	private long ultimaPosicao = 0;
+
+	private BufferedWriter log;
+
+	@PostConstruct
+	public synchronized void inicia() throws IOException {
+		if (!ativo)
+			return;
+
+		Path arquivo = Paths.get(diretorio, ARQUIVO_LOG);
+		Files.createDirectories(arquivo.getParent());
+
+		if (Files.exists(arquivo))
+			recupera(arquivo);
+
+		compacta();
+	}
+
+	@PreDestroy
+	public synchronized void encerra() throws IOException {
+		if (log != null)
+			log.close();
+	}
+
+	public boolean isAtivo() {
+		return ativo;
+	}
+
+	public synchronized boolean possuiItens(Long codVenda) {
+		return carrinhos.containsKey(codVenda);
+	}
+
+	public synchronized String adiciona(Long codVenda, Long codProduto, Double vlBalanca) {
+		if (fechando.contains(codVenda))
+			return "Venda fechada";
+
+		Optional<Produto> produto = produtos.buscaProduto(codProduto);
+
+		if (!produto.isPresent())
+			throw new RuntimeException("Produto não encontrado");
+
+		ItemCarrinho item = new ItemCarrinho(--ultimaPosicao, codVenda, codProduto,
+				produto.map(Produto::getDescricao).get(), produto.map(Produto::getValor_venda).orElse(0.0),
+				produto.map(Produto::getBalanca).orElse(ProdutoBalanca.NAO).ordinal(), vlBalanca);
+
+		registra(item.paraLog());
+		carrinhos.computeIfAbsent(codVenda, k -> new ArrayList<>()).add(item);
+
+		return "ok";
+	}
+
+	public synchronized String remove(Long codVenda, Long posicao) {
+		List<ItemCarrinho> itens = carrinhos.getOrDefault(codVenda, new ArrayList<>());
+
+		for (Iterator<ItemCarrinho> it = itens.iterator(); it.hasNext();) {
+			ItemCarrinho item = it.next();
+
+			if (item.posicao == posicao) {
+				if (item.gravando)
+					return "Produto em gravação, tente novamente";
+
+				registra("R;" + codVenda + ";" + posicao);
+				it.remove();
+				break;
+			}
+		}
+
+		if (itens.isEmpty())
+			carrinhos.remove(codVenda);
+
+		return "ok";
+	}
+
+	/*
+	 * Linhas no mesmo formato de VendaProdutosRepository.findByProdutosDaVenda,
+	 * para serem apresentadas junto aos produtos já gravados da venda
+	 */
+	public synchronized List<Object[]> listaProdutosVenda(Long codVenda) {
+		List<Object[]> linhas = new ArrayList<>();
+
+		for (ItemCarrinho item : carrinhos.getOrDefault(codVenda, new ArrayList<>()))
+			linhas.add(new Object[] { item.produto, item.descricao, item.valorVenda, item.posicao, item.balanca,
+					item.valorBalanca });
+
+		return linhas;
+	}
+
+	/*
+	 * Valor dos produtos que estão no carrinho e ainda não foram somados em
+	 * venda.valor_produtos
+	 */
+	public synchronized Double valorProdutos(Long codVenda) {
+		Double total = 0.0;
+
+		for (ItemCarrinho item : carrinhos.getOrDefault(codVenda, new ArrayList<>()))
+			total += item.valor();
+
+		return total;
+	}
+
+	/*
+	 * Grava em lote os itens do carrinho da venda na transação corrente. Os itens
+	 * só saem da memória após o commit, em caso de rollback voltam a ficar
+	 * disponíveis para a próxima gravação. Os itens de uma venda em fechamento
+	 * são gravados pelo próprio fechamento
+	 */
+	public void descarrega(Long codVenda) {
+		List<ItemCarrinho> itens = reservaItens(codVenda);
+
+		if (!itens.isEmpty())
+			grava(codVenda, itens, false);
+	}
+
+	/*
+	 * Grava os itens do carrinho no fechamento da venda. Até o fim da transação
+	 * a venda deixa de aceitar itens no carrinho, após o commit ela já consta
+	 * como fechada e em caso de rollback volta a aceitar. Itens que estão sendo
+	 * gravados por um checkpoint são aguardados, assim o fechamento não segue
+	 * sem eles
+	 */
+	public void fecha(Long codVenda) {
+		grava(codVenda, reservaParaFechamento(codVenda), true);
+	}
+
+	/*
+	 * Grava periodicamente os carrinhos pendentes e compacta o arquivo de log
+	 */
+	@Scheduled(fixedDelayString = "${pdv.venda.carrinho.intervalo:60000}")
+	public void checkpoint() {
+		if (!ativo)
+			return;
+
+		TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+
+		for (Long codVenda : vendasComItens()) {
+			try {
+				transacao.execute(status -> {
+					if (VendaSituacao.ABERTA.toString().equals(vendas.verificaSituacao(codVenda)))
+						descarrega(codVenda);
+					else
+						descarta(codVenda);
+					return null;
+				});
+			} catch (Exception e) {
+				System.out.println("Erro ao gravar carrinho da venda " + codVenda + ": " + e);
+			}
+		}
+
+		try {
+			compacta();
+		} catch (IOException e) {
+			System.out.println("Erro ao compactar log do carrinho: " + e);
+		}
+	}
+
+	private synchronized List<Long> vendasComItens() {
+		return new ArrayList<>(carrinhos.keySet());
+	}
+
+	private void grava(Long codVenda, List<ItemCarrinho> itens, boolean fechamento) {
+		List<VendaProduto> vendaProduto = new ArrayList<>();
+		for (ItemCarrinho item : itens)
+			vendaProduto.add(new VendaProduto(item.produto, item.venda, item.valorBalanca));
+
+		try {
+			if (!vendaProduto.isEmpty())
+				vendaProdutos.salvarEmLote(vendaProduto);
+		} catch (RuntimeException e) {
+			finaliza(codVenda, itens, false, fechamento);
+			throw e;
+		}
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					finaliza(codVenda, itens, status == TransactionSynchronization.STATUS_COMMITTED, fechamento);
+				}
+			});
+		} else {
+			finaliza(codVenda, itens, true, fechamento);
+		}
+	}
+
+	private synchronized List<ItemCarrinho> reservaItens(Long codVenda) {
+		if (fechando.contains(codVenda))
+			return new ArrayList<>();
+
+		return reserva(codVenda);
+	}
+
+	/*
+	 * Marca a venda em fechamento e aguarda os itens que um checkpoint está
+	 * gravando saírem do carrinho (commit) ou voltarem a ele (rollback)
+	 */
+	private synchronized List<ItemCarrinho> reservaParaFechamento(Long codVenda) {
+		fechando.add(codVenda);
+
+		try {
+			long limite = System.currentTimeMillis() + ESPERA_GRAVACAO;
+
+			while (emGravacao(codVenda)) {
+				long espera = limite - System.currentTimeMillis();
+
+				if (espera <= 0)
+					throw new RuntimeException("Produtos da venda em gravação, tente novamente");
+
+				wait(espera);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			fechando.remove(codVenda);
+			throw new RuntimeException("Produtos da venda em gravação, tente novamente");
+		} catch (RuntimeException e) {
+			fechando.remove(codVenda);
+			throw e;
+		}
+
+		return reserva(codVenda);
+	}
+
+	private boolean emGravacao(Long codVenda) {
+		for (ItemCarrinho item : carrinhos.getOrDefault(codVenda, new ArrayList<>()))
+			if (item.gravando)
+				return true;
+
+		return false;
+	}
+
+	private List<ItemCarrinho> reserva(Long codVenda) {
+		List<ItemCarrinho> reservados = new ArrayList<>();
+
+		for (ItemCarrinho item : carrinhos.getOrDefault(codVenda, new ArrayList<>())) {
+			if (!item.gravando) {
+				item.gravando = true;
+				reservados.add(item);
+			}
+		}
+
+		return reservados;
+	}
+
+	private synchronized void finaliza(Long codVenda, List<ItemCarrinho> itens, boolean gravado, boolean fechamento) {
+		List<ItemCarrinho> carrinho = carrinhos.get(codVenda);
+
+		for (ItemCarrinho item : itens) {
+			if (gravado) {
+				registra("R;" + codVenda + ";" + item.posicao);
+				if (carrinho != null)
+					carrinho.remove(item);
+			} else {
+				item.gravando = false;
+			}
+		}
+
+		if (carrinho != null && carrinho.isEmpty())
+			carrinhos.remove(codVenda);
+
+		// a venda só deixa o fechamento depois que os seus itens saíram do carrinho
+		if (fechamento)
+			fechando.remove(codVenda);
+
+		notifyAll();
+	}
+
+	private synchronized void descarta(Long codVenda) {
+		List<ItemCarrinho> itens = carrinhos.remove(codVenda);
+
+		if (itens == null)
+			return;
+
+		System.out.println("Venda " + codVenda + " não está aberta, " + itens.size() + " itens do carrinho descartados");
+
+		for (ItemCarrinho item : itens)
+			registra("R;" + codVenda + ";" + item.posicao);
+	}
+
+	private void registra(String linha) {
+		if (log == null)
+			return;
+
+		try {
+			log.write(linha);
+			log.newLine();
+			log.flush();
+		} catch (IOException e) {
+			throw new RuntimeException("Erro ao registrar item no carrinho, chame o suporte");
+		}
+	}
+
+	private void recupera(Path arquivo) throws IOException {
+		for (String linha : Files.readAllLines(arquivo, StandardCharsets.UTF_8)) {
+			String[] campos = linha.split(";", 8);
+
+			if (campos[0].equals("A") && campos.length == 8) {
+				ItemCarrinho item = ItemCarrinho.doLog(campos);
+				carrinhos.computeIfAbsent(item.venda, k -> new ArrayList<>()).add(item);
+				ultimaPosicao = Math.min(ultimaPosicao, item.posicao);
+			} else if (campos[0].equals("R") && campos.length == 3) {
+				Long codVenda = Long.valueOf(campos[1]);
+				long posicao = Long.parseLong(campos[2]);
+				List<ItemCarrinho> itens = carrinhos.get(codVenda);
+
+				if (itens != null) {
+					itens.removeIf(item -> item.posicao == posicao);
+					if (itens.isEmpty())
+						carrinhos.remove(codVenda);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Reescreve o log apenas com os itens que estão no carrinho, o novo arquivo
+	 * substitui o anterior de forma atômica
+	 */
+	private synchronized void compacta() throws IOException {
+		Path arquivo = Paths.get(diretorio, ARQUIVO_LOG);
+		Path temporario = Paths.get(diretorio, ARQUIVO_LOG + ".tmp");
+
+		if (log != null)
+			log.close();
+
+		try (BufferedWriter novo = Files.newBufferedWriter(temporario, StandardCharsets.UTF_8)) {
+			for (List<ItemCarrinho> itens : carrinhos.values()) {
+				for (ItemCarrinho item : itens) {
+					novo.write(item.paraLog());
+					novo.newLine();
+				}
+			}
+		}
+
+		Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		log = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+	}
+
+	private static class ItemCarrinho {
+		private final long posicao;
+		private final Long venda;
+		private final Long produto;
+		private final String descricao;
+		private final Double valorVenda;
+		private final int balanca;
+		private final Double valorBalanca;
+
+		private boolean gravando;
+
+		ItemCarrinho(long posicao, Long venda, Long produto, String descricao, Double valorVenda, int balanca,
+				Double valorBalanca) {
+			this.posicao = posicao;
+			this.venda = venda;
+			this.produto = produto;
+			this.descricao = descricao;
+			this.valorVenda = valorVenda;
+			this.balanca = balanca;
+			this.valorBalanca = valorBalanca == null ? 0.0 : valorBalanca;
+		}
+
+		// mesma regra da trigger tr_atualizaTotalProdutosVenda_AFTER_INSERT
+		Double valor() {
+			return valorBalanca > 0 ? valorBalanca : valorVenda;
+		}
+
+		String paraLog() {
+			return "A;" + venda + ";" + posicao + ";" + produto + ";" + balanca + ";" + valorVenda + ";"
+					+ valorBalanca + ";" + descricao;
+		}
+
+		static ItemCarrinho doLog(String[] campos) {
+			return new ItemCarrinho(Long.parseLong(campos[2]), Long.valueOf(campos[1]), Long.valueOf(campos[3]),
+					campos[7], Double.valueOf(campos[5]), Integer.parseInt(campos[4]), Double.valueOf(campos[6]));
+		}
+	}
+
+}
@@ -45,6 +45,10 @@ public class VendaProdutoService {
 		vendaProdutos.removeProduto(posicaoProd);
 	}
 
+	public void salvarEmLote(List<VendaProduto> produtos) {
+		vendaProdutos.insereEmLote(produtos);
+	}
+
 	public List<Object[]> buscaQtdProduto(Long codvenda) {
 		return vendaProdutos.buscaQtdProduto(codvenda);
 	}
@@ -2,17 +2,27 @@ package net.originmobi.pdv.service;
 
 import java.sql.Date;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 
 import net.originmobi.pdv.controller.TituloService;
 import net.originmobi.pdv.enumerado.EntradaSaida;
@@ -30,8 +40,8 @@ import net.originmobi.pdv.model.Usuario;
 import net.originmobi.pdv.model.Venda;
 import net.originmobi.pdv.model.VendaProduto;
 import net.originmobi.pdv.repository.VendaRepository;
+import net.originmobi.pdv.security.UsuarioAtual;
 import net.originmobi.pdv.service.cartao.CartaoLancamentoService;
-import net.originmobi.pdv.singleton.Aplicacao;
 import net.originmobi.pdv.utilitarios.DataAtual;
 
 @Service
@@ -41,7 +51,7 @@ public class VendaService {
 	private VendaRepository vendas;
 
 	@Autowired
-	private UsuarioService usuarios;
+	private UsuarioAtual usuarioAtual;
 
 	@Autowired
 	private VendaProdutoService vendaProdutos;
@@ -70,12 +80,17 @@ public class VendaService {
 	@Autowired
 	private ProdutoService produtos;
 
+	@Autowired
+	private VendaCarrinhoService carrinho;
+
+	@Autowired
+	private ApplicationEventPublisher eventos;
+
 	private Timestamp dataHoraAtual = new Timestamp(System.currentTimeMillis());
 
 	public Long abreVenda(Venda venda) {
 		if (venda.getCodigo() == null) {
-			Aplicacao aplicacao = Aplicacao.getInstancia();
-			Usuario usuario = usuarios.buscaUsuario(aplicacao.getUsuarioAtual());
+			Usuario usuario = usuarioAtual.getUsuario();
 
 			venda.setData_cadastro(dataHoraAtual);
 			venda.setSituacao(VendaSituacao.ABERTA);
@@ -84,6 +99,7 @@ public class VendaService {
 
 			try {
 				vendas.save(venda);
+				eventos.publishEvent(DashboardEvento.vendaAberta());
 			} catch (Exception e) {
 				e.getStackTrace();
 			}
@@ -101,20 +117,56 @@ public class VendaService {
 		return venda.getCodigo();
 	}
 
-	public Page<Venda> busca(VendaFilter filter, String situacao, Pageable pageable) {
+	/*
+	 * Lista as vendas paginando pelo código: depois e antes são os tokens da
+	 * página seguinte e da anterior, sem nenhum deles traz a primeira página. O
+	 * total de vendas só é contado quando contar for verdadeiro
+	 */
+	public PaginaCursor<Venda> busca(VendaFilter filter, String situacao, String depois, String antes,
+			boolean contar, Pageable pageable) {
 
 		VendaSituacao situacaoVenda = situacao.equals("ABERTA") ? VendaSituacao.ABERTA : VendaSituacao.FECHADA;
 
-		if (filter.getCodigo() != null)
-			return vendas.findByCodigoIn(filter.getCodigo(), pageable);
+		if (filter.getCodigo() != null) {
+			List<Venda> venda = vendas.findById(filter.getCodigo()).map(Collections::singletonList)
+					.orElse(Collections.emptyList());
+			return new PaginaCursor<>(venda, null, null, contar ? (long) venda.size() : null);
+		}
+
+		depois = PaginaCursor.token(depois);
+		antes = PaginaCursor.token(antes);
+
+		int tamanho = pageable.getPageSize();
+		Pageable limite = PageRequest.of(0, tamanho + 1);
+		List<Venda> linhas;
+
+		if (antes != null)
+			linhas = vendas.listaAntes(situacaoVenda, codigo(antes), limite);
 		else
-			return vendas.findBySituacaoEquals(situacaoVenda, pageable);
+			linhas = vendas.listaDepois(situacaoVenda, depois != null ? codigo(depois) : 0L, limite);
+
+		Long total = contar ? vendas.countBySituacao(situacaoVenda) : null;
+
+		return PaginaCursor.de(linhas, tamanho, depois, antes, venda -> PaginaCursor.codifica(venda.getCodigo()),
+				total);
+	}
+
+	private Long codigo(String token) {
+		return PaginaCursor.decodifica(token, 1, chave -> Long.valueOf(chave[0]));
 	}
 
 	public String addProduto(Long codVen, Long codPro, Double vlBalanca) {
+		// com o carrinho em memória, a situação da venda só é consultada no primeiro
+		// produto, depois o carrinho recusa os itens quando a venda é fechada
+		if (carrinho.isAtivo() && carrinho.possuiItens(codVen))
+			return carrinho.adiciona(codVen, codPro, vlBalanca);
+
 		String vendaSituacao = vendas.verificaSituacao(codVen);
 
 		if (vendaSituacao.equals(VendaSituacao.ABERTA.toString())) {
+			if (carrinho.isAtivo())
+				return carrinho.adiciona(codVen, codPro, vlBalanca);
+
 			VendaProduto vendaProduto = null;
 
 			vendaProduto = new VendaProduto(codPro, codVen, vlBalanca);
@@ -133,6 +185,10 @@ public class VendaService {
 	}
 
 	public String removeProduto(Long posicaoProd, Long codVenda) {
+		// posições negativas são itens que ainda estão no carrinho em memória
+		if (carrinho.isAtivo() && posicaoProd < 0)
+			return carrinho.remove(codVenda, posicaoProd);
+
 		try {
 			Venda venda = vendas.findByCodigoEquals(codVenda);
 			if (venda.getSituacao().equals(VendaSituacao.ABERTA))
@@ -150,9 +206,49 @@ public class VendaService {
 		return vendas.findAll();
 	}
 
+	/*
+	 * O fechamento e cada uma de suas etapas são medidos em pdv.venda.fechamento
+	 * e pdv.venda.etapa, publicados em /actuator/prometheus. O resultado do
+	 * fechamento, as vendas fechadas, os pagamentos e os itens só são registrados
+	 * depois do commit, um fechamento que falha no commit conta como erro
+	 */
 	@Transactional(readOnly = false, propagation = Propagation.REQUIRED)
 	public String fechaVenda(Long venda, Long pagamentotipo, Double vlprodutos, Double desconto, Double acrescimo,
 			String[] vlParcelas, String[] titulos) {
+		Timer.Sample amostra = Timer.start(Metrics.globalRegistry);
+		String mensagem;
+
+		try {
+			mensagem = fecha(venda, pagamentotipo, vlprodutos, desconto, acrescimo, vlParcelas, titulos);
+		} catch (RuntimeException e) {
+			amostra.stop(Metrics.timer("pdv.venda.fechamento", "resultado", "erro"));
+			throw e;
+		}
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					amostra.stop(Metrics.timer("pdv.venda.fechamento", "resultado",
+							status == TransactionSynchronization.STATUS_COMMITTED ? "sucesso" : "erro"));
+				}
+			});
+		} else {
+			amostra.stop(Metrics.timer("pdv.venda.fechamento", "resultado", "sucesso"));
+		}
+
+		return mensagem;
+	}
+
+	private String fecha(Long venda, Long pagamentotipo, Double vlprodutos, Double desconto, Double acrescimo,
+			String[] vlParcelas, String[] titulos) {
+
+		// grava em lote os produtos que estão no carrinho em memória, a partir daqui
+		// o carrinho não aceita novos itens para a venda. É a primeira leitura da
+		// transação, depois de aguardar um checkpoint da venda em andamento, assim a
+		// movimentação de estoque enxerga os produtos que ele gravou
+		if (carrinho.isAtivo())
+			mede("carrinho", () -> carrinho.fecha(venda));
 
 		if (!vendaIsAberta(venda))
 			throw new RuntimeException("venda fechada");
@@ -188,7 +284,7 @@ public class VendaService {
 				dataAtual.dataAtualTimeStamp(), dadosVenda);
 
 		try {
-			receberServ.cadastrar(receber);
+			mede("receber", () -> receberServ.cadastrar(receber));
 		} catch (Exception e) {
 			System.out.println(e);
 			throw new RuntimeException("Erro ao fechar a venda, chame o suporte");
@@ -219,7 +315,9 @@ public class VendaService {
 
 					Double vl_parcela = Double.valueOf(vlParcelas[i]);
 
-					cartaoLancamento.lancamento(vl_parcela, titulo);
+					mede("cartao", () -> cartaoLancamento.lancamento(vl_parcela, titulo));
+					String tipo = titulo.get().getTipo().getSigla();
+					aposCommit(() -> Metrics.counter("pdv.venda.pagamentos", "tipo", tipo).increment());
 				}
 
 			} else {
@@ -244,9 +342,18 @@ public class VendaService {
 			}
 
 		}
+
+		// a venda só é fechada uma vez, mesmo com várias parcelas
+		eventos.publishEvent(DashboardEvento.vendaFechada());
 		
 		// Responsável por realizar a movimentação de estoque
-		produtos.movimentaEstoque(venda, EntradaSaida.SAIDA);
+		int itens = mede("estoque", () -> produtos.movimentaEstoque(venda, EntradaSaida.SAIDA));
+
+		String forma = String.valueOf(formaPagamento.getDescricao());
+		aposCommit(() -> {
+			Metrics.summary("pdv.venda.itens").record(itens);
+			Metrics.counter("pdv.venda.fechadas", "forma_pagamento", forma).increment();
+		});
 
 		return "Venda finalizada com sucesso";
 	}
@@ -264,9 +371,11 @@ public class VendaService {
 
 		try {
 			Double valor_parcela = (Double.valueOf(vlParcelas[i]) + acre) - desc;
-			parcelas.gerarParcela(valor_parcela, 0.00, 0.00, 0.0, valor_parcela, receber, 0, sequencia,
-					dataAtual.dataAtualTimeStamp(),
-					Date.valueOf(dataAtual.DataAtualIncrementa(Integer.parseInt(formaPagar[i]))));
+			int sequenciaParcela = sequencia;
+			mede("parcela", () -> parcelas.gerarParcela(valor_parcela, 0.00, 0.00, 0.0, valor_parcela, receber, 0,
+					sequenciaParcela, dataAtual.dataAtualTimeStamp(),
+					Date.valueOf(dataAtual.DataAtualIncrementa(Integer.parseInt(formaPagar[i])))));
+			aposCommit(() -> Metrics.counter("pdv.venda.pagamentos", "tipo", "APRAZO").increment());
 
 		} catch (Exception e) {
 			e.getMessage();
@@ -303,27 +412,72 @@ public class VendaService {
 
 		Optional<Caixa> caixa = caixas.caixaAberto();
 
-		Aplicacao aplicacao = Aplicacao.getInstancia();
-		Usuario usuario = usuarios.buscaUsuario(aplicacao.getUsuarioAtual());
+		Usuario usuario = usuarioAtual.getUsuario();
 
 		Double valor_parcela = (Double.valueOf(vlParcelas[i]) + acre) - desc;
 		CaixaLancamento lancamento = new CaixaLancamento("Recebimento de venda á vista", valor_parcela,
 				TipoLancamento.RECEBIMENTO, EstiloLancamento.ENTRADA, caixa.get(), usuario);
 
 		try {
-			lancamentos.lancamento(lancamento);
+			mede("caixa", () -> lancamentos.lancamento(lancamento));
 		} catch (Exception e) {
 			System.out.println(e);
 			throw new RuntimeException("Erro ao fechar a venda, chame o suporte");
 		}
+
+		aposCommit(() -> Metrics.counter("pdv.venda.pagamentos", "tipo", TituloTipo.DIN.toString()).increment());
 		return qtdVezes;
 	}
 
+	/*
+	 * Registra a métrica apenas se a transação for confirmada, fora de
+	 * transação registra em seguida
+	 */
+	private void aposCommit(Runnable registro) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			registro.run();
+			return;
+		}
+
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				registro.run();
+			}
+		});
+	}
+
+	private void mede(String etapa, Runnable operacao) {
+		Metrics.timer("pdv.venda.etapa", "etapa", etapa).record(operacao);
+	}
+
+	private <T> T mede(String etapa, Supplier<T> operacao) {
+		return Metrics.timer("pdv.venda.etapa", "etapa", etapa).record(operacao);
+	}
+
 	private Boolean vendaIsAberta(Long codVenda) {
 		Venda venda = vendas.findByCodigoEquals(codVenda);
 		return venda.isAberta();
 	}
 
+	public List<Object> listaProdutosVenda(Venda venda) {
+		List<Object> produtosVenda = new ArrayList<>(vendaProdutos.listaProdutosVenda(venda));
+
+		if (carrinho.isAtivo())
+			produtosVenda.addAll(carrinho.listaProdutosVenda(venda.getCodigo()));
+
+		return produtosVenda;
+	}
+
+	public Double valorProdutos(Venda venda) {
+		Double valorProdutos = venda.getValor_produtos() == null ? 0.0 : venda.getValor_produtos();
+
+		if (carrinho.isAtivo())
+			valorProdutos += carrinho.valorProdutos(venda.getCodigo());
+
+		return valorProdutos;
+	}
+
 	public int qtdAbertos() {
 		return vendas.qtdVendasEmAberto();
 	}
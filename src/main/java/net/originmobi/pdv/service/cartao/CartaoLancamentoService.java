@@ -23,9 +23,8 @@ import net.originmobi.pdv.model.Usuario;
 import net.originmobi.pdv.model.cartao.CartaoLancamento;
 import net.originmobi.pdv.model.cartao.MaquinaCartao;
 import net.originmobi.pdv.repository.cartao.CartaoLancamentoRepository;
+import net.originmobi.pdv.security.UsuarioAtual;
 import net.originmobi.pdv.service.CaixaLancamentoService;
-import net.originmobi.pdv.service.UsuarioService;
-import net.originmobi.pdv.singleton.Aplicacao;
 import net.originmobi.pdv.utilitarios.DataAtual;
 
 @Service
@@ -38,7 +37,7 @@ public class CartaoLancamentoService {
 	private CaixaLancamentoService caixaLancamentos;
 
 	@Autowired
-	private UsuarioService usuarios;
+	private UsuarioAtual usuarioAtual;
 
 	private LocalDate dataAtual;
 
@@ -113,8 +112,7 @@ public class CartaoLancamentoService {
 		EstiloLancamento estilo = EstiloLancamento.ENTRADA;
 		Caixa banco = cartaoLancamento.getMaquina_cartao().getBanco();
 
-		Aplicacao aplicacao = Aplicacao.getInstancia();
-		Usuario usuario = usuarios.buscaUsuario(aplicacao.getUsuarioAtual());
+		Usuario usuario = usuarioAtual.getUsuario();
 
 		CaixaLancamento lancamento = new CaixaLancamento("Referênte a processamento de cartão", valor, tipo, estilo,
 				banco, usuario);
@@ -146,8 +144,7 @@ public class CartaoLancamentoService {
 		EstiloLancamento estilo = EstiloLancamento.ENTRADA;
 		Caixa banco = cartaoLancamento.getMaquina_cartao().getBanco();
 
-		Aplicacao aplicacao = Aplicacao.getInstancia();
-		Usuario usuario = usuarios.buscaUsuario(aplicacao.getUsuarioAtual());
+		Usuario usuario = usuarioAtual.getUsuario();
 
 		CaixaLancamento lancamento = new CaixaLancamento(
 				"Referênte a antecipação de cartão código " + cartaoLancamento.getCodigo(), valor, tipo, estilo, banco,
@@ -0,0 +1,107 @@
+package net.originmobi.pdv.service.notafiscal;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import net.originmobi.pdv.model.NotaFiscalItemImposto;
+
+/**
+ * Cálculo do ICMS, PIS, COFINS e IPI dos itens da nota.
+ *
+ * Bases e valores são calculados em centavos e as alíquotas em inteiros de 4
+ * casas decimais, sem arredondamentos intermediários de ponto flutuante. Cada
+ * valor é arredondado uma única vez para 2 casas, pela regra da ABNT NBR 5891
+ * (metade para o par), como esperado na validação dos totais pela SEFAZ.
+ */
+public final class CalculoImpostos {
+
+	// base (centavos) x alíquota (4 casas) / 100% resulta em 10^6 partes do centavo
+	private static final long ESCALA = 1_000_000L;
+
+	private CalculoImpostos() {
+	}
+
+	/*
+	 * Calcula os impostos de um item
+	 */
+	public static NotaFiscalItemImposto calcula(double vlTotal, ImpostoRegra regra, char origem, int modBcIcms) {
+		return calcula(new double[] { vlTotal }, new ImpostoRegra[] { regra }, new char[] { origem },
+				new int[] { modBcIcms })[0];
+	}
+
+	/*
+	 * Calcula os impostos de todos os itens de uma vez, a posição de cada
+	 * parâmetro corresponde a um item
+	 */
+	public static NotaFiscalItemImposto[] calcula(double[] vlTotais, ImpostoRegra[] regras, char[] origens,
+			int[] modBcIcms) {
+		int itens = vlTotais.length;
+
+		long[] bases = new long[itens];
+		long[] icms = new long[itens];
+		long[] pis = new long[itens];
+		long[] cofins = new long[itens];
+		long[] ipi = new long[itens];
+
+		for (int i = 0; i < itens; i++)
+			bases[i] = centavos(vlTotais[i]);
+
+		for (int i = 0; i < itens; i++) {
+			ImpostoRegra regra = regras[i];
+			long base = bases[i];
+
+			icms[i] = valor(base, regra.pIcms);
+			pis[i] = valor(base, regra.pPis);
+			cofins[i] = valor(base, regra.pCofins);
+			ipi[i] = valor(base, regra.pIpi);
+		}
+
+		NotaFiscalItemImposto[] impostos = new NotaFiscalItemImposto[itens];
+
+		for (int i = 0; i < itens; i++) {
+			ImpostoRegra regra = regras[i];
+			Double base = reais(bases[i]);
+
+			impostos[i] = new NotaFiscalItemImposto(origens[i] - '0', regra.cstCofins, modBcIcms[i], base,
+					percentual(regra.pIcms), reais(icms[i]), regra.cstPis, base, percentual(regra.pPis), reais(pis[i]),
+					base, percentual(regra.pCofins), reais(cofins[i]), regra.cstCsosn, regra.cstIpi, base,
+					percentual(regra.pIpi), reais(ipi[i]));
+		}
+
+		return impostos;
+	}
+
+	/*
+	 * Valor do imposto em centavos, arredondado metade para o par
+	 */
+	static long valor(long base, long aliquota) {
+		long produto = base * aliquota;
+		long valor = produto / ESCALA;
+		long resto = produto % ESCALA;
+
+		if (resto * 2 > ESCALA || (resto * 2 == ESCALA && (valor & 1) == 1))
+			valor++;
+
+		return valor;
+	}
+
+	static long centavos(double valor) {
+		return BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+	}
+
+	static long aliquota(Double percentual) {
+		if (percentual == null)
+			return 0L;
+
+		return BigDecimal.valueOf(percentual).setScale(4, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+	}
+
+	private static Double reais(long centavos) {
+		return centavos / 100.0;
+	}
+
+	private static Double percentual(long aliquota) {
+		return aliquota / 10_000.0;
+	}
+
+}
@@ -0,0 +1,57 @@
+package net.originmobi.pdv.service.notafiscal;
+
+import net.originmobi.pdv.model.TributacaoRegra;
+
+/**
+ * Dados de uma regra de tributação já preparados para o cálculo dos impostos.
+ *
+ * Os CSTs são convertidos para número e as alíquotas para inteiros em
+ * décimos de milésimo de por cento (4 casas decimais) uma única vez, quando a
+ * regra é indexada pelo TributacaoRegraCache, e não a cada item calculado.
+ */
+public final class ImpostoRegra {
+
+	final int cstCsosn;
+	final int cstPis;
+	final int cstCofins;
+	final int cstIpi;
+
+	final long pIcms;
+	final long pPis;
+	final long pCofins;
+	final long pIpi;
+
+	final String cfop;
+
+	private ImpostoRegra(int cstCsosn, int cstPis, int cstCofins, int cstIpi, long pIcms, long pPis, long pCofins,
+			long pIpi, String cfop) {
+		this.cstCsosn = cstCsosn;
+		this.cstPis = cstPis;
+		this.cstCofins = cstCofins;
+		this.cstIpi = cstIpi;
+		this.pIcms = pIcms;
+		this.pPis = pPis;
+		this.pCofins = pCofins;
+		this.pIpi = pIpi;
+		this.cfop = cfop;
+	}
+
+	public static ImpostoRegra de(TributacaoRegra regra) {
+		try {
+			return new ImpostoRegra(Integer.parseInt(regra.getCst_csosn().getCst_csosn()),
+					Integer.parseInt(regra.getCst_pis().getCst()), Integer.parseInt(regra.getCst_cofins().getCst()),
+					Integer.parseInt(regra.getCst_ipi().getCst()), CalculoImpostos.aliquota(regra.getAliq_icms()),
+					CalculoImpostos.aliquota(regra.getPis()), CalculoImpostos.aliquota(regra.getCofins()),
+					CalculoImpostos.aliquota(regra.getAliq_ipi()),
+					regra.getCfop() == null ? null : regra.getCfop().getCfop());
+		} catch (Exception e) {
+			System.out.println(e);
+			throw new RuntimeException("erro ao calcular os impostos da nota");
+		}
+	}
+
+	public String getCfop() {
+		return cfop;
+	}
+
+}
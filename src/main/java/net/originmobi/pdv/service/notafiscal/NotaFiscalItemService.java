@@ -1,6 +1,10 @@
 package net.originmobi.pdv.service.notafiscal;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +24,7 @@ import net.originmobi.pdv.model.Tributacao;
 import net.originmobi.pdv.model.TributacaoRegra;
 import net.originmobi.pdv.repository.notafiscal.NotaFiscalItemRepository;
 import net.originmobi.pdv.service.ProdutoService;
+import net.originmobi.pdv.service.TributacaoRegraCache;
 
 @Service
 public class NotaFiscalItemService {
@@ -39,66 +44,53 @@ public class NotaFiscalItemService {
 	@Autowired
 	private NotaFiscalService notas;
 
+	@Autowired
+	private TributacaoRegraCache regras;
+
 	@Transactional(readOnly = false, propagation = Propagation.REQUIRED)
 	public String insere(Long prod, Long codnota, int qtd, NotaFiscalTipo tipo) {
-		Optional<Produto> produto = produtos.buscaProduto(prod);
-		Optional<NotaFiscal> notaFiscal = notas.busca(codnota);
+		Produto produto = produtos.buscaProduto(prod)
+				.orElseThrow(() -> new RuntimeException("Nenhum produto encontrado, favor verifique"));
+		NotaFiscal notaFiscal = notas.busca(codnota).get();
 
 		verificaRegraDeTributacao(tipo, produto);
 
-		Tributacao tributacao = produto.map(Produto::getTributacao).get();
+		Tributacao tributacao = produto.getTributacao();
 
 		Long codImposto = null;
 		Long codNotaItem = null;
+		NotaFiscalItemValores anterior = null;
 
 		// verifica se já tem o item
-		for (int i = 0; i < notaFiscal.map(NotaFiscal::getItens).get().size(); i++) {
-			if (notaFiscal.map(NotaFiscal::getItens).get().get(i).getCodProd().equals(prod)) {
+		for (NotaFiscalItem itemNota : notaFiscal.getItens()) {
+			if (itemNota.getCodProd().equals(prod)) {
 
-				qtd = qtd + notaFiscal.map(NotaFiscal::getItens).get().get(i).getQtd();
-				codImposto = notaFiscal.map(NotaFiscal::getItens).get().get(i).getImpostos().getCodigo();
-				codNotaItem = notaFiscal.map(NotaFiscal::getItens).get().get(i).getCodigo();
-			}
-		}
+				qtd = qtd + itemNota.getQtd();
+				codImposto = itemNota.getImpostos().getCodigo();
+				codNotaItem = itemNota.getCodigo();
 
-		char origin = tributacao.getRegra().get(0).getCst_csosn().getCst_csosn().toString().charAt(0);
-		Double vlTotal = produto.map(Produto::getValor_venda).get() * qtd;
-		String uniTribu = produto.map(Produto::getUnidade).get();
-		int modBcIcms = produto.map(Produto::getModBcIcms).get().getTipo();
-		Double vlUnidade = produto.map(Produto::getValor_venda).get();
-
-		// pega uf do destinatário
-		String ufDestinatario = notaFiscal.map(NotaFiscal::getDestinatario).get().getEndereco().getCidade().getEstado()
-				.getSigla();
-
-		TributacaoRegra regra = null;
-
-		// pega a regra da tributação do produto que é da mesma uf do destinatário e do
-		// mesmo
-		// estilo da nota
-		for (int i = 0; i < produto.map(Produto::getTributacao).get().getRegra().size(); i++) {
-			String ufRegra = produto.map(Produto::getTributacao).get().getRegra().get(i).getUf().getSigla();
-			String tipoRegra = produto.map(Produto::getTributacao).get().getRegra().get(i).getTipo().toString();
-			String tipoNota = notaFiscal.map(NotaFiscal::getTipo).get().toString();
-
-			if (ufRegra.equals(ufDestinatario)) {
-				if (tipoRegra.equals(tipoNota)) {
-					regra = produto.map(Produto::getTributacao).get().getRegra().get(i);
-				}
+				// valores do item antes da alteração, o imposto é recalculado no mesmo objeto
+				anterior = NotaFiscalItemValores.de(itemNota);
 			}
 		}
 
-		if (regra == null)
-			throw new RuntimeException("Nenhuma regra de tributação cadastrada para a UF do destinatário");
+		char origin = regras.origem(tributacao.getCodigo());
+		Double vlTotal = produto.getValor_venda() * qtd;
+		String uniTribu = produto.getUnidade();
+		int modBcIcms = produto.getModBcIcms().getTipo();
+		Double vlUnidade = produto.getValor_venda();
+
+		TributacaoRegra regra = regra(tributacao, notaFiscal);
 
 		String cfop = regra.getCfop().getCfop();
 
 		// calcula impostos da nota
-		NotaFiscalItemImposto imposto = impostos.calcula(codImposto, vlTotal, regra, origin, modBcIcms);
+		NotaFiscalItemImposto imposto = impostos.calcula(codImposto, vlTotal, regras.impostos(regra), origin,
+				modBcIcms);
 
 		// cria item da nota com imposto vinculado
-		NotaFiscalItem item = new NotaFiscalItem(prod, qtd, vlTotal, uniTribu, qtd, vlUnidade, notaFiscal.get(),
-				imposto, cfop);
+		NotaFiscalItem item = new NotaFiscalItem(prod, qtd, vlTotal, uniTribu, qtd, vlUnidade, notaFiscal, imposto,
+				cfop);
 
 		// se for diferente de null, se trata de uma atualização
 		if (codNotaItem != null)
@@ -111,17 +103,190 @@ public class NotaFiscalItemService {
 			throw new RuntimeException("Erro ao salvar item na nota, chame o suporte");
 		}
 
-		// atualiza totais da nota
-		NotaFiscalTotais total = notaFiscal.get().getTotais();
-		Long codNota = notaFiscal.get().getCodigo();
-		totais.atualiza(codNota, total);
+		// soma aos totais da nota a diferença do item
+		NotaFiscalTotais total = notaFiscal.getTotais();
+		Long codNota = notaFiscal.getCodigo();
+		totais.atualiza(codNota, total, anterior, NotaFiscalItemValores.de(item));
 
 		return "ok";
 	}
 
+	/*
+	 * Inclui vários produtos na nota de uma vez, os produtos são buscados em uma
+	 * única consulta, os itens e impostos são gravados em lotes JDBC e os totais
+	 * da nota são calculados uma única vez no final. Retorna a quantidade de
+	 * itens incluídos ou alterados
+	 */
+	@Transactional(readOnly = false, propagation = Propagation.REQUIRED)
+	public int insereLote(Long codnota, List<Long> codigos, List<Integer> quantidades, NotaFiscalTipo tipo) {
+		if (codigos == null || codigos.isEmpty())
+			throw new RuntimeException("Nenhum produto informado");
+
+		if (quantidades == null || quantidades.size() != codigos.size())
+			throw new RuntimeException("Informe a quantidade de cada produto");
+
+		NotaFiscal notaFiscal = notas.busca(codnota)
+				.orElseThrow(() -> new RuntimeException("Nota fiscal não encontrada"));
+
+		// soma as quantidades de produtos repetidos na lista
+		Map<Long, Integer> qtdPorProduto = new LinkedHashMap<>();
+		for (int i = 0; i < codigos.size(); i++)
+			qtdPorProduto.merge(codigos.get(i), quantidades.get(i), Integer::sum);
+
+		Map<Long, Produto> produtosPorCodigo = new HashMap<>();
+		for (Produto produto : produtos.buscaProdutos(qtdPorProduto.keySet()))
+			produtosPorCodigo.put(produto.getCodigo(), produto);
+
+		Map<Long, NotaFiscalItem> itensDaNota = new HashMap<>();
+		for (NotaFiscalItem itemNota : notaFiscal.getItens())
+			itensDaNota.put(itemNota.getCodProd(), itemNota);
+
+		int quantidade = qtdPorProduto.size();
+		Produto[] produtosDoLote = new Produto[quantidade];
+		int[] qtds = new int[quantidade];
+		double[] vlTotais = new double[quantidade];
+		ImpostoRegra[] impostosRegra = new ImpostoRegra[quantidade];
+		char[] origens = new char[quantidade];
+		int[] modBcIcms = new int[quantidade];
+
+		int i = 0;
+		for (Map.Entry<Long, Integer> linha : qtdPorProduto.entrySet()) {
+			Produto produto = produtosPorCodigo.get(linha.getKey());
+
+			if (produto == null)
+				throw new RuntimeException("Produto " + linha.getKey() + " não encontrado, favor verifique");
+
+			verificaRegraDeTributacao(tipo, produto);
+
+			Tributacao tributacao = produto.getTributacao();
+			NotaFiscalItem existente = itensDaNota.get(produto.getCodigo());
+
+			produtosDoLote[i] = produto;
+			qtds[i] = linha.getValue() + (existente == null ? 0 : existente.getQtd());
+			vlTotais[i] = produto.getValor_venda() * qtds[i];
+			impostosRegra[i] = regras.impostos(regra(tributacao, notaFiscal));
+			origens[i] = regras.origem(tributacao.getCodigo());
+			modBcIcms[i] = produto.getModBcIcms().getTipo();
+			i++;
+		}
+
+		// calcula os impostos de todos os itens em uma única chamada
+		NotaFiscalItemImposto[] calculados = impostos.calcula(vlTotais, impostosRegra, origens, modBcIcms);
+
+		List<NotaFiscalItem> novos = new ArrayList<>();
+		List<NotaFiscalItem> alterados = new ArrayList<>();
+
+		for (i = 0; i < quantidade; i++) {
+			Produto produto = produtosDoLote[i];
+			NotaFiscalItem existente = itensDaNota.get(produto.getCodigo());
+			NotaFiscalItemImposto imposto = calculados[i];
+
+			NotaFiscalItem item = new NotaFiscalItem(produto.getCodigo(), qtds[i], vlTotais[i], produto.getUnidade(),
+					qtds[i], produto.getValor_venda(), notaFiscal, imposto, impostosRegra[i].getCfop());
+
+			if (existente == null) {
+				novos.add(item);
+			} else {
+				item.setCodigo(existente.getCodigo());
+				imposto.setCodigo(existente.getImpostos().getCodigo());
+				alterados.add(item);
+			}
+		}
+
+		try {
+			itemServer.insereEmLote(novos);
+			itemServer.atualizaEmLote(alterados);
+		} catch (Exception e) {
+			System.out.println(e);
+			throw new RuntimeException("Erro ao salvar itens na nota, chame o suporte");
+		}
+
+		totais.recalcula(notaFiscal.getCodigo(), notaFiscal.getTotais());
+
+		return novos.size() + alterados.size();
+	}
+
+	/*
+	 * Recalcula os impostos e o CFOP de todos os itens da nota com as regras de
+	 * tributação atuais, usado após alterar uma regra. Os impostos são calculados
+	 * em uma única chamada, gravados em lote e os totais somados uma vez
+	 */
+	@Transactional(readOnly = false, propagation = Propagation.REQUIRED)
+	public int recalculaImpostos(Long codnota) {
+		NotaFiscal notaFiscal = notas.busca(codnota)
+				.orElseThrow(() -> new RuntimeException("Nota fiscal não encontrada"));
+
+		if (notaFiscal.getChave_acesso() != null)
+			throw new RuntimeException("Nota fiscal já emitida, os impostos não podem ser alterados");
+
+		List<NotaFiscalItem> itensDaNota = notaFiscal.getItens();
+		int quantidade = itensDaNota.size();
+
+		if (quantidade == 0)
+			return 0;
+
+		Map<Long, Produto> produtosPorCodigo = new HashMap<>();
+		List<Long> codigos = new ArrayList<>(quantidade);
+		for (NotaFiscalItem item : itensDaNota)
+			codigos.add(item.getCodProd());
+		for (Produto produto : produtos.buscaProdutos(codigos))
+			produtosPorCodigo.put(produto.getCodigo(), produto);
+
+		double[] vlTotais = new double[quantidade];
+		ImpostoRegra[] impostosRegra = new ImpostoRegra[quantidade];
+		char[] origens = new char[quantidade];
+		int[] modBcIcms = new int[quantidade];
+
+		for (int i = 0; i < quantidade; i++) {
+			NotaFiscalItem item = itensDaNota.get(i);
+			Produto produto = produtosPorCodigo.get(item.getCodProd());
+
+			if (produto == null || produto.getTributacao() == null)
+				throw new RuntimeException("Produto " + item.getCodProd() + " sem tributação, favor verifique");
+
+			Tributacao tributacao = produto.getTributacao();
+
+			vlTotais[i] = item.getVlTotal();
+			impostosRegra[i] = regras.impostos(regra(tributacao, notaFiscal));
+			origens[i] = regras.origem(tributacao.getCodigo());
+			modBcIcms[i] = item.getImpostos().getMod_bc();
+		}
+
+		NotaFiscalItemImposto[] calculados = impostos.calcula(vlTotais, impostosRegra, origens, modBcIcms);
+
+		// grava cópias desanexadas, alterar os itens da nota faria o Hibernate
+		// atualizar cada item de novo no commit
+		List<NotaFiscalItem> alterados = new ArrayList<>(quantidade);
+
+		for (int i = 0; i < quantidade; i++) {
+			NotaFiscalItem item = itensDaNota.get(i);
+			NotaFiscalItemImposto imposto = calculados[i];
+			imposto.setCodigo(item.getImpostos().getCodigo());
+
+			NotaFiscalItem alterado = new NotaFiscalItem(item.getCodProd(), item.getQtd(), item.getVlTotal(),
+					item.getUnidade_tribu(), item.getQtd_tribu(), item.getV_uniTribu(), notaFiscal, imposto,
+					impostosRegra[i].getCfop());
+			alterado.setCodigo(item.getCodigo());
+			alterados.add(alterado);
+		}
+
+		try {
+			itemServer.atualizaEmLote(alterados);
+		} catch (Exception e) {
+			System.out.println(e);
+			throw new RuntimeException("Erro ao recalcular os impostos da nota, chame o suporte");
+		}
+
+		totais.recalcula(notaFiscal.getCodigo(), notaFiscal.getTotais());
+
+		return quantidade;
+	}
+
 	@Transactional(readOnly = false, propagation = Propagation.REQUIRED)
 	public void remove(Long notaitem, Long codnota) {
-		
+		NotaFiscalItemValores removido = itemServer.findById(notaitem).map(NotaFiscalItemValores::de)
+				.orElseThrow(() -> new RuntimeException("Item da nota não encontrado"));
+
 		try {
 			itemServer.deleteById(notaitem);
 		} catch (Exception e) {
@@ -131,45 +296,47 @@ public class NotaFiscalItemService {
 		
 		Optional<NotaFiscal> notaFiscal = notas.busca(codnota);
 		NotaFiscalTotais total = notaFiscal.get().getTotais();
-		totais.atualiza(codnota, total);
+		totais.atualiza(codnota, total, removido, null);
 	}
 
-	private void verificaRegraDeTributacao(NotaFiscalTipo tipo, Optional<Produto> produto) {
-		if (!produto.isPresent())
-			throw new RuntimeException("Nenhum produto encontrado, favor verifique");
+	/*
+	 * Regra da tributação para a UF do destinatário e o tipo da nota
+	 */
+	private TributacaoRegra regra(Tributacao tributacao, NotaFiscal notaFiscal) {
+		String ufDestinatario = notaFiscal.getDestinatario().getEndereco().getCidade().getEstado().getSigla();
+
+		TributacaoRegra regra = regras.regra(tributacao.getCodigo(), ufDestinatario,
+				EntradaSaida.valueOf(notaFiscal.getTipo().name()));
+
+		if (regra == null)
+			throw new RuntimeException("Nenhuma regra de tributação cadastrada para a UF do destinatário");
+
+		return regra;
+	}
 
-		if (!produto.map(Produto::getTributacao).isPresent())
+	private void verificaRegraDeTributacao(NotaFiscalTipo tipo, Produto produto) {
+		if (produto.getTributacao() == null)
 			throw new RuntimeException("Produto sem tributação, favor verifique");
 
-		if (produto.map(Produto::getNcm).get().isEmpty())
+		if (produto.getNcm().isEmpty())
 			throw new RuntimeException("Produto sem código NCM, favor verifique");
 
-		if (produto.map(Produto::getSubtributaria).get().ordinal() == ProdutoSubstTributaria.SIM.ordinal()
-				&& produto.map(Produto::getCest).get().isEmpty())
+		if (produto.getSubtributaria().ordinal() == ProdutoSubstTributaria.SIM.ordinal()
+				&& produto.getCest().isEmpty())
 			throw new RuntimeException("Produto de substituição tributária sem código CEST, favor verifique");
 
-		if (produto.map(Produto::getUnidade).get().isEmpty())
+		if (produto.getUnidade().isEmpty())
 			throw new RuntimeException("Produto sem unidade, favor verifique");
 
 		// verifica se a tributação do produto possue regra para o estilo de nota
 		// selecionado
-		if (tipo.equals(NotaFiscalTipo.SAIDA)) {
-			int aux = 0;
-			for (int i = 0; i < produto.map(Produto::getTributacao).get().getRegra().size(); i++) {
-				if (produto.map(Produto::getTributacao).get().getRegra().get(i).getTipo().equals(EntradaSaida.SAIDA))
-					aux = aux + 1;
-			}
+		Long tributacao = produto.getTributacao().getCodigo();
 
-			if (aux == 0)
+		if (tipo.equals(NotaFiscalTipo.SAIDA)) {
+			if (!regras.possuiRegra(tributacao, EntradaSaida.SAIDA))
 				throw new RuntimeException("Tributação sem regra de saída, verifique");
 		} else {
-			int aux = 0;
-			for (int i = 0; i < produto.map(Produto::getTributacao).get().getRegra().size(); i++) {
-				if (produto.map(Produto::getTributacao).get().getRegra().get(i).getTipo().equals(EntradaSaida.ENTRADA))
-					aux = aux + 1;
-			}
-
-			if (aux == 0)
+			if (!regras.possuiRegra(tributacao, EntradaSaida.ENTRADA))
 				throw new RuntimeException("Tributação sem regra de entrada, verifique");
 		}
 	}
@@ -0,0 +1,62 @@
+package net.originmobi.pdv.service.notafiscal;
+
+import net.originmobi.pdv.model.NotaFiscalItem;
+import net.originmobi.pdv.model.NotaFiscalItemImposto;
+import net.originmobi.pdv.repository.notafiscal.NotaFiscalTotaisCalculo;
+
+/*
+ * Cópia dos valores de um item que entram nos totais da nota, tirada antes do
+ * item ou do seu imposto serem alterados
+ */
+class NotaFiscalItemValores implements NotaFiscalTotaisCalculo {
+
+	private final Double produtos;
+	private final Double icms;
+	private final Double pis;
+	private final Double cofins;
+	private final Double ipi;
+
+	NotaFiscalItemValores(Double produtos, Double icms, Double pis, Double cofins, Double ipi) {
+		this.produtos = produtos;
+		this.icms = icms;
+		this.pis = pis;
+		this.cofins = cofins;
+		this.ipi = ipi;
+	}
+
+	static NotaFiscalItemValores de(NotaFiscalItem item) {
+		NotaFiscalItemImposto imposto = item.getImpostos();
+
+		if (imposto == null)
+			return new NotaFiscalItemValores(item.getVlTotal(), 0.0, 0.0, 0.0, 0.0);
+
+		return new NotaFiscalItemValores(item.getVlTotal(), imposto.getV_icms(), imposto.getV_pis(),
+				imposto.getV_cofins(), imposto.getV_ipi());
+	}
+
+	@Override
+	public Double getProdutos() {
+		return produtos;
+	}
+
+	@Override
+	public Double getIcms() {
+		return icms;
+	}
+
+	@Override
+	public Double getPis() {
+		return pis;
+	}
+
+	@Override
+	public Double getCofins() {
+		return cofins;
+	}
+
+	@Override
+	public Double getIpi() {
+		return ipi;
+	}
+
+}
@@ -0,0 +1,205 @@
+package net.originmobi.pdv.service.notafiscal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import net.originmobi.pdv.enumerado.notafiscal.NotaFiscalEmissaoSituacao;
+import net.originmobi.pdv.model.NotaFiscal;
+
+/**
+ * Emissão de notas fiscais em lote.
+ *
+ * Cada nota do lote é gerada, assinada e gravada por um pool de threads, em
+ * uma transação própria, assim a falha de uma nota não interrompe as demais. A
+ * situação e o tempo de cada etapa da emissão ficam disponíveis por nota até o
+ * lote expirar (pdv.nfe.lote.ttl). A fila aceita até pdv.nfe.lote.capacidade
+ * notas aguardando, um lote que não cabe inteiro na fila é recusado.
+ */
+@Service
+public class NotaFiscalLoteService {
+
+	@Value("${pdv.nfe.lote.threads:4}")
+	private int threads;
+
+	@Value("${pdv.nfe.lote.capacidade:500}")
+	private int capacidade;
+
+	@Value("${pdv.nfe.lote.ttl:3600000}")
+	private long ttl;
+
+	@Autowired
+	private NotaFiscalService notasFiscais;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private ThreadPoolExecutor executor;
+
+	private final Map<String, Lote> lotes = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void inicia() {
+		executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacidade));
+	}
+
+	@PreDestroy
+	public void encerra() {
+		executor.shutdownNow();
+	}
+
+	/*
+	 * Enfileira a emissão das notas informadas e retorna o id do lote
+	 */
+	public synchronized String emite(List<Long> codigos) {
+		if (codigos == null || codigos.isEmpty())
+			throw new RuntimeException("Nenhuma nota fiscal informada para emissão");
+
+		Lote lote = new Lote(UUID.randomUUID().toString());
+
+		for (Long codigo : codigos)
+			lote.notas.putIfAbsent(codigo, new NotaEmissao(codigo));
+
+		if (lote.notas.size() > capacidade)
+			throw new RuntimeException("O lote pode ter no máximo " + capacidade + " notas fiscais");
+
+		if (lote.notas.size() > executor.getQueue().remainingCapacity())
+			throw new RuntimeException("Fila de emissão de notas fiscais cheia, tente novamente em instantes");
+
+		lote.pendentes = lote.notas.size();
+		lotes.put(lote.id, lote);
+
+		for (NotaEmissao nota : lote.notas.values()) {
+			try {
+				executor.execute(() -> emite(lote, nota));
+			} catch (RejectedExecutionException e) {
+				nota.mensagem = "Fila de emissão de notas fiscais cheia, tente novamente em instantes";
+				nota.situacao = NotaFiscalEmissaoSituacao.ERRO;
+				lote.finaliza();
+			}
+		}
+
+		return lote.id;
+	}
+
+	public Map<String, Object> situacao(String id) {
+		Lote lote = lotes.get(id);
+		Map<String, Object> situacao = new HashMap<>();
+
+		situacao.put("id", id);
+
+		if (lote == null) {
+			situacao.put("situacao", "NAO_ENCONTRADO");
+			return situacao;
+		}
+
+		List<Map<String, Object>> notas = new ArrayList<>();
+		int emitidas = 0, erros = 0;
+
+		for (NotaEmissao nota : lote.notas.values()) {
+			Map<String, Object> situacaoNota = new HashMap<>();
+			situacaoNota.put("codigo", nota.codigo);
+			situacaoNota.put("situacao", nota.situacao);
+			situacaoNota.put("chave", nota.chave);
+			situacaoNota.put("mensagem", nota.mensagem);
+			situacaoNota.put("tempos", nota.tempos);
+			notas.add(situacaoNota);
+
+			if (nota.situacao.equals(NotaFiscalEmissaoSituacao.EMITIDA))
+				emitidas++;
+			else if (nota.situacao.equals(NotaFiscalEmissaoSituacao.ERRO))
+				erros++;
+		}
+
+		situacao.put("total", lote.notas.size());
+		situacao.put("emitidas", emitidas);
+		situacao.put("erros", erros);
+		situacao.put("concluido", emitidas + erros == lote.notas.size());
+		situacao.put("notas", notas);
+		return situacao;
+	}
+
+	/*
+	 * Remove os lotes concluídos há mais tempo que o ttl
+	 */
+	@Scheduled(fixedDelayString = "${pdv.nfe.lote.limpeza:600000}")
+	public void removeExpirados() {
+		lotes.values().removeIf(lote -> lote.expirado(ttl));
+	}
+
+	private void emite(Lote lote, NotaEmissao nota) {
+		nota.situacao = NotaFiscalEmissaoSituacao.PROCESSANDO;
+
+		try {
+			new TransactionTemplate(transactionManager).execute(status -> {
+				NotaFiscal notaFiscal = notasFiscais.busca(nota.codigo)
+						.orElseThrow(() -> new RuntimeException("Nota fiscal não encontrada"));
+
+				notasFiscais.emitir(notaFiscal, nota.tempos);
+				nota.chave = notaFiscal.getChave_acesso();
+				return null;
+			});
+
+			nota.situacao = NotaFiscalEmissaoSituacao.EMITIDA;
+		} catch (Exception e) {
+			System.out.println("Erro ao emitir nota fiscal " + nota.codigo + ": " + e);
+			nota.mensagem = e.getMessage() == null ? "Erro ao emitir nota fiscal, chame o suporte" : e.getMessage();
+			nota.situacao = NotaFiscalEmissaoSituacao.ERRO;
+		} finally {
+			lote.finaliza();
+		}
+	}
+
+	private static class Lote {
+		private final String id;
+		private final Map<Long, NotaEmissao> notas = new LinkedHashMap<>();
+
+		private int pendentes;
+		private volatile long concluido;
+
+		Lote(String id) {
+			this.id = id;
+		}
+
+		synchronized void finaliza() {
+			if (--pendentes == 0)
+				concluido = System.currentTimeMillis();
+		}
+
+		boolean expirado(long ttl) {
+			return concluido > 0 && System.currentTimeMillis() - concluido > ttl;
+		}
+	}
+
+	private static class NotaEmissao {
+		private final Long codigo;
+		private final Map<String, Long> tempos = new ConcurrentHashMap<>();
+
+		private volatile NotaFiscalEmissaoSituacao situacao = NotaFiscalEmissaoSituacao.AGUARDANDO;
+		private volatile String chave;
+		private volatile String mensagem;
+
+		NotaEmissao(Long codigo) {
+			this.codigo = codigo;
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+package net.originmobi.pdv.service.notafiscal;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import net.originmobi.pdv.model.NotaFiscalNumeracao;
+import net.originmobi.pdv.repository.notafiscal.NotaFiscalNumeracaoRepository;
+
+/**
+ * Numeração das NF-e por série.
+ *
+ * O próximo número de cada série fica na tabela nota_fiscal_numeracao, e a
+ * linha da série é bloqueada só durante a reserva, sem percorrer a nota_fiscal.
+ *
+ * Com pdv.nfe.numeracao.bloco igual a 1 (padrão) o número é reservado na
+ * mesma transação do cadastro da nota, assim se o cadastro falhar a reserva
+ * também é desfeita e a numeração não tem falhas; notas de uma mesma série
+ * aguardam o fim do cadastro anterior. Com blocos maiores os números são
+ * reservados em uma transação própria e distribuídos em memória, o que evita
+ * a espera entre os cadastros, mas os números não usados de um bloco (cadastro
+ * com erro ou sistema reiniciado) ficam sem nota e devem ser inutilizados.
+ */
+@Service
+public class NotaFiscalNumeracaoService {
+
+	@Value("${pdv.nfe.numeracao.bloco:1}")
+	private int bloco;
+
+	@Autowired
+	private NotaFiscalNumeracaoRepository numeracoes;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private final Map<Integer, Reserva> reservas = new ConcurrentHashMap<>();
+
+	/*
+	 * Retorna o próximo número da série
+	 */
+	public Long proximo(int serie) {
+		if (bloco <= 1)
+			return reserva(serie, 1, TransactionDefinition.PROPAGATION_REQUIRED);
+
+		Reserva reserva = reservas.computeIfAbsent(serie, s -> new Reserva());
+
+		synchronized (reserva) {
+			if (reserva.proximo >= reserva.fim) {
+				reserva.proximo = reserva(serie, bloco, TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+				reserva.fim = reserva.proximo + bloco;
+			}
+
+			return reserva.proximo++;
+		}
+	}
+
+	/*
+	 * Reserva a quantidade de números na série, retornando o primeiro deles
+	 */
+	private long reserva(int serie, int quantidade, int propagacao) {
+		TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+		transacao.setPropagationBehavior(propagacao);
+
+		try {
+			return transacao.execute(status -> {
+				NotaFiscalNumeracao numeracao = numeracoes.bloqueia(serie).orElseGet(() -> {
+					numeracoes.inicia(serie);
+					return numeracoes.bloqueia(serie)
+							.orElseThrow(() -> new RuntimeException("Numeração da série " + serie + " não encontrada"));
+				});
+
+				long numero = numeracao.getProximo();
+				numeracao.setProximo(numero + quantidade);
+				numeracoes.save(numeracao);
+
+				return numero;
+			});
+		} catch (Exception e) {
+			System.out.println("Erro ao reservar número da série " + serie + " " + e);
+			throw new RuntimeException("Erro ao gerar o número da nota, chame o suporte");
+		}
+	}
+
+	private static class Reserva {
+		private long proximo;
+		private long fim;
+	}
+
+}
@@ -1,20 +1,19 @@
 package net.originmobi.pdv.service.notafiscal;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.w3c.dom.Document;
 
 import net.originmobi.pdv.enumerado.notafiscal.NotaFiscalTipo;
 import net.originmobi.pdv.model.Empresa;
@@ -24,6 +23,7 @@ import net.originmobi.pdv.model.NotaFiscalFinalidade;
 import net.originmobi.pdv.model.NotaFiscalTotais;
 import net.originmobi.pdv.model.Pessoa;
 import net.originmobi.pdv.repository.notafiscal.NotaFiscalRepository;
+import net.originmobi.pdv.service.DashboardEvento;
 import net.originmobi.pdv.service.EmpresaService;
 import net.originmobi.pdv.service.PessoaService;
 import net.originmobi.pdv.xml.nfe.GeraXmlNfe;
@@ -43,6 +43,18 @@ public class NotaFiscalService {
 	@Autowired
 	private PessoaService pessoas;
 
+	@Autowired
+	private GeraXmlNfe geraXmlNfe;
+
+	@Autowired
+	private NotaFiscalXmlService arquivosXml;
+
+	@Autowired
+	private NotaFiscalNumeracaoService numeracao;
+
+	@Autowired
+	private ApplicationEventPublisher eventos;
+
 	private LocalDate dataAtual;
 
 	private static final String CAMINHO_XML = "/src/main/resources/xmlNfe/";
@@ -96,13 +108,14 @@ public class NotaFiscalService {
 		// cadastra a nota fiscal
 		NotaFiscal nota = null;
 		try {
-			// pega ultima nota cadastradas + 1
-			Long numeroNota = notasFiscais.buscaUltimaNota(serie);
+			// reserva o próximo número da série
+			Long numeroNota = numeracao.proximo(serie);
 
 			NotaFiscal notaFiscal = new NotaFiscal(numeroNota, modelo, tipo, natureza, serie, empresa.get(),
 					pessoa.get(), tipoEmissao, verProc, frete, finalidade, totais, tipoAmbiente, cadastro);
 
 			nota = notasFiscais.save(notaFiscal);
+			eventos.publishEvent(DashboardEvento.notaCadastrada());
 
 		} catch (Exception e) {
 			System.out.println("Erro " + e);
@@ -113,7 +126,7 @@ public class NotaFiscalService {
 	}
 
 	//Implementa um algoritmo para gerar o Dígito Verificador (DV) de um código numerico
-	public Integer geraDV(String codigo) {
+	public static Integer geraDV(String codigo) {
 		try {
 			int total = 0;
 			int peso = 2;
@@ -132,28 +145,9 @@ public class NotaFiscalService {
 		}
 	}
 
-	//Salva o XML da nota fiscal no diretório 
-	//O arquivo é nomeado com a chave da NF-e (chaveNfe.xml) -- Exemplo: 123456789.xml.
-	public void salvaXML(String xml, String chaveNfe) {
-		Path DIRETORIO;
-		String contexto = "";
-
-		try {
-			contexto = new File(".").getCanonicalPath();
-		} catch (Exception e) {
-			System.out.println("Erro ao pegar o contexto " + e);
-		}
-
-		DIRETORIO = Paths.get(contexto + CAMINHO_XML);
-
-		try {
-			PrintWriter out = new PrintWriter(new FileWriter(DIRETORIO.toString() + "/" + chaveNfe + ".xml"));
-			out.write(xml);
-			out.close();
-			System.out.println("Arquivo gravado com sucesso em " + DIRETORIO.toString());
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+	//grava o documento já assinado, compactado, no arquivo de XMLs
+	public void salvaXML(Document xml, String chaveNfe) {
+		arquivosXml.grava(chaveNfe, xml);
 	}
 
 	//responsável por remover o xml quando o mesmo já existe na nota que foi regerada
@@ -174,6 +168,8 @@ public class NotaFiscalService {
 		} catch (Exception e) {
 			System.out.println("Erro ao deletar XML " + e);
 		}
+
+		arquivosXml.remove(chave_acesso);
 	}
 
 	//Consulta uma nota fiscal pelo código/ID.
@@ -183,10 +179,13 @@ public class NotaFiscalService {
 
 	//Responsável por gerar o XML oficial da NF-e
 	public void emitir(NotaFiscal notaFiscal) {
-		GeraXmlNfe geraXmlNfe = new GeraXmlNfe();
+		emitir(notaFiscal, new HashMap<>());
+	}
 
+	//Emite a nota registrando em tempos a duração (ms) de cada etapa da emissão
+	public void emitir(NotaFiscal notaFiscal, Map<String, Long> tempos) {
 		// gera o xml e pega a chave de acesso do mesmo
-		String chaveNfe = geraXmlNfe.gerarXML(notaFiscal);
+		String chaveNfe = geraXmlNfe.gerarXML(notaFiscal, tempos);
 
 		// seta a chave de acesso na nota fiscal para grava-la no banco
 		notaFiscal.setChave_acesso(chaveNfe);
@@ -1,16 +1,33 @@
 package net.originmobi.pdv.service.notafiscal;
 
 import java.util.List;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import net.originmobi.pdv.model.NotaFiscalTotais;
+import net.originmobi.pdv.repository.notafiscal.NotaFiscalTotaisCalculo;
 import net.originmobi.pdv.repository.notafiscal.NotaFiscalTotaisRepository;
 
+/**
+ * Totais das notas fiscais.
+ *
+ * Ao incluir, alterar ou remover um item, apenas a diferença entre os valores
+ * anteriores e os novos do item é somada aos totais, em um único update, sem
+ * somar novamente todos os itens da nota. Com pdv.nfe.totais.verificar ativo,
+ * os totais são conferidos com a soma completa dos itens após cada alteração e
+ * corrigidos caso estejam diferentes.
+ */
 @Service
 public class NotaFiscalTotaisServer {
 
+	private static final double TOLERANCIA = 0.005;
+
+	@Value("${pdv.nfe.totais.verificar:false}")
+	private boolean verificar;
+
 	@Autowired
 	private NotaFiscalTotaisRepository totais;
 
@@ -22,32 +39,79 @@ public class NotaFiscalTotaisServer {
 		return totais.save(total);
 	}
 
-	public void atualiza(Long codNota, NotaFiscalTotais total) {
-		System.out.println("codnota " + codNota);
-		System.out.println("totais " + total.getCodigo());
-		String[] array = totais.calcula(codNota).split(",");
-		
-		Double totalProdutos = Double.valueOf(array[0]);
-		Double totalIcms = Double.valueOf(array[1]);
-		Double totalPis = Double.valueOf(array[2]);
-		Double totalCofins = Double.valueOf(array[3]);
-		Double totalIpi = Double.valueOf(array[4]);
-		Double totalNota = totalProdutos + totalIpi;
-
-		total.setV_bc(totalProdutos);
-		total.setV_prod(totalProdutos);
-		total.setV_icms(totalIcms);
-		total.setV_pis(totalPis);
-		total.setV_cofins(totalCofins);
-		total.setV_ipi(totalIpi);
-		total.setV_nf(totalNota);
+	/*
+	 * Soma aos totais a diferença entre os valores atuais e os anteriores de um
+	 * item, anterior é null quando o item foi incluído e atual é null quando foi
+	 * removido
+	 */
+	public void atualiza(Long codNota, NotaFiscalTotais total, NotaFiscalTotaisCalculo anterior,
+			NotaFiscalTotaisCalculo atual) {
+		try {
+			totais.soma(total.getCodigo(), diferenca(NotaFiscalTotaisCalculo::getProdutos, anterior, atual),
+					diferenca(NotaFiscalTotaisCalculo::getIcms, anterior, atual),
+					diferenca(NotaFiscalTotaisCalculo::getPis, anterior, atual),
+					diferenca(NotaFiscalTotaisCalculo::getCofins, anterior, atual),
+					diferenca(NotaFiscalTotaisCalculo::getIpi, anterior, atual));
+		} catch (Exception e) {
+			System.out.println(e);
+			throw new RuntimeException("Erro ao salvar item na nota, chame o suporte");
+		}
+
+		if (verificar)
+			verifica(codNota, total);
+	}
+
+	/*
+	 * Recalcula os totais somando todos os itens da nota
+	 */
+	public void recalcula(Long codNota, NotaFiscalTotais total) {
+		NotaFiscalTotaisCalculo calculo = totais.calcula(codNota);
 
 		try {
-			totais.save(total);
+			totais.define(total.getCodigo(), calculo.getProdutos(), calculo.getIcms(), calculo.getPis(),
+					calculo.getCofins(), calculo.getIpi());
 		} catch (Exception e) {
 			System.out.println(e);
 			throw new RuntimeException("Erro ao salvar item na nota, chame o suporte");
 		}
 	}
 
+	/*
+	 * Confere os totais gravados com a soma completa dos itens, corrigindo os
+	 * totais quando houver diferença. Retorna se os totais estavam corretos
+	 */
+	public boolean verifica(Long codNota, NotaFiscalTotais total) {
+		NotaFiscalTotaisCalculo calculado = totais.calcula(codNota);
+		NotaFiscalTotaisCalculo gravado = totais.buscaValores(total.getCodigo());
+
+		if (iguais(calculado, gravado))
+			return true;
+
+		System.out.println("Totais da nota " + codNota + " divergentes da soma dos itens, recalculando");
+		recalcula(codNota, total);
+		return false;
+	}
+
+	private boolean iguais(NotaFiscalTotaisCalculo calculado, NotaFiscalTotaisCalculo gravado) {
+		return Math.abs(diferenca(NotaFiscalTotaisCalculo::getProdutos, gravado, calculado)) < TOLERANCIA
+				&& Math.abs(diferenca(NotaFiscalTotaisCalculo::getIcms, gravado, calculado)) < TOLERANCIA
+				&& Math.abs(diferenca(NotaFiscalTotaisCalculo::getPis, gravado, calculado)) < TOLERANCIA
+				&& Math.abs(diferenca(NotaFiscalTotaisCalculo::getCofins, gravado, calculado)) < TOLERANCIA
+				&& Math.abs(diferenca(NotaFiscalTotaisCalculo::getIpi, gravado, calculado)) < TOLERANCIA;
+	}
+
+	private double diferenca(Function<NotaFiscalTotaisCalculo, Double> valor,
+			NotaFiscalTotaisCalculo anterior, NotaFiscalTotaisCalculo atual) {
+		return valor(valor, atual) - valor(valor, anterior);
+	}
+
+	private double valor(Function<NotaFiscalTotaisCalculo, Double> valor,
+			NotaFiscalTotaisCalculo calculo) {
+		if (calculo == null)
+			return 0.0;
+
+		Double resultado = valor.apply(calculo);
+		return resultado == null ? 0.0 : resultado;
+	}
+
 }
@@ -0,0 +1,215 @@
+package net.originmobi.pdv.service.notafiscal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.w3c.dom.Document;
+
+import net.originmobi.pdv.model.NotaFiscalXml;
+import net.originmobi.pdv.repository.notafiscal.NotaFiscalXmlRepository;
+
+/**
+ * Arquivo dos XMLs das NF-e.
+ *
+ * Cada XML é gravado compactado (gzip) em diretórios por mês e série
+ * (pdv.nfe.xml.diretorio/aaaa/mm/serie/chave.xml.gz), primeiro em um arquivo
+ * temporário que depois é renomeado, assim nunca fica um XML pela metade no
+ * arquivo. O caminho de cada chave de acesso fica na tabela nota_fiscal_xml,
+ * que é usada na busca e na exportação por período.
+ *
+ * XMLs gravados antes do arquivo, direto em pdv.nfe.xml.legado, continuam
+ * disponíveis para download e são removidos pelo NotaFiscalService.removeXml.
+ *
+ * A chave de acesso compõe o nome dos arquivos, por isso só chaves com os 44
+ * dígitos são aceitas.
+ */
+@Service
+public class NotaFiscalXmlService {
+
+	private static final DateTimeFormatter MES = DateTimeFormatter.ofPattern("yyyy/MM");
+
+	private static final Pattern CHAVE = Pattern.compile("\\d{44}");
+
+	@Value("${pdv.nfe.xml.diretorio:dados/xmlNfe}")
+	private String diretorio;
+
+	@Value("${pdv.nfe.xml.legado:src/main/resources/xmlNfe}")
+	private String legado;
+
+	@Autowired
+	private NotaFiscalXmlRepository xmls;
+
+	/*
+	 * Grava o documento compactado e registra o arquivo no índice
+	 */
+	public void grava(String chave, Document xml) {
+		if (!chaveValida(chave))
+			throw new RuntimeException("Chave de acesso inválida, não foi possível gravar o XML da nota fiscal");
+
+		LocalDateTime agora = LocalDateTime.now();
+		int serie = serie(chave);
+
+		Path relativo = Paths.get(agora.format(MES), String.valueOf(serie), chave + ".xml.gz");
+		Path arquivo = Paths.get(diretorio).resolve(relativo);
+		Path temporario = arquivo.resolveSibling(chave + ".xml.gz.tmp");
+
+		try {
+			Files.createDirectories(arquivo.getParent());
+
+			try (OutputStream saida = new GZIPOutputStream(Files.newOutputStream(temporario))) {
+				TransformerFactory.newInstance().newTransformer().transform(new DOMSource(xml),
+						new StreamResult(saida));
+			}
+
+			Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			xmls.save(new NotaFiscalXml(chave, serie, relativo.toString().replace('\\', '/'), Files.size(arquivo),
+					Timestamp.valueOf(agora)));
+		} catch (IOException | TransformerException e) {
+			System.out.println(e);
+
+			try {
+				Files.deleteIfExists(temporario);
+			} catch (IOException e1) {
+				e1.printStackTrace();
+			}
+
+			throw new RuntimeException("Erro ao gravar o XML da nota fiscal", e);
+		}
+	}
+
+	/*
+	 * Retorna o arquivo compactado da chave, caso esteja no arquivo
+	 */
+	public Optional<Path> compactado(String chave) {
+		if (!chaveValida(chave))
+			return Optional.empty();
+
+		return xmls.findById(chave).map(xml -> Paths.get(diretorio, xml.getCaminho())).filter(Files::exists);
+	}
+
+	/*
+	 * Abre o XML da chave já descompactado, procurando também nos XMLs gravados
+	 * antes do arquivo
+	 */
+	public Optional<InputStream> abre(String chave) throws IOException {
+		if (!chaveValida(chave))
+			return Optional.empty();
+
+		Optional<Path> compactado = compactado(chave);
+
+		if (compactado.isPresent())
+			return Optional.of(new GZIPInputStream(Files.newInputStream(compactado.get())));
+
+		Path antigo = Paths.get(legado, chave + ".xml");
+
+		if (Files.exists(antigo))
+			return Optional.of(Files.newInputStream(antigo));
+
+		return Optional.empty();
+	}
+
+	/*
+	 * Grava em um zip os XMLs arquivados no período, para envio à contabilidade
+	 */
+	public int exporta(LocalDateTime inicio, LocalDateTime fim, OutputStream saida) throws IOException {
+		int total = 0;
+		ZipOutputStream zip = new ZipOutputStream(saida);
+
+		for (NotaFiscalXml xml : xmls.buscaPorPeriodo(Timestamp.valueOf(inicio), Timestamp.valueOf(fim))) {
+			Path arquivo = Paths.get(diretorio, xml.getCaminho());
+
+			if (!Files.exists(arquivo))
+				continue;
+
+			zip.putNextEntry(new ZipEntry(xml.getChave_acesso() + ".xml"));
+
+			try (InputStream entrada = new GZIPInputStream(Files.newInputStream(arquivo))) {
+				entrada.transferTo(zip);
+			}
+
+			zip.closeEntry();
+			total++;
+		}
+
+		zip.finish();
+		return total;
+	}
+
+	/*
+	 * Remove o XML da chave do índice e do arquivo. Dentro de uma transação o
+	 * arquivo só é apagado depois do commit, assim um rollback da emissão não
+	 * deixa o índice apontando para um arquivo que não existe mais
+	 */
+	public void remove(String chave) {
+		Optional<NotaFiscalXml> xml = xmls.findById(chave);
+
+		if (!xml.isPresent())
+			return;
+
+		String caminho = xml.get().getCaminho();
+		xmls.delete(xml.get());
+
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			apaga(caminho);
+			return;
+		}
+
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				// a mesma chave gravada de novo no mesmo mês substituiu o arquivo
+				if (!xmls.findById(chave).map(NotaFiscalXml::getCaminho).filter(caminho::equals).isPresent())
+					apaga(caminho);
+			}
+		});
+	}
+
+	private void apaga(String caminho) {
+		try {
+			Files.deleteIfExists(Paths.get(diretorio, caminho));
+		} catch (IOException e) {
+			System.out.println("Erro ao deletar XML " + e);
+		}
+	}
+
+	private boolean chaveValida(String chave) {
+		return chave != null && CHAVE.matcher(chave).matches();
+	}
+
+	/*
+	 * Série da nota, posições 23 a 25 da chave de acesso
+	 */
+	private int serie(String chave) {
+		try {
+			return Integer.parseInt(chave.substring(22, 25));
+		} catch (RuntimeException e) {
+			return 0;
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package net.originmobi.pdv.utilitarios;
+
+import java.util.function.Supplier;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Valor carregado do banco na primeira utilização e mantido em memória até ser
+ * invalidado.
+ *
+ * A geração muda a cada invalidação, e o valor carregado só é guardado se
+ * nenhuma invalidação aconteceu enquanto a consulta rodava; do contrário ele
+ * serve apenas à leitura que o carregou e a próxima leitura carrega de novo.
+ * Assim uma carga iniciada antes de uma alteração nunca devolve ao cache os
+ * dados anteriores a ela.
+ */
+public class CacheCarregado<T> {
+
+	private final Supplier<T> carga;
+
+	private final Object carregando = new Object();
+
+	private volatile T valor;
+
+	private long geracao;
+
+	public CacheCarregado(Supplier<T> carga) {
+		this.carga = carga;
+	}
+
+	public T get() {
+		T atual = valor;
+
+		if (atual != null)
+			return atual;
+
+		// uma carga por vez, as leituras concorrentes aguardam e usam o mesmo valor
+		synchronized (carregando) {
+			long inicio;
+
+			synchronized (this) {
+				if (valor != null)
+					return valor;
+
+				inicio = geracao;
+			}
+
+			T carregado = carga.get();
+
+			synchronized (this) {
+				if (geracao == inicio)
+					valor = carregado;
+			}
+
+			return carregado;
+		}
+	}
+
+	/*
+	 * Descarta o valor, dentro de uma transação descarta também depois do
+	 * commit, pois até lá outra carga ainda lê os dados anteriores
+	 */
+	public void invalida() {
+		descarta();
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					descarta();
+				}
+			});
+		}
+	}
+
+	private synchronized void descarta() {
+		valor = null;
+		geracao++;
+	}
+
+}
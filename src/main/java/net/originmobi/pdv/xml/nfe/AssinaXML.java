@@ -6,9 +6,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.InvalidAlgorithmParameterException;
 import java.security.KeyStore;
-import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
@@ -38,32 +36,62 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
 import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+/**
+ * Assina os XMLs das NF-e com o certificado digital A1 (.pfx).
+ *
+ * O certificado é carregado uma única vez (KeyStore, chave privada e KeyInfo)
+ * e mantido em memória, sendo recarregado apenas quando o arquivo é alterado
+ * ou quando o certificado carregado vence. Os objetos da assinatura que não
+ * dependem do documento (transforms e métodos) são imutáveis e compartilhados,
+ * e cada thread usa a sua própria XMLSignatureFactory, assim várias notas
+ * podem ser assinadas em paralelo sem recarregar o certificado.
+ */
+@Component
 public class AssinaXML {
 	private static final String NFE = "NFe";
 
-	private PrivateKey privateKey;
-	private KeyInfo keyInfo;
+	private final File certificado;
+	private final String senha;
 
-	public String assinaXML(String xml) {
-		String path = "";
+	private final ThreadLocal<XMLSignatureFactory> fabricas = ThreadLocal
+			.withInitial(() -> XMLSignatureFactory.getInstance("DOM"));
+
+	private volatile Assinatura assinatura;
+
+	@Autowired
+	public AssinaXML(
+			@Value("${pdv.nfe.certificado.arquivo:src/main/resources/certificado/certificado.pfx}") String certificado,
+			@Value("${pdv.nfe.certificado.senha:spcbrasil}") String senha) {
+		this.certificado = new File(certificado);
+		this.senha = senha;
+	}
 
+	/*
+	 * Carrega o certificado na inicialização para que a primeira nota não pague
+	 * o custo de abrir o KeyStore
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void carregaCertificado() {
 		try {
-			path = new File(".").getCanonicalPath();
+			assinatura();
 		} catch (Exception e) {
-			System.out.println(e);
+			System.out.println("Erro ao carregar certificado digital: " + e);
 		}
+	}
 
-		String caminhoCertificado = path + "/" + "src/main/resources/certificado/certificado.pfx";
-		String senhaCertificado = "spcbrasil";
-
+	public String assinaXML(String xml) {
 		String xmlAssinado = "";
 		try {
-			xmlAssinado = assinarEnviNFe(xml, caminhoCertificado, senhaCertificado);
-			System.out.println(xmlAssinado);
+			xmlAssinado = assinarEnviNFe(xml);
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.out.println(e);
@@ -72,20 +100,48 @@ public class AssinaXML {
 		return xmlAssinado;
 	}
 
-	private String assinarEnviNFe(String xmlEnviNFe, String caminhoCertificado, String senhaCertificado)
-			throws Exception {
-		Document document = documentFactory(xmlEnviNFe);
-		XMLSignatureFactory signatureFactory = XMLSignatureFactory.getInstance("DOM");
-		ArrayList<Transform> transformList = signatureFactory(signatureFactory);
-		loadCertificates(caminhoCertificado, senhaCertificado, signatureFactory);
+	/*
+	 * Assina as NF-e do documento no próprio DOM, sem convertê-lo em String. O
+	 * documento precisa ter sido criado com namespace (NfeDomWriter)
+	 */
+	public void assina(Document document) {
+		try {
+			Assinatura atual = assinatura();
+			XMLSignatureFactory signatureFactory = fabricas.get();
 
-		for (int i = 0; i < document.getDocumentElement().getElementsByTagName(NFE).getLength(); i++) {
-			assinarNFe(signatureFactory, transformList, privateKey, keyInfo, document, i);
+			for (int i = 0; i < document.getDocumentElement().getElementsByTagName(NFE).getLength(); i++) {
+				assinarNFe(signatureFactory, atual, document, i);
+			}
+		} catch (Exception e) {
+			System.out.println(e);
+			throw new RuntimeException("Erro ao assinar o XML da nota fiscal, verifique o certificado digital", e);
 		}
+	}
 
+	private String assinarEnviNFe(String xmlEnviNFe) throws Exception {
+		Document document = documentFactory(xmlEnviNFe);
+		assina(document);
 		return outputXML(document);
 	}
 
+	/*
+	 * Retorna o certificado carregado, recarregando caso o arquivo tenha sido
+	 * alterado ou o certificado tenha vencido desde o carregamento
+	 */
+	private Assinatura assinatura() throws Exception {
+		Assinatura atual = assinatura;
+
+		if (atual != null && !atual.desatualizada(certificado))
+			return atual;
+
+		synchronized (this) {
+			if (assinatura == null || assinatura.desatualizada(certificado))
+				assinatura = loadCertificates(XMLSignatureFactory.getInstance("DOM"));
+
+			return assinatura;
+		}
+	}
+
 	private Document documentFactory(String xml) throws SAXException, IOException, ParserConfigurationException {
 		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
 		factory.setNamespaceAware(true);
@@ -93,24 +149,11 @@ public class AssinaXML {
 		return document;
 	}
 
-	private ArrayList<Transform> signatureFactory(XMLSignatureFactory signatureFactory)
-			throws NoSuchAlgorithmException, InvalidAlgorithmParameterException {
-		ArrayList<Transform> transformList = new ArrayList<Transform>();
-		TransformParameterSpec tps = null;
-		Transform envelopedTransform = signatureFactory.newTransform(Transform.ENVELOPED, tps);
-		Transform c14NTransform = signatureFactory.newTransform("http://www.w3.org/TR/2001/REC-xml-c14n-20010315", tps);
-
-		transformList.add(envelopedTransform);
-		transformList.add(c14NTransform);
-		return transformList;
-	}
-
-	private void loadCertificates(String certificado, String senha, XMLSignatureFactory signatureFactory)
-			throws Exception {
-
-		InputStream entrada = new FileInputStream(certificado);
+	private Assinatura loadCertificates(XMLSignatureFactory signatureFactory) throws Exception {
+		long modificado = certificado.lastModified();
 		KeyStore ks = KeyStore.getInstance("pkcs12");
-		try {
+
+		try (InputStream entrada = new FileInputStream(certificado)) {
 			ks.load(entrada, senha.toCharArray());
 		} catch (IOException e) {
 			throw new Exception("Senha do Certificado Digital incorreta ou Certificado inválido.");
@@ -123,11 +166,13 @@ public class AssinaXML {
 			if (ks.isKeyEntry(alias)) {
 				pkEntry = (KeyStore.PrivateKeyEntry) ks.getEntry(alias,
 						new KeyStore.PasswordProtection(senha.toCharArray()));
-				privateKey = pkEntry.getPrivateKey();
 				break;
 			}
 		}
 
+		if (pkEntry == null)
+			throw new Exception("Certificado Digital sem chave privada.");
+
 		X509Certificate cert = (X509Certificate) pkEntry.getCertificate();
 		System.out.println("Data Certificado " + cert.getNotAfter());
 
@@ -136,27 +181,37 @@ public class AssinaXML {
 
 		x509Content.add(cert);
 		X509Data x509Data = keyInfoFactory.newX509Data(x509Content);
-		keyInfo = keyInfoFactory.newKeyInfo(Collections.singletonList(x509Data));
+		KeyInfo keyInfo = keyInfoFactory.newKeyInfo(Collections.singletonList(x509Data));
+
+		TransformParameterSpec tps = null;
+		List<Transform> transformList = new ArrayList<Transform>();
+		transformList.add(signatureFactory.newTransform(Transform.ENVELOPED, tps));
+		transformList.add(signatureFactory.newTransform("http://www.w3.org/TR/2001/REC-xml-c14n-20010315", tps));
+
+		return new Assinatura(pkEntry.getPrivateKey(), keyInfo, Collections.unmodifiableList(transformList),
+				signatureFactory.newDigestMethod(DigestMethod.SHA1, null),
+				signatureFactory.newCanonicalizationMethod(CanonicalizationMethod.INCLUSIVE,
+						(C14NMethodParameterSpec) null),
+				signatureFactory.newSignatureMethod(SignatureMethod.RSA_SHA1, null), modificado,
+				cert.getNotAfter().getTime());
 	}
 
-	private void assinarNFe(XMLSignatureFactory fac, ArrayList<Transform> transformList, PrivateKey privateKey,
-			KeyInfo ki, Document document, int indexNFe) throws Exception {
+	private void assinarNFe(XMLSignatureFactory fac, Assinatura assinatura, Document document, int indexNFe)
+			throws Exception {
 
 		NodeList elements = document.getElementsByTagName("infNFe");
 		org.w3c.dom.Element el = (org.w3c.dom.Element) elements.item(indexNFe);
 		String id = el.getAttribute("Id");
 		el.setIdAttribute("Id", true);
 
-		Reference ref = fac.newReference("#" + id, fac.newDigestMethod(DigestMethod.SHA1, null), transformList, null,
-				null);
+		Reference ref = fac.newReference("#" + id, assinatura.digestMethod, assinatura.transformList, null, null);
 
-		SignedInfo si = fac.newSignedInfo(
-				fac.newCanonicalizationMethod(CanonicalizationMethod.INCLUSIVE, (C14NMethodParameterSpec) null),
-				fac.newSignatureMethod(SignatureMethod.RSA_SHA1, null), Collections.singletonList(ref));
+		SignedInfo si = fac.newSignedInfo(assinatura.canonicalizationMethod, assinatura.signatureMethod,
+				Collections.singletonList(ref));
 
-		XMLSignature signature = fac.newXMLSignature(si, ki);
+		XMLSignature signature = fac.newXMLSignature(si, assinatura.keyInfo);
 
-		DOMSignContext dsc = new DOMSignContext(privateKey,
+		DOMSignContext dsc = new DOMSignContext(assinatura.privateKey,
 				document.getDocumentElement().getElementsByTagName(NFE).item(indexNFe));
 		signature.sign(dsc);
 	}
@@ -174,4 +229,42 @@ public class AssinaXML {
 		return xml;
 	}
 
+	/*
+	 * Material de assinatura carregado do certificado, imutável e compartilhado
+	 * entre as threads
+	 */
+	private static class Assinatura {
+		private final PrivateKey privateKey;
+		private final KeyInfo keyInfo;
+		private final List<Transform> transformList;
+		private final DigestMethod digestMethod;
+		private final CanonicalizationMethod canonicalizationMethod;
+		private final SignatureMethod signatureMethod;
+		private final long modificado;
+		private final long validade;
+		private final boolean vencido;
+
+		Assinatura(PrivateKey privateKey, KeyInfo keyInfo, List<Transform> transformList, DigestMethod digestMethod,
+				CanonicalizationMethod canonicalizationMethod, SignatureMethod signatureMethod, long modificado,
+				long validade) {
+			this.privateKey = privateKey;
+			this.keyInfo = keyInfo;
+			this.transformList = transformList;
+			this.digestMethod = digestMethod;
+			this.canonicalizationMethod = canonicalizationMethod;
+			this.signatureMethod = signatureMethod;
+			this.modificado = modificado;
+			this.validade = validade;
+			this.vencido = System.currentTimeMillis() > validade;
+		}
+
+		/*
+		 * Um certificado que já estava vencido ao ser carregado só é recarregado
+		 * quando o arquivo muda, para não abrir o KeyStore a cada nota
+		 */
+		boolean desatualizada(File certificado) {
+			return certificado.lastModified() != modificado || (!vencido && System.currentTimeMillis() > validade);
+		}
+	}
+
 }
@@ -1,6 +1,7 @@
 package net.originmobi.pdv.xml.nfe;
 
 import java.text.DecimalFormat;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -13,10 +14,15 @@ import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
 import net.originmobi.pdv.model.NotaFiscal;
 import net.originmobi.pdv.service.notafiscal.NotaFiscalService;
 
+/**
+ * Converte a NotaFiscal no XML enviNFe.
+ *
+ * O conversor não guarda estado entre as chamadas, a chave de acesso gerada é
+ * devolvida no contexto do marshal (CHAVE), assim uma única instância pode ser
+ * registrada no XStream e usada por várias emissões ao mesmo tempo.
+ */
 public class ConversorXmlNfe implements Converter {
-
-	public NotaFiscalService nfService;
-	private String chaveNfeRetorno = "";
+	public static final String CHAVE = "chaveNfe";
 
 	@Override
 	public boolean canConvert(Class type) {
@@ -34,7 +40,7 @@ public class ConversorXmlNfe implements Converter {
 		int tipoRegime = notaFiscal.getEmissor().getRegime_tributario().getTipoRegime();
 
 		// gera cNF
-		int codAleatorio = (int) (10000000 + Math.random() * 89999999);
+		int codAleatorio = ThreadLocalRandom.current().nextInt(10000000, 99999999);
 
 		// add zeros a esqueda na sequencia
 		String serie = StringUtils.leftPad(String.valueOf(notaFiscal.getEmissor().getParametro().getSerie_nfe()), 3,
@@ -47,12 +53,10 @@ public class ConversorXmlNfe implements Converter {
 		// cria chave acesso
 		String chaveNfe = ufEmissor + "1805" + cnpjEmissor + "55" + serie + numeroNf + 1 + cNF;
 
-		nfService = new NotaFiscalService();
-
 		// gera digito verificador
-		Integer cDV = nfService.geraDV(chaveNfe);
+		Integer cDV = NotaFiscalService.geraDV(chaveNfe);
 
-		chaveNfeRetorno = chaveNfe + cDV;
+		context.put(CHAVE, chaveNfe + cDV);
 
 		writer.addAttribute("xmlns", "http://www.portalfiscal.inf.br/nfe");
 		writer.addAttribute("versao", "3.10");
@@ -571,10 +575,6 @@ public class ConversorXmlNfe implements Converter {
 
 	}
 
-	public String retornaChaveNfe() {
-		return chaveNfeRetorno;
-	}
-
 	@Override
 	public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
 		return null;
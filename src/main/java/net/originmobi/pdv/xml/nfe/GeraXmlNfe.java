@@ -1,48 +1,75 @@
 package net.originmobi.pdv.xml.nfe;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
 
-import com.thoughtworks.xstream.XStream;
-import com.thoughtworks.xstream.io.xml.DomDriver;
-
+import io.micrometer.core.instrument.Metrics;
 import net.originmobi.pdv.model.NotaFiscal;
 import net.originmobi.pdv.service.notafiscal.NotaFiscalService;
 
 @Component
 public class GeraXmlNfe {
-	
+
 	@Autowired
 	private NotaFiscalService nfServer;
 
+	@Autowired
+	private AssinaXML assina;
+
+	@Autowired
+	private SerializadorNfe serializador;
+
 	/*
 	 * Recebe uma notafiscal e retorna a chave de acesso da mesma
 	 */
 	public String gerarXML(NotaFiscal notaFiscal) {
-		XStream valor = new XStream(new DomDriver());
-		ConversorXmlNfe conversor = new ConversorXmlNfe();
-		AssinaXML assina = new AssinaXML();
-		
-		valor.registerConverter(conversor);
-		
-		valor.alias("enviNFe", NotaFiscal.class);
-		
-		String xml = valor.toXML(notaFiscal);
-		
-		xml = assina.assinaXML(xml);
-		
+		return gerarXML(notaFiscal, new HashMap<>());
+	}
+
+	/*
+	 * Gera, assina e grava o xml da nota, registrando em tempos a duração em
+	 * milissegundos de cada etapa (xml, assinatura e gravacao)
+	 */
+	public String gerarXML(NotaFiscal notaFiscal, Map<String, Long> tempos) {
+		// monta o xml direto no DOM, que é assinado e gravado sem passar por String
+		XmlNfe xmlNfe = mede("xml", tempos, () -> serializador.serializa(notaFiscal));
+		Document xml = xmlNfe.getDocumento();
+
+		mede("assinatura", tempos, () -> {
+			assina.assina(xml);
+			return xml;
+		});
+
 		//pega a chave da nfe
-		String chaveNfe = conversor.retornaChaveNfe();
-		
-		nfServer = new NotaFiscalService();
-		
-		if(notaFiscal.getChave_acesso() != null) {
-			nfServer.removeXml(notaFiscal.getChave_acesso());
-		}
-		
-		nfServer.salvaXML(xml, chaveNfe);
-		
+		String chaveNfe = xmlNfe.getChave();
+
+		mede("gravacao", tempos, () -> {
+			if(notaFiscal.getChave_acesso() != null) {
+				nfServer.removeXml(notaFiscal.getChave_acesso());
+			}
+
+			nfServer.salvaXML(xml, chaveNfe);
+			return chaveNfe;
+		});
+
 		return chaveNfe;
 	}
-}
 
+	private <T> T mede(String etapa, Map<String, Long> tempos, Supplier<T> operacao) {
+		long inicio = System.nanoTime();
+
+		try {
+			return operacao.get();
+		} finally {
+			long duracao = System.nanoTime() - inicio;
+			tempos.put(etapa, TimeUnit.NANOSECONDS.toMillis(duracao));
+			Metrics.timer("pdv.nfe.emissao.etapa", "etapa", etapa).record(duracao, TimeUnit.NANOSECONDS);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package net.originmobi.pdv.xml.nfe;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.thoughtworks.xstream.io.ExtendedHierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+
+/**
+ * Writer do XStream que monta o XML da NF-e direto em um Document DOM.
+ *
+ * Os elementos são criados no namespace da NF-e, assim o documento gerado pode
+ * ser assinado pelo AssinaXML sem ser convertido em String e lido novamente.
+ */
+// ExtendedHierarchicalStreamWriter está deprecada no XStream 1.4, mas o
+// marshal ainda chama startNode(String, Class) quando o writer a implementa
+@SuppressWarnings("deprecation")
+public class NfeDomWriter implements ExtendedHierarchicalStreamWriter {
+	public static final String NAMESPACE = "http://www.portalfiscal.inf.br/nfe";
+
+	private static final String XMLNS = "http://www.w3.org/2000/xmlns/";
+
+	private static final ThreadLocal<DocumentBuilder> builders = ThreadLocal.withInitial(() -> {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+
+		try {
+			return factory.newDocumentBuilder();
+		} catch (ParserConfigurationException e) {
+			throw new RuntimeException("Erro ao criar o documento do XML da nota fiscal", e);
+		}
+	});
+
+	private final Document document;
+	private Node atual;
+
+	public NfeDomWriter(Document document) {
+		this.document = document;
+		this.atual = document;
+	}
+
+	/*
+	 * Cria um documento vazio, sem o atributo standalone na declaração do xml
+	 */
+	public static Document novoDocumento() {
+		Document document = builders.get().newDocument();
+		document.setXmlStandalone(true);
+		return document;
+	}
+
+	@Override
+	public void startNode(String name) {
+		Element elemento = document.createElementNS(NAMESPACE, name);
+		atual.appendChild(elemento);
+		atual = elemento;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void startNode(String name, Class clazz) {
+		startNode(name);
+	}
+
+	@Override
+	public void addAttribute(String name, String value) {
+		if (name.equals("xmlns"))
+			((Element) atual).setAttributeNS(XMLNS, name, value);
+		else
+			((Element) atual).setAttributeNS(null, name, value);
+	}
+
+	@Override
+	public void setValue(String text) {
+		atual.appendChild(document.createTextNode(text));
+	}
+
+	@Override
+	public void endNode() {
+		atual = atual.getParentNode();
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public HierarchicalStreamWriter underlyingWriter() {
+		return this;
+	}
+
+}
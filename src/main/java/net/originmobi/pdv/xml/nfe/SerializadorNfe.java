@@ -0,0 +1,39 @@
+package net.originmobi.pdv.xml.nfe;
+
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.DataHolder;
+import com.thoughtworks.xstream.io.xml.DomDriver;
+
+import net.originmobi.pdv.model.NotaFiscal;
+
+/**
+ * Serializa as notas fiscais no XML enviNFe.
+ *
+ * O XStream e o ConversorXmlNfe são configurados uma única vez e compartilhados
+ * entre as emissões, o XStream só é alterado na construção e o marshal não
+ * guarda estado, por isso é seguro usá-lo em várias threads.
+ */
+@Component
+public class SerializadorNfe {
+
+	private final XStream xstream;
+
+	public SerializadorNfe() {
+		xstream = new XStream(new DomDriver());
+		xstream.registerConverter(new ConversorXmlNfe());
+		xstream.alias("enviNFe", NotaFiscal.class);
+	}
+
+	public XmlNfe serializa(NotaFiscal notaFiscal) {
+		Document documento = NfeDomWriter.novoDocumento();
+		DataHolder dados = xstream.newDataHolder();
+
+		xstream.marshal(notaFiscal, new NfeDomWriter(documento), dados);
+
+		return new XmlNfe(documento, (String) dados.get(ConversorXmlNfe.CHAVE));
+	}
+
+}
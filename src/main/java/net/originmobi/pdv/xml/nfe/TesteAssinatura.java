@@ -5,7 +5,7 @@ public class TesteAssinatura {
 	public static void main(String[] args) {
 		String chaveAcesso = "11180512271266000158550010000000011994707452";
 		
-		AssinaXML assinatura = new AssinaXML();
+		AssinaXML assinatura = new AssinaXML("src/main/resources/certificado/certificado.pfx", "spcbrasil");
 		assinatura.assinaXML(chaveAcesso);
 	}
 
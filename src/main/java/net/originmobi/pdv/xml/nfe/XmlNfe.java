@@ -0,0 +1,27 @@
+package net.originmobi.pdv.xml.nfe;
+
+import org.w3c.dom.Document;
+
+/*
+ * Resultado da serialização de uma nota: o documento enviNFe e a chave de
+ * acesso gerada para ele
+ */
+public class XmlNfe {
+
+	private final Document documento;
+	private final String chave;
+
+	public XmlNfe(Document documento, String chave) {
+		this.documento = documento;
+		this.chave = chave;
+	}
+
+	public Document getDocumento() {
+		return documento;
+	}
+
+	public String getChave() {
+		return chave;
+	}
+
+}
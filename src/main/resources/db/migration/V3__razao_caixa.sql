@@ -0,0 +1,36 @@
+-- -----------------------------------------------------
+-- Lançamentos de caixa no modo razão (pdv.caixa.razao.ativo)
+--
+-- Lançamentos gravados com conciliado = 0 não atualizam os totais do caixa no
+-- trigger, os totais são atualizados em lote pela conciliação da aplicação
+-- -----------------------------------------------------
+USE `pdv`;
+
+ALTER TABLE `pdv`.`caixa_lancamento`
+  ADD COLUMN `conciliado` TINYINT(1) NOT NULL DEFAULT 1,
+  ADD INDEX `idx_caixa_lancamento_conciliado` (`conciliado` ASC);
+
+DROP TRIGGER IF EXISTS `pdv`.`tr_atualizaValoresCaixa_AFTER_INSERT`;
+
+DELIMITER $$
+USE `pdv`$$
+CREATE DEFINER = CURRENT_USER TRIGGER `pdv`.`tr_atualizaValoresCaixa_AFTER_INSERT` AFTER INSERT ON `caixa_lancamento` FOR EACH ROW
+BEGIN
+	SET @valorLancamento = NEW.valor;
+    SET @estilo = NEW.estilo;
+    SET @caixa = NEW.caixa_codigo;
+    
+    if(NEW.conciliado = 1) then
+		select coalesce(c.valor_total, 0) into @vlTotalCaixa from caixa c where c.codigo = @caixa;
+		
+		if(@estilo = "ENTRADA") then
+			select coalesce(c.valor_entrada, 0) into @vlEntrada from caixa c where c.codigo = @caixa;
+			update caixa set valor_entrada = (@vlEntrada + @valorLancamento), valor_total = (@vlTotalCaixa + @valorLancamento) where codigo = @caixa;
+		elseif(@estilo = "SAIDA") then
+			select coalesce(c.valor_saida, 0) into @vlSaida from caixa c where c.codigo = @caixa;
+			update caixa set valor_saida = (@vlSaida - @valorLancamento), valor_total = (@vlTotalCaixa + @valorLancamento) where codigo = @caixa;
+		end if;
+	end if;
+END$$
+
+DELIMITER ;
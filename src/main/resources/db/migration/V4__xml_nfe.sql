@@ -0,0 +1,17 @@
+-- -----------------------------------------------------
+-- Arquivo dos XMLs das NF-e
+--
+-- Os XMLs são gravados compactados em diretórios por mês e série, e esta
+-- tabela indexa o arquivo de cada chave de acesso
+-- -----------------------------------------------------
+USE `pdv`;
+
+CREATE TABLE IF NOT EXISTS `pdv`.`nota_fiscal_xml` (
+  `chave_acesso` VARCHAR(44) NOT NULL,
+  `serie` INT NOT NULL,
+  `caminho` VARCHAR(255) NOT NULL,
+  `tamanho` BIGINT NOT NULL,
+  `data_cadastro` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`chave_acesso`),
+  INDEX `idx_nota_fiscal_xml_data` (`data_cadastro` ASC))
+ENGINE = InnoDB;
@@ -0,0 +1,19 @@
+-- -----------------------------------------------------
+-- Numeração das NF-e
+--
+-- O próximo número de cada série fica em uma linha desta tabela, que é
+-- bloqueada (select ... for update) apenas durante a reserva do número,
+-- no lugar do max(numero) + 1 sobre toda a nota_fiscal
+-- -----------------------------------------------------
+USE `pdv`;
+
+CREATE TABLE IF NOT EXISTS `pdv`.`nota_fiscal_numeracao` (
+  `serie` INT NOT NULL,
+  `proximo` INT(11) NOT NULL,
+  PRIMARY KEY (`serie`))
+ENGINE = InnoDB;
+
+INSERT INTO `pdv`.`nota_fiscal_numeracao` (`serie`, `proximo`)
+  SELECT `serie`, MAX(`numero`) + 1 FROM `pdv`.`nota_fiscal` GROUP BY `serie`;
+
+ALTER TABLE `pdv`.`nota_fiscal` ADD INDEX `idx_nota_fiscal_serie_numero` (`serie` ASC, `numero` ASC);
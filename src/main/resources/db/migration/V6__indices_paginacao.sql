@@ -0,0 +1,17 @@
+-- -----------------------------------------------------
+-- Índices da paginação por chave
+--
+-- As listagens de vendas e de parcelas a pagar buscam cada página a partir da
+-- chave do último registro da anterior (where chave > ? order by chave limit n),
+-- com estes índices cada página lê apenas os seus registros, seja a primeira
+-- ou a milésima. Na busca por fornecedor o filtro pelo nome é feito no join,
+-- as parcelas são percorridas em ordem de (quitado, codigo) até completar a
+-- página
+-- -----------------------------------------------------
+USE `pdv`;
+
+ALTER TABLE `pdv`.`venda` ADD INDEX `idx_venda_situacao_codigo` (`situacao` ASC, `codigo` ASC);
+
+ALTER TABLE `pdv`.`parcela_pagar` ADD INDEX `idx_parcela_pagar_quitado_vencimento` (`quitado` ASC, `data_vencimento` ASC, `codigo` ASC);
+
+ALTER TABLE `pdv`.`parcela_pagar` ADD INDEX `idx_parcela_pagar_quitado_codigo` (`quitado` ASC, `codigo` ASC);
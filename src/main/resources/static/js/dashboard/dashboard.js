@@ -0,0 +1,28 @@
+$(document).ready(function() {
+	// atualiza os contadores do dashboard sempre que algum valor muda no servidor
+
+	var dashboard = $(".dashboard");
+
+	if (dashboard.length == 0 || typeof EventSource == "undefined")
+		return;
+
+	var formataValor = function(valor) {
+		return parseFloat(valor).toLocaleString("pt-BR", {
+			minimumFractionDigits : 2,
+			maximumFractionDigits : 2
+		});
+	};
+
+	var eventos = new EventSource(dashboard.data("eventos"));
+
+	eventos.addEventListener("resumo", function(event) {
+		var resumo = JSON.parse(event.data);
+
+		$("#pedidosAberto").text(resumo.pedidosAberto);
+		$("#totalReceber").text("R$ " + resumo.totalReceber);
+		$("#vencidoReceber").text("Vencido R$ " + formataValor(resumo.vencidoReceber));
+		$("#totalPagar").text("R$ " + resumo.totalPagar);
+		$("#vencidoPagar").text("Vencido R$ " + formataValor(resumo.vencidoPagar));
+		$("#notasEmitidas").text(resumo.notasEmitidas);
+	});
+});
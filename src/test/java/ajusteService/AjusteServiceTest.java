@@ -24,6 +24,7 @@ import net.originmobi.pdv.model.Ajuste;
 import net.originmobi.pdv.model.AjusteProduto;
 import net.originmobi.pdv.model.Produto;
 import net.originmobi.pdv.repository.AjusteRepository;
+import net.originmobi.pdv.security.UsuarioAtual;
 import net.originmobi.pdv.service.AjusteService;
 import net.originmobi.pdv.service.ProdutoService;
 
@@ -43,6 +44,7 @@ public class AjusteServiceTest {
         // Insere os mocks na classe a ser testada
         ReflectionTestUtils.setField(ajusteService, "ajustes", ajusteRepositoryMock);
         ReflectionTestUtils.setField(ajusteService, "produtos", produtoServiceMock);
+        ReflectionTestUtils.setField(ajusteService, "usuarioAtual", new UsuarioAtual());
     }
 
     @Test
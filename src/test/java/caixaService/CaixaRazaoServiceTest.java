@@ -0,0 +1,90 @@
+package caixaService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import net.originmobi.pdv.enumerado.caixa.EstiloLancamento;
+import net.originmobi.pdv.enumerado.caixa.TipoLancamento;
+import net.originmobi.pdv.model.Caixa;
+import net.originmobi.pdv.model.CaixaLancamento;
+import net.originmobi.pdv.repository.CaixaLancamentoRepository;
+import net.originmobi.pdv.service.CaixaRazaoService;
+
+class CaixaRazaoServiceTest {
+
+    private CaixaLancamentoRepository lancamentos = mock(CaixaLancamentoRepository.class);
+    private CaixaRazaoService razao;
+    private Caixa caixa;
+
+    @BeforeEach
+    void setup() {
+        razao = new CaixaRazaoService();
+        ReflectionTestUtils.setField(razao, "ativo", true);
+        ReflectionTestUtils.setField(razao, "lancamentos", lancamentos);
+
+        caixa = new Caixa();
+        caixa.setCodigo(7L);
+        caixa.setValor_total(100.0);
+    }
+
+    private CaixaLancamento lancamento(EstiloLancamento estilo, double valor) {
+        return new CaixaLancamento("", valor, TipoLancamento.SUPRIMENTO, estilo, caixa, null);
+    }
+
+    @Test
+    @DisplayName("saldo(): deve somar ao valor_total do caixa os lançamentos pendentes de vários terminais")
+    void saldo_SomaLancamentosConcorrentes() throws Exception {
+        ExecutorService terminais = Executors.newFixedThreadPool(8);
+
+        for (int i = 0; i < 1000; i++) {
+            terminais.execute(() -> razao.registra(lancamento(EstiloLancamento.ENTRADA, 2.0)));
+            terminais.execute(() -> razao.registra(lancamento(EstiloLancamento.SAIDA, -1.0)));
+        }
+
+        terminais.shutdown();
+        assertTrue(terminais.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000.0, razao.pendente(7L), 0.0001);
+        assertEquals(1100.0, razao.saldo(caixa), 0.0001);
+    }
+
+    @Test
+    @DisplayName("concilia(): deve descontar dos acumuladores o valor gravado no caixa")
+    void concilia_DescontaValorConciliado() {
+        razao.registra(lancamento(EstiloLancamento.ENTRADA, 50.0));
+        razao.registra(lancamento(EstiloLancamento.SAIDA, -20.0));
+
+        Map<Long, double[]> conciliado = new HashMap<>();
+        conciliado.put(7L, new double[] { 50.0, -20.0 });
+        when(lancamentos.conciliaPendentes()).thenReturn(conciliado);
+
+        razao.concilia();
+        caixa.setValor_total(130.0);
+
+        assertEquals(0.0, razao.pendente(7L), 0.0001);
+        assertEquals(130.0, razao.saldo(caixa), 0.0001);
+    }
+
+    @Test
+    @DisplayName("concilia(): com o modo razão desativado não deve consultar os lançamentos")
+    void concilia_Desativado_NaoConcilia() {
+        ReflectionTestUtils.setField(razao, "ativo", false);
+
+        razao.concilia();
+
+        verify(lancamentos, never()).conciliaPendentes();
+        assertEquals(100.0, razao.saldo(caixa), 0.0001);
+    }
+
+}
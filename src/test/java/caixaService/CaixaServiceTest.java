@@ -12,7 +12,6 @@ import org.junit.jupiter.api.extension.ExtendWith;
 
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
@@ -25,7 +24,9 @@ import net.originmobi.pdv.model.Caixa;
 import net.originmobi.pdv.model.CaixaLancamento;
 import net.originmobi.pdv.model.Usuario;
 import net.originmobi.pdv.repository.CaixaRepository;
+import net.originmobi.pdv.security.UsuarioAtual;
 import net.originmobi.pdv.service.CaixaLancamentoService;
+import net.originmobi.pdv.service.CaixaRazaoService;
 import net.originmobi.pdv.service.CaixaService;
 import net.originmobi.pdv.service.UsuarioService;
 
@@ -39,6 +40,8 @@ class CaixaServiceTest {
   @Mock private CaixaRepository caixas;
   @Mock private UsuarioService usuarios;
   @Mock private CaixaLancamentoService lancamentos;
+  @Mock private UsuarioAtual usuarioAtual;
+  @Mock private CaixaRazaoService razao;
   
   @Test
   @DisplayName("cadastro(): se tipo=CAIXA e já houver caixa aberto deve retornar 'Existe caixa de dias anteriores em aberto, favor verifique'")
@@ -80,35 +83,29 @@ class CaixaServiceTest {
     c.setAgencia("12-3/4");
     c.setConta(" 98.7-6 ");
 
-    try (MockedStatic<net.originmobi.pdv.singleton.Aplicacao> app =
-           mockStatic(net.originmobi.pdv.singleton.Aplicacao.class)) {
-      net.originmobi.pdv.singleton.Aplicacao aplicacao = mock(net.originmobi.pdv.singleton.Aplicacao.class);
-      app.when(net.originmobi.pdv.singleton.Aplicacao::getInstancia).thenReturn(aplicacao);
-      when(aplicacao.getUsuarioAtual()).thenReturn("ana");
-
-      Usuario u = new Usuario();
-      u.setCodigo(55L);
-      u.setUser("ana");
-      when(usuarios.buscaUsuario("ana")).thenReturn(u);
-
-      when(caixas.save(any(Caixa.class))).thenAnswer(inv -> {
-        Caixa saved = inv.getArgument(0);
-        saved.setCodigo(999L);
-        return saved;
-      });
-
-      Long id = caixaService.cadastro(c);
-
-      assertEquals(999L, id);
-      assertEquals("Banco", c.getDescricao());
-      assertEquals("1234", c.getAgencia());
-      assertEquals("9876", c.getConta());
-      assertEquals(0.0, c.getValor_total());
-      assertNotNull(c.getData_cadastro());
-      assertSame(u, c.getUsuario());
-      verify(lancamentos, never()).lancamento(any());
-      verify(caixas).save(same(c));
-    }
+    Usuario u = new Usuario();
+    u.setCodigo(55L);
+    u.setUser("ana");
+    when(usuarioAtual.getUsuario()).thenReturn(u);
+
+    when(caixas.save(any(Caixa.class))).thenAnswer(inv -> {
+      Caixa saved = inv.getArgument(0);
+      saved.setCodigo(999L);
+      return saved;
+    });
+
+    Long id = caixaService.cadastro(c);
+
+    assertEquals(999L, id);
+    assertEquals("Banco", c.getDescricao());
+    assertEquals("1234", c.getAgencia());
+    assertEquals("9876", c.getConta());
+    assertEquals(0.0, c.getValor_total());
+    assertNotNull(c.getData_cadastro());
+    assertSame(u, c.getUsuario());
+    verify(usuarios, never()).buscaUsuario(anyString());
+    verify(lancamentos, never()).lancamento(any());
+    verify(caixas).save(same(c));
   }
   
   @Test
@@ -119,34 +116,27 @@ class CaixaServiceTest {
     c.setValor_abertura(150.0);
     c.setDescricao("");
 
-    try (MockedStatic<net.originmobi.pdv.singleton.Aplicacao> app =
-           mockStatic(net.originmobi.pdv.singleton.Aplicacao.class)) {
-      net.originmobi.pdv.singleton.Aplicacao aplicacao = mock(net.originmobi.pdv.singleton.Aplicacao.class);
-      app.when(net.originmobi.pdv.singleton.Aplicacao::getInstancia).thenReturn(aplicacao);
-      when(aplicacao.getUsuarioAtual()).thenReturn("maria");
-
-      Usuario u = new Usuario();
-      u.setUser("maria");
-      when(usuarios.buscaUsuario("maria")).thenReturn(u);
-
-      when(caixas.save(any(Caixa.class))).thenAnswer(inv -> {
-        Caixa saved = inv.getArgument(0);
-        saved.setCodigo(1L);
-        return saved;
-      });
-
-      Long id = caixaService.cadastro(c);
-
-      assertEquals(1L, id);
-      verify(lancamentos).lancamento(argThat(l -> 
-          l.getTipo().equals(TipoLancamento.SALDOINICIAL) &&
-          l.getEstilo().equals(EstiloLancamento.ENTRADA) &&
-          Double.compare(l.getValor(), 150.0) == 0 &&
-          l.getCaixa().orElse(null) == c &&
-          l.getUsuario() == u
-      ));
-      verify(caixas).save(same(c));
-    }
+    Usuario u = new Usuario();
+    u.setUser("maria");
+    when(usuarioAtual.getUsuario()).thenReturn(u);
+
+    when(caixas.save(any(Caixa.class))).thenAnswer(inv -> {
+      Caixa saved = inv.getArgument(0);
+      saved.setCodigo(1L);
+      return saved;
+    });
+
+    Long id = caixaService.cadastro(c);
+
+    assertEquals(1L, id);
+    verify(lancamentos).lancamento(argThat(l -> 
+        l.getTipo().equals(TipoLancamento.SALDOINICIAL) &&
+        l.getEstilo().equals(EstiloLancamento.ENTRADA) &&
+        Double.compare(l.getValor(), 150.0) == 0 &&
+        l.getCaixa().orElse(null) == c &&
+        l.getUsuario() == u
+    ));
+    verify(caixas).save(same(c));
   }
   
   @Test
@@ -157,18 +147,11 @@ class CaixaServiceTest {
     c.setValor_abertura(0.0);
     c.setDescricao("");
 
-    try (MockedStatic<net.originmobi.pdv.singleton.Aplicacao> app =
-           mockStatic(net.originmobi.pdv.singleton.Aplicacao.class)) {
-      net.originmobi.pdv.singleton.Aplicacao aplicacao = mock(net.originmobi.pdv.singleton.Aplicacao.class);
-      app.when(net.originmobi.pdv.singleton.Aplicacao::getInstancia).thenReturn(aplicacao);
-      when(aplicacao.getUsuarioAtual()).thenReturn("joao");
-
-      when(usuarios.buscaUsuario("joao")).thenReturn(new Usuario());
-      doThrow(new RuntimeException("boom")).when(caixas).save(any(Caixa.class));
+    when(usuarioAtual.getUsuario()).thenReturn(new Usuario());
+    doThrow(new RuntimeException("boom")).when(caixas).save(any(Caixa.class));
 
-      RuntimeException ex = assertThrows(RuntimeException.class, () -> caixaService.cadastro(c));
-      assertEquals("Erro no processo de abertura, chame o suporte técnico", ex.getMessage());
-    }
+    RuntimeException ex = assertThrows(RuntimeException.class, () -> caixaService.cadastro(c));
+    assertEquals("Erro no processo de abertura, chame o suporte técnico", ex.getMessage());
   }
   
   @Test
@@ -181,36 +164,24 @@ class CaixaServiceTest {
 
     when(caixas.caixaAberto()).thenReturn(Optional.empty());
 
-    try (MockedStatic<net.originmobi.pdv.singleton.Aplicacao> app =
-           mockStatic(net.originmobi.pdv.singleton.Aplicacao.class)) {
-      net.originmobi.pdv.singleton.Aplicacao aplicacao = mock(net.originmobi.pdv.singleton.Aplicacao.class);
-      app.when(net.originmobi.pdv.singleton.Aplicacao::getInstancia).thenReturn(aplicacao);
-      when(aplicacao.getUsuarioAtual()).thenReturn("bia");
-
-      when(usuarios.buscaUsuario("bia")).thenReturn(new Usuario());
-      when(caixas.save(any(Caixa.class))).thenAnswer(inv -> inv.getArgument(0));
+    when(usuarioAtual.getUsuario()).thenReturn(new Usuario());
+    when(caixas.save(any(Caixa.class))).thenAnswer(inv -> inv.getArgument(0));
 
-      doThrow(new RuntimeException("lancamento falhou")).when(lancamentos).lancamento(any(CaixaLancamento.class));
+    doThrow(new RuntimeException("lancamento falhou")).when(lancamentos).lancamento(any(CaixaLancamento.class));
 
-      RuntimeException ex = assertThrows(RuntimeException.class, () -> caixaService.cadastro(c));
-      assertEquals("Erro no processo, chame o suporte", ex.getMessage());
-    }
+    RuntimeException ex = assertThrows(RuntimeException.class, () -> caixaService.cadastro(c));
+    assertEquals("Erro no processo, chame o suporte", ex.getMessage());
   }
   
   @Test
   @DisplayName("fechaCaixa(): se senha vazia retorna 'Favor, informe a senha'")
   void fechaCaixa_SenhaVazia_RetornaMensagem() {
-    try (MockedStatic<net.originmobi.pdv.singleton.Aplicacao> app =
-           mockStatic(net.originmobi.pdv.singleton.Aplicacao.class)) {
-      net.originmobi.pdv.singleton.Aplicacao aplicacao = mock(net.originmobi.pdv.singleton.Aplicacao.class);
-      app.when(net.originmobi.pdv.singleton.Aplicacao::getInstancia).thenReturn(aplicacao);
-      when(aplicacao.getUsuarioAtual()).thenReturn("user");
-      when(usuarios.buscaUsuario("user")).thenReturn(new Usuario());
-
-      String msg = caixaService.fechaCaixa(1L, "");
-      assertEquals("Favor, informe a senha", msg);
-      verify(caixas, never()).findById(anyLong());
-    }
+    when(usuarioAtual.getUser()).thenReturn("user");
+    when(usuarios.buscaUsuario("user")).thenReturn(new Usuario());
+
+    String msg = caixaService.fechaCaixa(1L, "");
+    assertEquals("Favor, informe a senha", msg);
+    verify(caixas, never()).findById(anyLong());
   }
 
   @Test
@@ -227,22 +198,17 @@ class CaixaServiceTest {
     c.setValor_total(123.45);
     when(caixas.findById(5L)).thenReturn(Optional.of(c));
 
-    try (MockedStatic<net.originmobi.pdv.singleton.Aplicacao> app =
-           mockStatic(net.originmobi.pdv.singleton.Aplicacao.class)) {
-      net.originmobi.pdv.singleton.Aplicacao aplicacao = mock(net.originmobi.pdv.singleton.Aplicacao.class);
-      app.when(net.originmobi.pdv.singleton.Aplicacao::getInstancia).thenReturn(aplicacao);
-      when(aplicacao.getUsuarioAtual()).thenReturn("user1");
-      when(usuarios.buscaUsuario("user1")).thenReturn(u);
+    when(usuarioAtual.getUser()).thenReturn("user1");
+    when(usuarios.buscaUsuario("user1")).thenReturn(u);
 
-      when(caixas.save(any(Caixa.class))).thenAnswer(inv -> inv.getArgument(0));
+    when(caixas.save(any(Caixa.class))).thenAnswer(inv -> inv.getArgument(0));
 
-      String msg = caixaService.fechaCaixa(5L, "123");
+    String msg = caixaService.fechaCaixa(5L, "123");
 
-      assertEquals("Caixa fechado com sucesso", msg);
-      assertNotNull(c.getData_fechamento());
-      assertEquals(123.45, c.getValor_fechamento());
-      verify(caixas).save(same(c));
-    }
+    assertEquals("Caixa fechado com sucesso", msg);
+    assertNotNull(c.getData_fechamento());
+    assertEquals(123.45, c.getValor_fechamento());
+    verify(caixas).save(same(c));
   }
   
   @Test
@@ -257,17 +223,12 @@ class CaixaServiceTest {
     c.setData_fechamento(new java.sql.Timestamp(System.currentTimeMillis()));
     when(caixas.findById(3L)).thenReturn(Optional.of(c));
 
-    try (MockedStatic<net.originmobi.pdv.singleton.Aplicacao> app =
-           mockStatic(net.originmobi.pdv.singleton.Aplicacao.class)) {
-      net.originmobi.pdv.singleton.Aplicacao aplicacao = mock(net.originmobi.pdv.singleton.Aplicacao.class);
-      app.when(net.originmobi.pdv.singleton.Aplicacao::getInstancia).thenReturn(aplicacao);
-      when(aplicacao.getUsuarioAtual()).thenReturn("user2");
-      when(usuarios.buscaUsuario("user2")).thenReturn(u);
-
-      RuntimeException ex = assertThrows(RuntimeException.class, () -> caixaService.fechaCaixa(3L, "abc"));
-      assertEquals("Caixa já esta fechado", ex.getMessage());
-      verify(caixas, never()).save(any());
-    }
+    when(usuarioAtual.getUser()).thenReturn("user2");
+    when(usuarios.buscaUsuario("user2")).thenReturn(u);
+
+    RuntimeException ex = assertThrows(RuntimeException.class, () -> caixaService.fechaCaixa(3L, "abc"));
+    assertEquals("Caixa já esta fechado", ex.getMessage());
+    verify(caixas, never()).save(any());
   }
   
   @Test
@@ -277,17 +238,12 @@ class CaixaServiceTest {
     Usuario u = new Usuario();
     u.setSenha(enc.encode("certa"));
 
-    try (MockedStatic<net.originmobi.pdv.singleton.Aplicacao> app =
-           mockStatic(net.originmobi.pdv.singleton.Aplicacao.class)) {
-      net.originmobi.pdv.singleton.Aplicacao aplicacao = mock(net.originmobi.pdv.singleton.Aplicacao.class);
-      app.when(net.originmobi.pdv.singleton.Aplicacao::getInstancia).thenReturn(aplicacao);
-      when(aplicacao.getUsuarioAtual()).thenReturn("user3");
-      when(usuarios.buscaUsuario("user3")).thenReturn(u);
-
-      String msg = caixaService.fechaCaixa(10L, "errada");
-      assertEquals("Senha incorreta, favor verifique", msg);
-      verify(caixas, never()).findById(anyLong());
-    }
+    when(usuarioAtual.getUser()).thenReturn("user3");
+    when(usuarios.buscaUsuario("user3")).thenReturn(u);
+
+    String msg = caixaService.fechaCaixa(10L, "errada");
+    assertEquals("Senha incorreta, favor verifique", msg);
+    verify(caixas, never()).findById(anyLong());
   }
   
   @Test
@@ -301,16 +257,11 @@ class CaixaServiceTest {
     when(caixas.findById(11L)).thenReturn(Optional.of(c));
     doThrow(new RuntimeException("x")).when(caixas).save(any(Caixa.class));
 
-    try (MockedStatic<net.originmobi.pdv.singleton.Aplicacao> app =
-           mockStatic(net.originmobi.pdv.singleton.Aplicacao.class)) {
-      net.originmobi.pdv.singleton.Aplicacao aplicacao = mock(net.originmobi.pdv.singleton.Aplicacao.class);
-      app.when(net.originmobi.pdv.singleton.Aplicacao::getInstancia).thenReturn(aplicacao);
-      when(aplicacao.getUsuarioAtual()).thenReturn("user4");
-      when(usuarios.buscaUsuario("user4")).thenReturn(u);
+    when(usuarioAtual.getUser()).thenReturn("user4");
+    when(usuarios.buscaUsuario("user4")).thenReturn(u);
 
-      RuntimeException ex = assertThrows(RuntimeException.class, () -> caixaService.fechaCaixa(11L, "pw"));
-      assertEquals("Ocorreu um erro ao fechar o caixa, chame o suporte", ex.getMessage());
-    }
+    RuntimeException ex = assertThrows(RuntimeException.class, () -> caixaService.fechaCaixa(11L, "pw"));
+    assertEquals("Ocorreu um erro ao fechar o caixa, chame o suporte", ex.getMessage());
   }
   
   @Test
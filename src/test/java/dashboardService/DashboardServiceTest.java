@@ -0,0 +1,116 @@
+package dashboardService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import net.originmobi.pdv.repository.VendaRepository;
+import net.originmobi.pdv.repository.notafiscal.NotaFiscalRepository;
+import net.originmobi.pdv.service.DashboardEvento;
+import net.originmobi.pdv.service.DashboardResumo;
+import net.originmobi.pdv.service.DashboardService;
+import net.originmobi.pdv.service.PosicaoVencimentos;
+import net.originmobi.pdv.service.PosicaoVencimentosService;
+
+class DashboardServiceTest {
+
+    private DashboardService dashboard;
+    private VendaRepository vendas;
+    private NotaFiscalRepository notas;
+    private PosicaoVencimentosService vencimentos;
+
+    @BeforeEach
+    void setup() {
+        vendas = mock(VendaRepository.class);
+        notas = mock(NotaFiscalRepository.class);
+
+        vencimentos = mock(PosicaoVencimentosService.class);
+        when(vencimentos.receber()).thenReturn(new PosicaoVencimentos());
+        when(vencimentos.pagar()).thenReturn(new PosicaoVencimentos());
+        when(vencimentos.totalReceber()).thenReturn("0,00");
+        when(vencimentos.totalPagar()).thenReturn("0,00");
+
+        dashboard = new DashboardService();
+        ReflectionTestUtils.setField(dashboard, "vendas", vendas);
+        ReflectionTestUtils.setField(dashboard, "notas", notas);
+        ReflectionTestUtils.setField(dashboard, "vencimentos", vencimentos);
+        dashboard.inicia();
+    }
+
+    @AfterEach
+    void encerra() {
+        dashboard.encerra();
+    }
+
+    @Test
+    @DisplayName("resumo(): deve contar no banco apenas uma vez e depois aplicar os eventos")
+    void resumo_Eventos() {
+        when(vendas.qtdVendasEmAberto()).thenReturn(3);
+        when(notas.totalNotaFiscalEmitidas()).thenReturn(10);
+
+        assertEquals(3, dashboard.resumo().getPedidosAberto());
+
+        dashboard.atualiza(DashboardEvento.vendaAberta());
+        dashboard.atualiza(DashboardEvento.vendaAberta());
+        dashboard.atualiza(DashboardEvento.vendaFechada());
+        dashboard.atualiza(DashboardEvento.notaCadastrada());
+
+        DashboardResumo resumo = dashboard.resumo();
+
+        assertEquals(4, resumo.getPedidosAberto());
+        assertEquals(11, resumo.getNotasEmitidas());
+        assertEquals(BigDecimal.ZERO, resumo.getVencidoReceber());
+        verify(vendas, times(1)).qtdVendasEmAberto();
+        verify(notas, times(1)).totalNotaFiscalEmitidas();
+    }
+
+    @Test
+    @DisplayName("reconcilia(): deve corrigir os contadores com a contagem do banco")
+    void reconcilia_Corrige() {
+        when(vendas.qtdVendasEmAberto()).thenReturn(2, 5);
+        when(notas.totalNotaFiscalEmitidas()).thenReturn(1, 1);
+
+        // eventos antes da primeira contagem já estão incluídos nela
+        dashboard.atualiza(DashboardEvento.vendaAberta());
+        assertEquals(2, dashboard.resumo().getPedidosAberto());
+
+        dashboard.atualiza(DashboardEvento.vendaFechada());
+        assertEquals(1, dashboard.resumo().getPedidosAberto());
+
+        dashboard.reconcilia();
+        assertEquals(5, dashboard.resumo().getPedidosAberto());
+        verify(vendas, times(2)).qtdVendasEmAberto();
+    }
+
+    @Test
+    @DisplayName("atualiza(): o resumo deve ser enviado aos dashboards fora da thread que publicou o evento")
+    void atualiza_EnviaForaDaTransacao() {
+        when(vendas.qtdVendasEmAberto()).thenReturn(3);
+        when(notas.totalNotaFiscalEmitidas()).thenReturn(10);
+
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        when(vencimentos.receber()).thenAnswer(inv -> {
+            threads.add(Thread.currentThread());
+            return new PosicaoVencimentos();
+        });
+
+        dashboard.inscreve();
+        dashboard.atualiza(DashboardEvento.vendaAberta());
+
+        // a primeira contagem também agenda um envio, por isso ao menos dois
+        verify(vencimentos, timeout(1000).atLeast(2)).receber();
+        assertSame(Thread.currentThread(), threads.get(0));
+        for (Thread thread : threads.subList(1, threads.size()))
+            assertNotSame(Thread.currentThread(), thread);
+    }
+
+}
@@ -0,0 +1,69 @@
+package notafiscalService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import net.originmobi.pdv.xml.nfe.AssinaXML;
+
+class AssinaXMLTest {
+
+    private static final String XML = "<enviNFe><NFe xmlns=\"http://www.portalfiscal.inf.br/nfe\">"
+            + "<infNFe Id=\"NFe11180512271266000158550010000000011994707452\"><ide>1</ide></infNFe></NFe></enviNFe>";
+
+    @TempDir
+    Path diretorio;
+
+    private File certificado;
+
+    @BeforeEach
+    void setup() throws Exception {
+        certificado = diretorio.resolve("certificado.pfx").toFile();
+
+        // gera um certificado A1 de teste com o keytool da JDK
+        Process keytool = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "nfe", "-keyalg", "RSA", "-keysize", "2048", "-validity", "30",
+                "-dname", "CN=Teste NFe", "-storetype", "pkcs12", "-keystore", certificado.getAbsolutePath(),
+                "-storepass", "senha123", "-keypass", "senha123").redirectErrorStream(true).start();
+
+        assertEquals(0, keytool.waitFor());
+    }
+
+    @Test
+    @DisplayName("assinaXML(): deve assinar várias notas carregando o certificado uma única vez")
+    void assinaXML_ReutilizaCertificado() {
+        AssinaXML assina = new AssinaXML(certificado.getAbsolutePath(), "senha123");
+
+        String primeira = assina.assinaXML(XML);
+        Object carregado = ReflectionTestUtils.getField(assina, "assinatura");
+
+        for (int i = 0; i < 50; i++)
+            assertTrue(assina.assinaXML(XML).contains("<SignatureValue>"));
+
+        assertTrue(primeira.contains("<X509Certificate>"));
+        assertSame(carregado, ReflectionTestUtils.getField(assina, "assinatura"));
+    }
+
+    @Test
+    @DisplayName("assinaXML(): deve recarregar o certificado quando o arquivo for alterado")
+    void assinaXML_ArquivoAlterado_Recarrega() {
+        AssinaXML assina = new AssinaXML(certificado.getAbsolutePath(), "senha123");
+
+        assina.assinaXML(XML);
+        Object carregado = ReflectionTestUtils.getField(assina, "assinatura");
+
+        assertTrue(certificado.setLastModified(certificado.lastModified() - 60000));
+
+        assertTrue(assina.assinaXML(XML).contains("<SignatureValue>"));
+        assertNotSame(carregado, ReflectionTestUtils.getField(assina, "assinatura"));
+    }
+
+}
@@ -0,0 +1,93 @@
+package notafiscalService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import net.originmobi.pdv.model.CFOP;
+import net.originmobi.pdv.model.Cst;
+import net.originmobi.pdv.model.CstCsosn;
+import net.originmobi.pdv.model.CstIPI;
+import net.originmobi.pdv.model.NotaFiscalItemImposto;
+import net.originmobi.pdv.model.TributacaoRegra;
+import net.originmobi.pdv.service.notafiscal.CalculoImpostos;
+import net.originmobi.pdv.service.notafiscal.ImpostoRegra;
+
+class CalculoImpostosTest {
+
+    @Test
+    @DisplayName("calcula(): deve arredondar cada valor uma vez para 2 casas, metade para o par")
+    void calcula_Arredondamento() {
+        // 0,15 x 7,5% = 0,01125 fica 0,01 e 0,15 x 1,65% = 0,0025 fica 0,00
+        NotaFiscalItemImposto imposto = CalculoImpostos.calcula(0.15, ImpostoRegra.de(regra(7.5, 1.65, 7.6, 5.0)), '0', 3);
+
+        assertEquals(0.01, imposto.getV_icms(), 0.0);
+        assertEquals(0.0, imposto.getV_pis(), 0.0);
+        assertEquals(0.01, imposto.getV_cofins(), 0.0);
+        assertEquals(0.01, imposto.getV_ipi(), 0.0);
+
+        // 0,10 x 25% = 0,025 fica 0,02 e 0,30 x 25% = 0,075 fica 0,08
+        ImpostoRegra vinteECinco = ImpostoRegra.de(regra(25.0, 0.0, 0.0, 0.0));
+        assertEquals(0.02, CalculoImpostos.calcula(0.10, vinteECinco, '0', 3).getV_icms(), 0.0);
+        assertEquals(0.08, CalculoImpostos.calcula(0.30, vinteECinco, '0', 3).getV_icms(), 0.0);
+
+        // base com erro de ponto flutuante (3 x 9,95) é tratada como 29,85
+        NotaFiscalItemImposto produto = CalculoImpostos.calcula(3 * 9.95, ImpostoRegra.de(regra(18.0, 0.0, 0.0, 0.0)), '1', 3);
+        assertEquals(29.85, produto.getV_bc(), 0.0);
+        assertEquals(5.37, produto.getV_icms(), 0.0);
+        assertEquals(1, produto.getOrig());
+        assertEquals(18.0, produto.getP_icms(), 0.0);
+    }
+
+    @Test
+    @DisplayName("calcula(): o cálculo em lote deve ser igual ao cálculo item a item")
+    void calcula_Lote() {
+        ImpostoRegra[] regras = { ImpostoRegra.de(regra(18.0, 1.65, 7.6, 0.0)), ImpostoRegra.de(regra(12.0, 0.65, 3.0, 10.0)) };
+        double[] totais = { 123.45, 0.99 };
+
+        NotaFiscalItemImposto[] lote = CalculoImpostos.calcula(totais, regras, new char[] { '0', '2' }, new int[] { 3, 0 });
+
+        assertEquals(2, lote.length);
+
+        for (int i = 0; i < totais.length; i++) {
+            NotaFiscalItemImposto item = CalculoImpostos.calcula(totais[i], regras[i], i == 0 ? '0' : '2', i == 0 ? 3 : 0);
+
+            assertEquals(item.getV_icms(), lote[i].getV_icms());
+            assertEquals(item.getV_pis(), lote[i].getV_pis());
+            assertEquals(item.getV_cofins(), lote[i].getV_cofins());
+            assertEquals(item.getV_ipi(), lote[i].getV_ipi());
+            assertEquals(item.getMod_bc(), lote[i].getMod_bc());
+        }
+
+        assertEquals(22.22, lote[0].getV_icms(), 0.0);
+        assertEquals(2.04, lote[0].getV_pis(), 0.0);
+        assertEquals(9.38, lote[0].getV_cofins(), 0.0);
+        assertEquals(0.10, lote[1].getV_ipi(), 0.0);
+        assertEquals(50, lote[0].getCst_pis());
+    }
+
+    private TributacaoRegra regra(double icms, double pis, double cofins, double ipi) {
+        CstCsosn csosn = new CstCsosn();
+        csosn.setCst_csosn("00");
+        Cst cst = new Cst();
+        cst.setCst("50");
+        CstIPI cstIpi = new CstIPI();
+        cstIpi.setCst("50");
+        CFOP cfop = new CFOP();
+        cfop.setCfop("5102");
+
+        TributacaoRegra regra = new TributacaoRegra();
+        regra.setCst_csosn(csosn);
+        regra.setCst_pis(cst);
+        regra.setCst_cofins(cst);
+        regra.setCst_ipi(cstIpi);
+        regra.setCfop(cfop);
+        regra.setAliq_icms(icms);
+        regra.setPis(pis);
+        regra.setCofins(cofins);
+        regra.setAliq_ipi(ipi);
+        return regra;
+    }
+
+}
@@ -0,0 +1,106 @@
+package notafiscalService;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.w3c.dom.Document;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.xml.DomDriver;
+
+import net.originmobi.pdv.model.NotaFiscal;
+import net.originmobi.pdv.xml.nfe.AssinaXML;
+import net.originmobi.pdv.xml.nfe.ConversorXmlNfe;
+import net.originmobi.pdv.xml.nfe.SerializadorNfe;
+
+/*
+ * Compara a geração do XML da NF-e em String, com um XStream por nota e relida
+ * pelo AssinaXML para assinar, com a geração direta no DOM pelo SerializadorNfe
+ * compartilhado. Não roda com os testes, para executar:
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=notafiscalService.GeraXmlNfeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeraXmlNfeBenchmark {
+
+    @Param({ "1", "50", "500" })
+    int itens;
+
+    private NotaFiscal nota;
+    private AssinaXML assina;
+    private SerializadorNfe serializador;
+
+    @Setup
+    public void setup() throws Exception {
+        nota = NotaFiscalExemplo.nota(itens);
+
+        File certificado = Files.createTempDirectory("nfe").resolve("certificado.pfx").toFile();
+        certificado.deleteOnExit();
+
+        Process keytool = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "nfe", "-keyalg", "RSA", "-keysize", "2048", "-validity", "30",
+                "-dname", "CN=Teste NFe", "-storetype", "pkcs12", "-keystore", certificado.getAbsolutePath(),
+                "-storepass", "senha123", "-keypass", "senha123").redirectErrorStream(true).start();
+
+        if (keytool.waitFor() != 0)
+            throw new IllegalStateException("Erro ao gerar o certificado de teste");
+
+        assina = new AssinaXML(certificado.getAbsolutePath(), "senha123");
+        serializador = new SerializadorNfe();
+    }
+
+    @Benchmark
+    public String stringComReleitura() {
+        String xml = xstream().toXML(nota);
+        return assina.assinaXML(xml);
+    }
+
+    @Benchmark
+    public Document domDireto() throws Exception {
+        Document documento = serializador.serializa(nota).getDocumento();
+        assina.assina(documento);
+
+        TransformerFactory.newInstance().newTransformer().transform(new DOMSource(documento),
+                new StreamResult(OutputStream.nullOutputStream()));
+        return documento;
+    }
+
+    private XStream xstream() {
+        XStream xstream = new XStream(new DomDriver());
+        xstream.registerConverter(new ConversorXmlNfe());
+        xstream.alias("enviNFe", NotaFiscal.class);
+        return xstream;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(GeraXmlNfeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class).build()).run();
+    }
+
+}
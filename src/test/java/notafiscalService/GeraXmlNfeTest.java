@@ -0,0 +1,100 @@
+package notafiscalService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.w3c.dom.Document;
+
+import net.originmobi.pdv.service.notafiscal.NotaFiscalService;
+import net.originmobi.pdv.xml.nfe.AssinaXML;
+import net.originmobi.pdv.xml.nfe.GeraXmlNfe;
+import net.originmobi.pdv.xml.nfe.NfeDomWriter;
+import net.originmobi.pdv.xml.nfe.SerializadorNfe;
+
+@ExtendWith(MockitoExtension.class)
+class GeraXmlNfeTest {
+
+    @Mock
+    private NotaFiscalService nfServer;
+
+    @TempDir
+    Path diretorio;
+
+    private GeraXmlNfe geraXml;
+
+    @BeforeEach
+    void setup() throws Exception {
+        File certificado = diretorio.resolve("certificado.pfx").toFile();
+
+        Process keytool = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "nfe", "-keyalg", "RSA", "-keysize", "2048", "-validity", "30",
+                "-dname", "CN=Teste NFe", "-storetype", "pkcs12", "-keystore", certificado.getAbsolutePath(),
+                "-storepass", "senha123", "-keypass", "senha123").redirectErrorStream(true).start();
+
+        assertEquals(0, keytool.waitFor());
+
+        geraXml = new GeraXmlNfe();
+        ReflectionTestUtils.setField(geraXml, "nfServer", nfServer);
+        ReflectionTestUtils.setField(geraXml, "assina", new AssinaXML(certificado.getAbsolutePath(), "senha123"));
+        ReflectionTestUtils.setField(geraXml, "serializador", new SerializadorNfe());
+    }
+
+    @Test
+    @DisplayName("gerarXML(): deve gravar o documento assinado gerado direto no DOM")
+    void gerarXML_GravaDocumentoAssinado() throws Exception {
+        Map<String, Long> tempos = new HashMap<>();
+
+        String chave = geraXml.gerarXML(NotaFiscalExemplo.nota(50), tempos);
+
+        ArgumentCaptor<Document> documento = ArgumentCaptor.forClass(Document.class);
+        verify(nfServer).salvaXML(documento.capture(), eq(chave));
+
+        Document xml = documento.getValue();
+        assertEquals(50, xml.getElementsByTagNameNS(NfeDomWriter.NAMESPACE, "det").getLength());
+        assertEquals(1, xml.getElementsByTagNameNS("http://www.w3.org/2000/09/xmldsig#", "SignatureValue").getLength());
+
+        StringWriter saida = new StringWriter();
+        TransformerFactory.newInstance().newTransformer().transform(new DOMSource(xml), new StreamResult(saida));
+
+        assertTrue(saida.toString().startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<enviNFe xmlns=\"http://www.portalfiscal.inf.br/nfe\" versao=\"3.10\">"));
+        assertTrue(saida.toString().contains("<infNFe Id=\"NFe" + chave + "\" versao=\"3.10\">"));
+        assertTrue(tempos.keySet().containsAll(Arrays.asList("xml", "assinatura", "gravacao")));
+    }
+
+    @Test
+    @DisplayName("gerarXML(): deve falhar sem gravar quando o certificado for inválido")
+    void gerarXML_CertificadoInvalido_NaoGrava() {
+        ReflectionTestUtils.setField(geraXml, "assina", new AssinaXML(diretorio.resolve("nao.pfx").toString(), "x"));
+
+        RuntimeException erro = assertThrows(RuntimeException.class,
+                () -> geraXml.gerarXML(NotaFiscalExemplo.nota(1)));
+
+        assertEquals("Erro ao assinar o XML da nota fiscal, verifique o certificado digital", erro.getMessage());
+        verifyNoInteractions(nfServer);
+    }
+
+}
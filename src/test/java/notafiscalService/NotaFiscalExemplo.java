@@ -0,0 +1,159 @@
+package notafiscalService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.originmobi.pdv.enumerado.notafiscal.NotaFiscalTipo;
+import net.originmobi.pdv.model.Cidade;
+import net.originmobi.pdv.model.Empresa;
+import net.originmobi.pdv.model.EmpresaParametro;
+import net.originmobi.pdv.model.Endereco;
+import net.originmobi.pdv.model.Estado;
+import net.originmobi.pdv.model.FreteTipo;
+import net.originmobi.pdv.model.NotaFiscal;
+import net.originmobi.pdv.model.NotaFiscalFinalidade;
+import net.originmobi.pdv.model.NotaFiscalItem;
+import net.originmobi.pdv.model.NotaFiscalItemImposto;
+import net.originmobi.pdv.model.NotaFiscalTotais;
+import net.originmobi.pdv.model.Pais;
+import net.originmobi.pdv.model.Pessoa;
+import net.originmobi.pdv.model.RegimeTributario;
+import net.originmobi.pdv.model.Telefone;
+
+/*
+ * Nota fiscal completa, com todos os dados lidos pelo ConversorXmlNfe, usada
+ * nos testes e no benchmark da geração do XML
+ */
+class NotaFiscalExemplo {
+
+    static NotaFiscal nota(int quantidadeItens) {
+        NotaFiscal nota = new NotaFiscal();
+        nota.setNumero(1L);
+        nota.setModelo(55);
+        nota.setSerie(1);
+        nota.setTipo_ambiente(2);
+        nota.setNatureza_operacao("Venda de mercadoria");
+        nota.setTipo(NotaFiscalTipo.SAIDA);
+        nota.setEmissor(emissor());
+        nota.setDestinatario(destinatario());
+
+        FreteTipo frete = new FreteTipo();
+        frete.setTipo(9);
+        nota.setFreteTipo(frete);
+
+        NotaFiscalFinalidade finalidade = new NotaFiscalFinalidade();
+        finalidade.setTipo(1);
+        nota.setFinalidade(finalidade);
+
+        List<NotaFiscalItem> itens = new ArrayList<>();
+        for (int i = 0; i < quantidadeItens; i++)
+            itens.add(item((long) i + 1));
+        nota.setItens(itens);
+
+        double total = quantidadeItens * 20.0;
+        NotaFiscalTotais totais = new NotaFiscalTotais();
+        totais.setV_bc(total);
+        totais.setV_icms(total * 0.18);
+        totais.setV_st(0.0);
+        totais.setV_prod(total);
+        totais.setV_frete(0.0);
+        totais.setV_seg(0.0);
+        totais.setV_desc(0.0);
+        totais.setV_ii(0.0);
+        totais.setV_ipi(0.0);
+        totais.setV_pis(total * 0.0165);
+        totais.setV_cofins(total * 0.076);
+        totais.setV_outros(0.0);
+        totais.setV_nf(total);
+        nota.setTotais(totais);
+
+        return nota;
+    }
+
+    private static Empresa emissor() {
+        RegimeTributario regime = new RegimeTributario();
+        regime.setTipoRegime(3);
+
+        EmpresaParametro parametro = new EmpresaParametro();
+        parametro.setSerie_nfe(1);
+        parametro.setAmbiente(2);
+
+        Empresa empresa = new Empresa();
+        empresa.setNome("Empresa Teste LTDA");
+        empresa.setNome_fantasia("Empresa Teste");
+        empresa.setCnpj("12.271.266/0001-58");
+        empresa.setIe("123456789");
+        empresa.setRegime_tributario(regime);
+        empresa.setParametro(parametro);
+        empresa.setEndereco(endereco());
+        return empresa;
+    }
+
+    private static Pessoa destinatario() {
+        Telefone telefone = new Telefone();
+        telefone.setFone("(11) 99999-9999");
+
+        Pessoa pessoa = new Pessoa();
+        pessoa.setNome("Cliente Teste");
+        pessoa.setCpfcnpj("123.456.789-09");
+        pessoa.setEndereco(endereco());
+        pessoa.setTelefone(Collections.singletonList(telefone));
+        return pessoa;
+    }
+
+    private static Endereco endereco() {
+        Pais pais = new Pais();
+        pais.setNome("Brasil");
+        pais.setCodigo_pais("1058");
+
+        Estado estado = new Estado();
+        estado.setSigla("SP");
+        estado.setCodigoUF("35");
+        estado.setPais(pais);
+
+        Cidade cidade = new Cidade();
+        cidade.setNome("São Paulo");
+        cidade.setCodigo_municipio("3550308");
+        cidade.setEstado(estado);
+
+        Endereco endereco = new Endereco();
+        endereco.setRua("Rua Teste");
+        endereco.setBairro("Centro");
+        endereco.setNumero("100");
+        endereco.setCep("01001000");
+        endereco.setReferencia("Sala 1");
+        endereco.setCidade(cidade);
+        return endereco;
+    }
+
+    private static NotaFiscalItem item(Long codigo) {
+        NotaFiscalItemImposto impostos = new NotaFiscalItemImposto();
+        impostos.setOrig(0);
+        impostos.setCst(0);
+        impostos.setMod_bc(3);
+        impostos.setV_bc(20.0);
+        impostos.setP_icms(18.0);
+        impostos.setV_icms(3.6);
+        impostos.setCst_pis(1);
+        impostos.setVbc_pis(20.0);
+        impostos.setP_pis(1.65);
+        impostos.setV_pis(0.33);
+        impostos.setCst_cofins(1);
+        impostos.setVbc_cofins(20.0);
+        impostos.setP_cofins(7.6);
+        impostos.setV_cofins(1.52);
+
+        NotaFiscalItem item = new NotaFiscalItem();
+        item.setCodigo(codigo);
+        item.setCfop("5102");
+        item.setUnidade_tribu("UN");
+        item.setQtd(2);
+        item.setQtd_tribu(2);
+        item.setV_uniTribu(10.0);
+        item.setVlTotal(20.0);
+        item.setImpostos(impostos);
+        return item;
+    }
+
+}
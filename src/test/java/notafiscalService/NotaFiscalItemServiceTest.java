@@ -0,0 +1,211 @@
+package notafiscalService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import net.originmobi.pdv.enumerado.EntradaSaida;
+import net.originmobi.pdv.enumerado.notafiscal.NotaFiscalTipo;
+import net.originmobi.pdv.enumerado.produto.ProdutoSubstTributaria;
+import net.originmobi.pdv.model.CFOP;
+import net.originmobi.pdv.model.Cst;
+import net.originmobi.pdv.model.CstCsosn;
+import net.originmobi.pdv.model.CstIPI;
+import net.originmobi.pdv.model.ModBcIcms;
+import net.originmobi.pdv.model.NotaFiscal;
+import net.originmobi.pdv.model.NotaFiscalItem;
+import net.originmobi.pdv.model.NotaFiscalItemImposto;
+import net.originmobi.pdv.model.Produto;
+import net.originmobi.pdv.model.Tributacao;
+import net.originmobi.pdv.model.TributacaoRegra;
+import net.originmobi.pdv.repository.notafiscal.NotaFiscalItemRepository;
+import net.originmobi.pdv.service.ProdutoService;
+import net.originmobi.pdv.service.TributacaoRegraCache;
+import net.originmobi.pdv.service.notafiscal.ImpostoRegra;
+import net.originmobi.pdv.service.notafiscal.NotaFiscalItemImpostoService;
+import net.originmobi.pdv.service.notafiscal.NotaFiscalItemService;
+import net.originmobi.pdv.service.notafiscal.NotaFiscalService;
+import net.originmobi.pdv.service.notafiscal.NotaFiscalTotaisServer;
+
+@ExtendWith(MockitoExtension.class)
+class NotaFiscalItemServiceTest {
+
+    @InjectMocks
+    private NotaFiscalItemService itens;
+
+    @Mock private NotaFiscalItemRepository itemServer;
+    @Mock private NotaFiscalTotaisServer totais;
+    @Mock private ProdutoService produtos;
+    @Mock private NotaFiscalService notas;
+    @Mock private TributacaoRegraCache regras;
+
+    private NotaFiscal nota;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(itens, "impostos", new NotaFiscalItemImpostoService());
+
+        nota = NotaFiscalExemplo.nota(0);
+        nota.setCodigo(10L);
+        nota.setItens(new ArrayList<>());
+    }
+
+    @Test
+    @DisplayName("insereLote(): deve buscar os produtos uma vez, gravar em lote e calcular os totais no final")
+    void insereLote_GravaEmLote() {
+        Tributacao tributacao = new Tributacao();
+        tributacao.setCodigo(1L);
+        TributacaoRegra regra = regra(tributacao);
+
+        // produto 2 já está na nota com 3 unidades
+        NotaFiscalItemImposto impostoExistente = new NotaFiscalItemImposto();
+        impostoExistente.setCodigo(50L);
+        NotaFiscalItem existente = new NotaFiscalItem(2L, 3, 30.0, "UN", 3, 10.0, nota, impostoExistente, "5102");
+        existente.setCodigo(40L);
+        nota.getItens().add(existente);
+
+        when(notas.busca(10L)).thenReturn(Optional.of(nota));
+        when(produtos.buscaProdutos(any())).thenReturn(Arrays.asList(produto(1L, tributacao), produto(2L, tributacao)));
+        when(regras.possuiRegra(1L, EntradaSaida.SAIDA)).thenReturn(true);
+        when(regras.regra(1L, "SP", EntradaSaida.SAIDA)).thenReturn(regra);
+        when(regras.impostos(regra)).thenReturn(ImpostoRegra.de(regra));
+        when(regras.origem(1L)).thenReturn('0');
+
+        int total = itens.insereLote(10L, Arrays.asList(1L, 2L, 1L), Arrays.asList(2, 1, 4), NotaFiscalTipo.SAIDA);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<NotaFiscalItem>> novos = ArgumentCaptor.forClass(List.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<NotaFiscalItem>> alterados = ArgumentCaptor.forClass(List.class);
+
+        verify(itemServer).insereEmLote(novos.capture());
+        verify(itemServer).atualizaEmLote(alterados.capture());
+
+        assertEquals(2, total);
+
+        NotaFiscalItem novo = novos.getValue().get(0);
+        assertEquals(1, novos.getValue().size());
+        assertEquals(6, novo.getQtd());
+        assertEquals(60.0, novo.getVlTotal(), 0.001);
+        assertEquals(10.8, novo.getImpostos().getV_icms(), 0.001);
+        assertEquals("5102", novo.getCfop());
+
+        NotaFiscalItem alterado = alterados.getValue().get(0);
+        assertEquals(40L, alterado.getCodigo());
+        assertEquals(50L, alterado.getImpostos().getCodigo());
+        assertEquals(4, alterado.getQtd());
+
+        verify(produtos, times(1)).buscaProdutos(any());
+        verify(totais, times(1)).recalcula(10L, nota.getTotais());
+        verify(itemServer, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("insereLote(): não deve gravar nada quando algum produto não existir")
+    void insereLote_ProdutoInexistente() {
+        when(notas.busca(10L)).thenReturn(Optional.of(nota));
+        when(produtos.buscaProdutos(any())).thenReturn(new ArrayList<>());
+
+        RuntimeException erro = assertThrows(RuntimeException.class,
+                () -> itens.insereLote(10L, Arrays.asList(99L), Arrays.asList(1), NotaFiscalTipo.SAIDA));
+
+        assertEquals("Produto 99 não encontrado, favor verifique", erro.getMessage());
+        verifyNoInteractions(itemServer, totais);
+    }
+
+    @Test
+    @DisplayName("recalculaImpostos(): deve recalcular todos os itens com a regra atual e gravar em lote sem alterar os itens da nota")
+    void recalculaImpostos_RegraAlterada() {
+        Tributacao tributacao = new Tributacao();
+        tributacao.setCodigo(1L);
+        TributacaoRegra regra = regra(tributacao);
+        regra.setAliq_icms(12.0);
+
+        NotaFiscalItemImposto imposto = new NotaFiscalItemImposto();
+        imposto.setCodigo(50L);
+        imposto.setV_icms(1.8);
+        NotaFiscalItem item = new NotaFiscalItem(1L, 1, 10.0, "UN", 1, 10.0, nota, imposto, "5102");
+        item.setCodigo(40L);
+        nota.getItens().add(item);
+
+        when(notas.busca(10L)).thenReturn(Optional.of(nota));
+        when(produtos.buscaProdutos(any())).thenReturn(Arrays.asList(produto(1L, tributacao)));
+        when(regras.regra(1L, "SP", EntradaSaida.SAIDA)).thenReturn(regra);
+        when(regras.impostos(regra)).thenReturn(ImpostoRegra.de(regra));
+        when(regras.origem(1L)).thenReturn('0');
+
+        assertEquals(1, itens.recalculaImpostos(10L));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<NotaFiscalItem>> alterados = ArgumentCaptor.forClass(List.class);
+        verify(itemServer).atualizaEmLote(alterados.capture());
+
+        NotaFiscalItem gravado = alterados.getValue().get(0);
+        assertNotSame(item, gravado);
+        assertEquals(40L, gravado.getCodigo());
+        assertEquals(50L, gravado.getImpostos().getCodigo());
+        assertEquals(1.2, gravado.getImpostos().getV_icms(), 0.001);
+
+        // o item da nota não é alterado, senão o Hibernate o atualizaria de novo
+        assertSame(imposto, item.getImpostos());
+        assertEquals(1.8, item.getImpostos().getV_icms(), 0.001);
+        verify(totais, times(1)).recalcula(10L, nota.getTotais());
+    }
+
+    private Produto produto(Long codigo, Tributacao tributacao) {
+        ModBcIcms modBc = new ModBcIcms();
+        modBc.setTipo(3);
+
+        Produto produto = new Produto();
+        produto.setCodigo(codigo);
+        produto.setValor_venda(10.0);
+        produto.setUnidade("UN");
+        produto.setNcm("21050010");
+        produto.setCest("");
+        produto.setSubtributaria(ProdutoSubstTributaria.NAO);
+        produto.setTributacao(tributacao);
+        produto.setModBcIcms(modBc);
+        return produto;
+    }
+
+    private TributacaoRegra regra(Tributacao tributacao) {
+        CstCsosn csosn = new CstCsosn();
+        csosn.setCst_csosn("00");
+        Cst cst = new Cst();
+        cst.setCst("01");
+        CstIPI cstIpi = new CstIPI();
+        cstIpi.setCst("50");
+        CFOP cfop = new CFOP();
+        cfop.setCfop("5102");
+
+        TributacaoRegra regra = new TributacaoRegra();
+        regra.setTributacao(tributacao);
+        regra.setTipo(EntradaSaida.SAIDA);
+        regra.setCst_csosn(csosn);
+        regra.setCst_pis(cst);
+        regra.setCst_cofins(cst);
+        regra.setCst_ipi(cstIpi);
+        regra.setCfop(cfop);
+        regra.setAliq_icms(18.0);
+        regra.setPis(1.65);
+        regra.setCofins(7.6);
+        regra.setAliq_ipi(0.0);
+        return regra;
+    }
+
+}
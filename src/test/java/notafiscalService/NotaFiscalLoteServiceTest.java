@@ -0,0 +1,141 @@
+package notafiscalService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import net.originmobi.pdv.enumerado.notafiscal.NotaFiscalEmissaoSituacao;
+import net.originmobi.pdv.model.NotaFiscal;
+import net.originmobi.pdv.service.notafiscal.NotaFiscalLoteService;
+import net.originmobi.pdv.service.notafiscal.NotaFiscalService;
+
+class NotaFiscalLoteServiceTest {
+
+    private NotaFiscalService notasFiscais = mock(NotaFiscalService.class);
+    private NotaFiscalLoteService lotes;
+
+    @BeforeEach
+    void setup() {
+        lotes = new NotaFiscalLoteService();
+        ReflectionTestUtils.setField(lotes, "threads", 3);
+        ReflectionTestUtils.setField(lotes, "capacidade", 5);
+        ReflectionTestUtils.setField(lotes, "ttl", 60000L);
+        ReflectionTestUtils.setField(lotes, "notasFiscais", notasFiscais);
+        ReflectionTestUtils.setField(lotes, "transactionManager", mock(PlatformTransactionManager.class));
+        lotes.inicia();
+    }
+
+    @AfterEach
+    void encerra() {
+        lotes.encerra();
+    }
+
+    private NotaFiscal nota(long codigo) {
+        NotaFiscal nota = new NotaFiscal();
+        nota.setCodigo(codigo);
+        when(notasFiscais.busca(codigo)).thenReturn(Optional.of(nota));
+        return nota;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> aguarda(String id) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> situacao = lotes.situacao(id);
+            if ((Boolean) situacao.get("concluido"))
+                return situacao;
+            Thread.sleep(20);
+        }
+        fail("lote não foi concluído");
+        return null;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("emite(): a falha de uma nota não deve impedir a emissão das demais")
+    void emite_FalhaEmUmaNota_EmiteDemais() throws Exception {
+        nota(1L);
+        NotaFiscal comErro = nota(2L);
+        nota(3L);
+
+        doAnswer(inv -> {
+            NotaFiscal nota = inv.getArgument(0);
+            Map<String, Long> tempos = inv.getArgument(1);
+            tempos.put("xml", 1L);
+            tempos.put("assinatura", 2L);
+            nota.setChave_acesso("chave" + nota.getCodigo());
+            return null;
+        }).when(notasFiscais).emitir(any(NotaFiscal.class), anyMap());
+        doThrow(new RuntimeException("Erro ao assinar o XML da nota fiscal")).when(notasFiscais)
+                .emitir(same(comErro), anyMap());
+
+        Map<String, Object> situacao = aguarda(lotes.emite(Arrays.asList(1L, 2L, 3L)));
+
+        assertEquals(3, situacao.get("total"));
+        assertEquals(2, situacao.get("emitidas"));
+        assertEquals(1, situacao.get("erros"));
+
+        List<Map<String, Object>> notas = (List<Map<String, Object>>) situacao.get("notas");
+        assertEquals(NotaFiscalEmissaoSituacao.EMITIDA, notas.get(0).get("situacao"));
+        assertEquals("chave1", notas.get(0).get("chave"));
+        assertEquals(2L, ((Map<String, Long>) notas.get(0).get("tempos")).get("assinatura"));
+        assertEquals(NotaFiscalEmissaoSituacao.ERRO, notas.get(1).get("situacao"));
+        assertEquals("Erro ao assinar o XML da nota fiscal", notas.get(1).get("mensagem"));
+        assertEquals(NotaFiscalEmissaoSituacao.EMITIDA, notas.get(2).get("situacao"));
+    }
+
+    @Test
+    @DisplayName("emite(): sem notas deve retornar 'Nenhuma nota fiscal informada para emissão'")
+    void emite_SemNotas_RetornaErro() {
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> lotes.emite(Arrays.asList()));
+        assertEquals("Nenhuma nota fiscal informada para emissão", ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("emite(): lote maior que a fila deve retornar 'O lote pode ter no máximo 5 notas fiscais'")
+    void emite_LoteMaiorQueFila_RetornaErro() {
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> lotes.emite(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L)));
+        assertEquals("O lote pode ter no máximo 5 notas fiscais", ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("emite(): com a fila cheia deve recusar o lote inteiro")
+    void emite_FilaCheia_RecusaLote() throws Exception {
+        CountDownLatch libera = new CountDownLatch(1);
+        for (long codigo = 1; codigo <= 9; codigo++)
+            nota(codigo);
+
+        doAnswer(inv -> {
+            libera.await();
+            return null;
+        }).when(notasFiscais).emitir(any(NotaFiscal.class), anyMap());
+
+        // no máximo 3 notas saem da fila para as threads, restam ao menos 2 aguardando
+        String primeiro = lotes.emite(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+
+        try {
+            RuntimeException ex = assertThrows(RuntimeException.class,
+                    () -> lotes.emite(Arrays.asList(6L, 7L, 8L, 9L)));
+            assertEquals("Fila de emissão de notas fiscais cheia, tente novamente em instantes", ex.getMessage());
+        } finally {
+            libera.countDown();
+        }
+
+        assertEquals(5, aguarda(primeiro).get("emitidas"));
+        verify(notasFiscais, never()).busca(6L);
+    }
+
+}
@@ -0,0 +1,94 @@
+package notafiscalService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import net.originmobi.pdv.model.NotaFiscalNumeracao;
+import net.originmobi.pdv.repository.notafiscal.NotaFiscalNumeracaoRepository;
+import net.originmobi.pdv.service.notafiscal.NotaFiscalNumeracaoService;
+
+class NotaFiscalNumeracaoServiceTest {
+
+    private NotaFiscalNumeracaoService numeracao;
+    private NotaFiscalNumeracaoRepository repositorio;
+    private NotaFiscalNumeracao serie1;
+
+    @BeforeEach
+    void setup() {
+        repositorio = mock(NotaFiscalNumeracaoRepository.class);
+        serie1 = new NotaFiscalNumeracao(1, 100L);
+
+        when(repositorio.bloqueia(1)).thenReturn(Optional.of(serie1));
+
+        numeracao = new NotaFiscalNumeracaoService();
+        ReflectionTestUtils.setField(numeracao, "numeracoes", repositorio);
+        ReflectionTestUtils.setField(numeracao, "transactionManager", mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    @DisplayName("proximo(): com bloco 1 deve reservar cada número na tabela, sem falhas")
+    void proximo_SemBloco() {
+        ReflectionTestUtils.setField(numeracao, "bloco", 1);
+
+        assertEquals(100L, numeracao.proximo(1));
+        assertEquals(101L, numeracao.proximo(1));
+        assertEquals(102L, serie1.getProximo());
+
+        verify(repositorio, times(2)).save(serie1);
+        verify(repositorio, never()).inicia(anyInt());
+    }
+
+    @Test
+    @DisplayName("proximo(): com blocos deve reservar uma vez por bloco e não repetir números entre threads")
+    void proximo_EmBlocos() throws Exception {
+        ReflectionTestUtils.setField(numeracao, "bloco", 10);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Long>> numeros = new ArrayList<>();
+        Callable<Long> tarefa = () -> numeracao.proximo(1);
+
+        for (int i = 0; i < 95; i++)
+            numeros.add(executor.submit(tarefa));
+
+        Set<Long> distintos = new HashSet<>();
+        for (Future<Long> numero : numeros)
+            distintos.add(numero.get());
+
+        executor.shutdown();
+
+        assertEquals(95, distintos.size());
+        assertTrue(distintos.stream().allMatch(n -> n >= 100 && n < 200));
+        assertEquals(200L, serie1.getProximo());
+        verify(repositorio, times(10)).save(serie1);
+    }
+
+    @Test
+    @DisplayName("proximo(): deve criar a numeração da série quando ainda não existir")
+    void proximo_SerieNova() {
+        ReflectionTestUtils.setField(numeracao, "bloco", 1);
+
+        NotaFiscalNumeracao serie2 = new NotaFiscalNumeracao(2, 1L);
+        when(repositorio.bloqueia(2)).thenReturn(Optional.empty(), Optional.of(serie2));
+
+        assertEquals(1L, numeracao.proximo(2));
+        verify(repositorio).inicia(2);
+    }
+
+}
@@ -11,7 +11,9 @@ import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.w3c.dom.Document;
 
 import net.originmobi.pdv.enumerado.notafiscal.NotaFiscalTipo;
 import net.originmobi.pdv.model.Empresa;
@@ -22,8 +24,11 @@ import net.originmobi.pdv.model.Pessoa;
 import net.originmobi.pdv.repository.notafiscal.NotaFiscalRepository;
 import net.originmobi.pdv.service.EmpresaService;
 import net.originmobi.pdv.service.PessoaService;
+import net.originmobi.pdv.service.notafiscal.NotaFiscalNumeracaoService;
 import net.originmobi.pdv.service.notafiscal.NotaFiscalService;
 import net.originmobi.pdv.service.notafiscal.NotaFiscalTotaisServer;
+import net.originmobi.pdv.service.notafiscal.NotaFiscalXmlService;
+import net.originmobi.pdv.xml.nfe.NfeDomWriter;
 
 class NotaFiscalServiceTest {
 
@@ -122,36 +127,28 @@ class NotaFiscalServiceTest {
     
     
     @Test
-    @DisplayName("Teste do método salvaXML(String xml, String chaveNfe)")
+    @DisplayName("Teste do método salvaXML(Document xml, String chaveNfe)")
     void salvaArquivoXML() {
 
         // objeto da classe NotaFiscalService
         NotaFiscalService service = new NotaFiscalService();
 
-        // dados de teste que são passados como parâmetros ao chamar o método
-        String xml = "<nfe>conteudo</nfe>";
-        String chave = "teste123";
-
-        try {
-            // chama o método salvaXML(String xml, String chaveNfe) de NotaFiscalService
-            service.salvaXML(xml, chave);
+        // mock do arquivo de XMLs compactados
+        NotaFiscalXmlService mockArquivos = mock(NotaFiscalXmlService.class);
+        ReflectionTestUtils.setField(service, "arquivosXml", mockArquivos);
 
-            // verifica se o arquivo foi criado
-            File file = new File(new File(".").getCanonicalPath() + "/src/main/resources/xmlNfe/" + chave + ".xml");
-
-            // verificação de resultado do teste
-            assertTrue(file.exists());
+        // dados de teste que são passados como parâmetros ao chamar o método
+        Document xml = NfeDomWriter.novoDocumento();
+        String chave = "35180512345678000190550010000001001000001006";
 
-            // deleta arquivo criado após o teste
-            file.delete();
+        service.salvaXML(xml, chave);
 
-        } catch (Exception e) {
-            fail("Erro inesperado ao salvar XML: " + e.getMessage());
-        }
+        // o documento é gravado no arquivo de XMLs, sem passar por src/main/resources
+        verify(mockArquivos).grava(chave, xml);
     }
 
 
-    
+
     @Test
     @DisplayName("Teste do método removeXml(String chave_acesso)")
     void removeArquivoXMLExistente() {
@@ -159,6 +156,10 @@ class NotaFiscalServiceTest {
         // objeto da classe NotaFiscalService
         NotaFiscalService service = new NotaFiscalService();
 
+        // mock do arquivo de XMLs compactados
+        NotaFiscalXmlService mockArquivos = mock(NotaFiscalXmlService.class);
+        ReflectionTestUtils.setField(service, "arquivosXml", mockArquivos);
+
         // dado de teste que é passado como parâmetro ao chamar o método
         String chave = "remover123";
 
@@ -181,6 +182,9 @@ class NotaFiscalServiceTest {
             // verifica se o arquivo foi realmente removido
             assertFalse(file.exists());
 
+            // verifica se o xml também foi removido do arquivo compactado
+            verify(mockArquivos).remove(chave);
+
         } catch (Exception e) {
             fail("Erro inesperado ao remover XML: " + e.getMessage());
         }
@@ -197,6 +201,7 @@ class NotaFiscalServiceTest {
         EmpresaService mockEmpresaService = mock(EmpresaService.class);
         PessoaService mockPessoaService = mock(PessoaService.class);
         NotaFiscalTotaisServer mockTotaisService = mock(NotaFiscalTotaisServer.class);
+        NotaFiscalNumeracaoService mockNumeracao = mock(NotaFiscalNumeracaoService.class);
 
         // cria service e injeta mocks (campo privado → ReflectionTestUtils aqui é só utilidade do Spring,
         NotaFiscalService nfeService = new NotaFiscalService();
@@ -205,6 +210,8 @@ class NotaFiscalServiceTest {
         ReflectionTestUtils.setField(nfeService, "empresas", mockEmpresaService);
         ReflectionTestUtils.setField(nfeService, "pessoas", mockPessoaService);
         ReflectionTestUtils.setField(nfeService, "notaTotais", mockTotaisService);
+        ReflectionTestUtils.setField(nfeService, "numeracao", mockNumeracao);
+        ReflectionTestUtils.setField(nfeService, "eventos", mock(ApplicationEventPublisher.class));
 
         //dados testes necessários
         EmpresaParametro parametro = new EmpresaParametro();
@@ -225,13 +232,14 @@ class NotaFiscalServiceTest {
         when(mockEmpresaService.verificaEmpresaCadastrada()).thenReturn(Optional.of(empresa));
         when(mockPessoaService.buscaPessoa(10L)).thenReturn(Optional.of(pessoa));
         when(mockTotaisService.cadastro(any(NotaFiscalTotais.class))).thenReturn(totais);
-        when(mockRepo.buscaUltimaNota(1)).thenReturn(100L);
+        when(mockNumeracao.proximo(1)).thenReturn(100L);
         when(mockRepo.save(any(NotaFiscal.class))).thenReturn(nfSalva);
 
         //chama método para cadastrar a nota fiscal
         String codigoGerado = nfeService.cadastrar(10L, "Venda de produtos", NotaFiscalTipo.SAIDA);
 
         assertEquals("999", codigoGerado);
+        verify(mockNumeracao).proximo(1);
     }
 
 
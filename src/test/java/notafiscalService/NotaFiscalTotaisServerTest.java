@@ -0,0 +1,98 @@
+package notafiscalService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.AdditionalMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import net.originmobi.pdv.model.NotaFiscalTotais;
+import net.originmobi.pdv.repository.notafiscal.NotaFiscalTotaisCalculo;
+import net.originmobi.pdv.repository.notafiscal.NotaFiscalTotaisRepository;
+import net.originmobi.pdv.service.notafiscal.NotaFiscalTotaisServer;
+
+@ExtendWith(MockitoExtension.class)
+class NotaFiscalTotaisServerTest {
+
+    @Mock
+    private NotaFiscalTotaisRepository repository;
+
+    private NotaFiscalTotaisServer totais;
+    private NotaFiscalTotais total;
+
+    @BeforeEach
+    void setup() {
+        totais = new NotaFiscalTotaisServer();
+        ReflectionTestUtils.setField(totais, "totais", repository);
+
+        total = new NotaFiscalTotais();
+        total.setCodigo(7L);
+    }
+
+    @Test
+    @DisplayName("atualiza(): deve somar apenas a diferença do item alterado, sem recalcular a nota")
+    void atualiza_SomaDiferenca() {
+        totais.atualiza(1L, total, valores(20.0, 3.6, 0.33, 1.52, 0.0), valores(30.0, 5.4, 0.5, 2.28, 1.0));
+
+        verify(repository).soma(eq(7L), proximo(10.0), proximo(1.8), proximo(0.17), proximo(0.76),
+                proximo(1.0));
+        verify(repository, never()).calcula(anyLong());
+    }
+
+    @Test
+    @DisplayName("atualiza(): deve subtrair os valores do item removido")
+    void atualiza_ItemRemovido_Subtrai() {
+        totais.atualiza(1L, total, valores(20.0, 3.6, 0.33, 1.52, 0.0), null);
+
+        verify(repository).soma(eq(7L), proximo(-20.0), proximo(-3.6), proximo(-0.33), proximo(-1.52),
+                proximo(0.0));
+    }
+
+    @Test
+    @DisplayName("verifica(): deve recalcular os totais quando estiverem diferentes da soma dos itens")
+    void verifica_Divergente_Recalcula() {
+        when(repository.calcula(1L)).thenReturn(valores(50.0, 9.0, 0.83, 3.8, 0.0));
+        when(repository.buscaValores(7L)).thenReturn(valores(40.0, 9.0, 0.83, 3.8, 0.0));
+
+        assertFalse(totais.verifica(1L, total));
+        verify(repository).define(7L, 50.0, 9.0, 0.83, 3.8, 0.0);
+    }
+
+    @Test
+    @DisplayName("atualiza(): no modo verificação deve conferir sem recalcular quando os totais estiverem certos")
+    void atualiza_ModoVerificacao_TotaisCorretos() {
+        ReflectionTestUtils.setField(totais, "verificar", true);
+        when(repository.calcula(1L)).thenReturn(valores(20.0, 3.6, 0.33, 1.52, 0.0));
+        when(repository.buscaValores(7L)).thenReturn(valores(20.0, 3.6, 0.33, 1.52, 0.0));
+
+        totais.atualiza(1L, total, null, valores(20.0, 3.6, 0.33, 1.52, 0.0));
+
+        verify(repository).calcula(1L);
+        verify(repository, never()).define(anyLong(), anyDouble(), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble());
+    }
+
+    private double proximo(double valor) {
+        return AdditionalMatchers.eq(valor, 1e-9);
+    }
+
+    private NotaFiscalTotaisCalculo valores(Double produtos, Double icms, Double pis, Double cofins, Double ipi) {
+        return new NotaFiscalTotaisCalculo() {
+            public Double getProdutos() { return produtos; }
+            public Double getIcms() { return icms; }
+            public Double getPis() { return pis; }
+            public Double getCofins() { return cofins; }
+            public Double getIpi() { return ipi; }
+        };
+    }
+
+}
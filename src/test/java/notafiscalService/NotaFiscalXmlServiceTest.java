@@ -0,0 +1,173 @@
+package notafiscalService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.w3c.dom.Document;
+
+import net.originmobi.pdv.model.NotaFiscalXml;
+import net.originmobi.pdv.repository.notafiscal.NotaFiscalXmlRepository;
+import net.originmobi.pdv.service.notafiscal.NotaFiscalXmlService;
+import net.originmobi.pdv.xml.nfe.NfeDomWriter;
+
+@ExtendWith(MockitoExtension.class)
+class NotaFiscalXmlServiceTest {
+
+    private static final String CHAVE = "35180512271266000158550010000000011994707452";
+
+    @Mock
+    private NotaFiscalXmlRepository xmls;
+
+    @TempDir
+    Path diretorio;
+
+    private NotaFiscalXmlService arquivos;
+
+    @BeforeEach
+    void setup() {
+        arquivos = new NotaFiscalXmlService();
+        ReflectionTestUtils.setField(arquivos, "xmls", xmls);
+        ReflectionTestUtils.setField(arquivos, "diretorio", diretorio.resolve("arquivo").toString());
+        ReflectionTestUtils.setField(arquivos, "legado", diretorio.resolve("legado").toString());
+    }
+
+    @Test
+    @DisplayName("grava(): deve gravar o xml compactado por mês e série e indexar pela chave")
+    void grava_CompactaEIndexa() throws Exception {
+        ArgumentCaptor<NotaFiscalXml> indice = ArgumentCaptor.forClass(NotaFiscalXml.class);
+
+        arquivos.grava(CHAVE, documento());
+
+        verify(xmls).save(indice.capture());
+        NotaFiscalXml xml = indice.getValue();
+        Path arquivo = diretorio.resolve("arquivo").resolve(xml.getCaminho());
+
+        assertEquals(CHAVE, xml.getChave_acesso());
+        assertEquals(1, xml.getSerie());
+        assertTrue(xml.getCaminho().matches("\\d{4}/\\d{2}/1/" + CHAVE + "\\.xml\\.gz"));
+        assertEquals(Files.size(arquivo), xml.getTamanho());
+        assertFalse(Files.exists(arquivo.resolveSibling(CHAVE + ".xml.gz.tmp")));
+
+        when(xmls.findById(CHAVE)).thenReturn(Optional.of(xml));
+
+        try (InputStream entrada = arquivos.abre(CHAVE).get()) {
+            String conteudo = new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(conteudo.contains("<enviNFe xmlns=\"http://www.portalfiscal.inf.br/nfe\">"));
+        }
+    }
+
+    @Test
+    @DisplayName("abre(): deve encontrar os xmls gravados antes do arquivo")
+    void abre_XmlLegado() throws Exception {
+        Files.createDirectories(diretorio.resolve("legado"));
+        Files.write(diretorio.resolve("legado").resolve(CHAVE + ".xml"), "<nfe/>".getBytes());
+
+        when(xmls.findById(CHAVE)).thenReturn(Optional.empty());
+
+        try (InputStream entrada = arquivos.abre(CHAVE).get()) {
+            assertEquals("<nfe/>", new String(entrada.readAllBytes()));
+        }
+
+        assertFalse(arquivos.abre("35180512271266000158550010000000021994707452").isPresent());
+    }
+
+    @Test
+    @DisplayName("abre()/grava(): chaves que não têm 44 dígitos não devem montar caminhos de arquivo")
+    void chaveInvalida_NaoAcessaArquivos() throws Exception {
+        Files.createDirectories(diretorio.resolve("segredo"));
+        Files.write(diretorio.resolve("segredo").resolve("senha.xml"), "<senha/>".getBytes());
+
+        assertFalse(arquivos.abre("../segredo/senha").isPresent());
+        assertFalse(arquivos.compactado("../segredo/senha").isPresent());
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> arquivos.grava("../" + CHAVE, documento()));
+        assertEquals("Chave de acesso inválida, não foi possível gravar o XML da nota fiscal", ex.getMessage());
+        verifyNoInteractions(xmls);
+    }
+
+    @Test
+    @DisplayName("remove(): dentro de uma transação o arquivo só deve ser apagado depois do commit")
+    void remove_ApagaArquivoAposCommit() throws Exception {
+        arquivos.grava(CHAVE, documento());
+
+        ArgumentCaptor<NotaFiscalXml> indice = ArgumentCaptor.forClass(NotaFiscalXml.class);
+        verify(xmls).save(indice.capture());
+        Path arquivo = diretorio.resolve("arquivo").resolve(indice.getValue().getCaminho());
+
+        when(xmls.findById(CHAVE)).thenReturn(Optional.of(indice.getValue()), Optional.empty());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            arquivos.remove(CHAVE);
+
+            // um rollback da emissão ainda encontra o arquivo do índice restaurado
+            verify(xmls).delete(indice.getValue());
+            assertTrue(Files.exists(arquivo));
+
+            for (TransactionSynchronization sincronizacao : TransactionSynchronizationManager.getSynchronizations())
+                sincronizacao.afterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertFalse(Files.exists(arquivo));
+    }
+
+    @Test
+    @DisplayName("exporta(): deve gerar um zip com os xmls descompactados do período")
+    void exporta_ZipDoPeriodo() throws Exception {
+        arquivos.grava(CHAVE, documento());
+
+        ArgumentCaptor<NotaFiscalXml> indice = ArgumentCaptor.forClass(NotaFiscalXml.class);
+        verify(xmls).save(indice.capture());
+
+        LocalDateTime inicio = LocalDateTime.now().minusDays(1);
+        LocalDateTime fim = LocalDateTime.now().plusDays(1);
+        when(xmls.buscaPorPeriodo(any(), any())).thenReturn(Collections.singletonList(indice.getValue()));
+
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        assertEquals(1, arquivos.exporta(inicio, fim, saida));
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(saida.toByteArray()))) {
+            ZipEntry entrada = zip.getNextEntry();
+            assertEquals(CHAVE + ".xml", entrada.getName());
+            assertTrue(new String(zip.readAllBytes(), StandardCharsets.UTF_8).contains("enviNFe"));
+        }
+    }
+
+    private Document documento() {
+        Document documento = NfeDomWriter.novoDocumento();
+        NfeDomWriter writer = new NfeDomWriter(documento);
+        writer.startNode("enviNFe");
+        writer.addAttribute("xmlns", NfeDomWriter.NAMESPACE);
+        writer.startNode("idLote");
+        writer.setValue("1");
+        writer.endNode();
+        writer.endNode();
+        return documento;
+    }
+
+}
@@ -0,0 +1,71 @@
+package notafiscalService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+
+import net.originmobi.pdv.model.NotaFiscal;
+import net.originmobi.pdv.xml.nfe.NfeDomWriter;
+import net.originmobi.pdv.xml.nfe.SerializadorNfe;
+import net.originmobi.pdv.xml.nfe.XmlNfe;
+
+class SerializadorNfeTest {
+
+    private final SerializadorNfe serializador = new SerializadorNfe();
+
+    @Test
+    @DisplayName("serializa(): deve retornar a chave de acesso usada no Id da nota")
+    void serializa_RetornaChave() {
+        XmlNfe xml = serializador.serializa(NotaFiscalExemplo.nota(3));
+
+        Element infNFe = (Element) xml.getDocumento().getElementsByTagNameNS(NfeDomWriter.NAMESPACE, "infNFe").item(0);
+
+        assertEquals(44, xml.getChave().length());
+        assertEquals("NFe" + xml.getChave(), infNFe.getAttribute("Id"));
+        assertEquals(3, xml.getDocumento().getElementsByTagNameNS(NfeDomWriter.NAMESPACE, "det").getLength());
+    }
+
+    @Test
+    @DisplayName("serializa(): deve ser seguro para várias emissões ao mesmo tempo")
+    void serializa_Concorrente_ChaveDeCadaNota() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String[]>> resultados = new ArrayList<>();
+
+        for (int i = 1; i <= 200; i++) {
+            NotaFiscal nota = NotaFiscalExemplo.nota(5);
+            nota.setNumero((long) i);
+
+            resultados.add(executor.submit(() -> {
+                XmlNfe xml = serializador.serializa(nota);
+                Element infNFe = (Element) xml.getDocumento()
+                        .getElementsByTagNameNS(NfeDomWriter.NAMESPACE, "infNFe").item(0);
+                String numero = xml.getDocumento().getElementsByTagNameNS(NfeDomWriter.NAMESPACE, "nNF").item(0)
+                        .getTextContent();
+                return new String[] { xml.getChave(), infNFe.getAttribute("Id"), numero, nota.getNumero().toString() };
+            }));
+        }
+
+        Set<String> chaves = new HashSet<>();
+
+        for (Future<String[]> resultado : resultados) {
+            String[] nota = resultado.get();
+            assertEquals("NFe" + nota[0], nota[1]);
+            assertEquals(nota[3], nota[2]);
+            chaves.add(nota[0]);
+        }
+
+        executor.shutdown();
+        assertEquals(200, chaves.size());
+    }
+
+}
@@ -0,0 +1,105 @@
+package parcelaService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import net.originmobi.pdv.model.Parcela;
+import net.originmobi.pdv.model.Pessoa;
+import net.originmobi.pdv.model.Receber;
+import net.originmobi.pdv.repository.ParcelaRepository;
+import net.originmobi.pdv.service.ParcelaBaixa;
+import net.originmobi.pdv.service.ParcelaService;
+import net.originmobi.pdv.service.PosicaoVencimentosService;
+
+@ExtendWith(MockitoExtension.class)
+class ParcelaServiceTest {
+
+    @InjectMocks
+    private ParcelaService parcelas;
+
+    private static final LocalDate VENCIMENTO = LocalDate.of(2026, 10, 10);
+
+    @Mock
+    private ParcelaRepository repositorio;
+
+    @Mock
+    private PosicaoVencimentosService vencimentos;
+
+    @Test
+    @DisplayName("distribui(): deve quitar as parcelas na ordem e deixar o resto na última parcela atingida")
+    void distribui_ValorParcial() {
+        List<Parcela> lista = Arrays.asList(parcela(1L, 33.33, 0.0, 0), parcela(2L, 20.0, 0.0, 1),
+                parcela(3L, 33.33, 10.0, 0), parcela(4L, 33.34, 0.0, 0), parcela(5L, 10.0, 0.0, 0));
+
+        // 0,1 + 0,2 não é exatamente 0,3 em double
+        List<ParcelaBaixa> baixas = parcelas.distribui(lista, 66.66 + 0.1 + 0.2);
+
+        assertEquals(3, baixas.size());
+
+        assertEquals(1L, baixas.get(0).getParcela());
+        assertEquals(new BigDecimal("33.33"), baixas.get(0).getValor());
+        assertEquals(1, baixas.get(0).getQuitado());
+
+        // parcela 2 já quitada é ignorada
+        assertEquals(3L, baixas.get(1).getParcela());
+        assertEquals(new BigDecimal("33.33"), baixas.get(1).getValor());
+        assertEquals(new BigDecimal("43.33"), baixas.get(1).getRecebido());
+        assertEquals(1, baixas.get(1).getQuitado());
+
+        assertEquals(4L, baixas.get(2).getParcela());
+        assertEquals(new BigDecimal("0.30"), baixas.get(2).getValor());
+        assertEquals(new BigDecimal("33.04"), baixas.get(2).getRestante());
+        assertEquals(0, baixas.get(2).getQuitado());
+    }
+
+    @Test
+    @DisplayName("baixa(): deve gravar em um lote e recusar parcelas quitadas ou alteradas por outro recebimento")
+    void baixa_ParcelaJaQuitada() {
+        List<ParcelaBaixa> baixas = parcelas.distribui(Arrays.asList(parcela(1L, 10.0, 0.0, 0), parcela(2L, 10.0, 0.0, 0)), 20.0);
+
+        when(repositorio.recebeEmLote(eq(baixas), any())).thenReturn(Collections.emptyList());
+        parcelas.baixa(baixas);
+
+        when(repositorio.recebeEmLote(eq(baixas), any())).thenReturn(Arrays.asList(2L));
+        RuntimeException erro = assertThrows(RuntimeException.class, () -> parcelas.baixa(baixas));
+
+        assertEquals("Parcela 2 já esta quitada ou recebeu outro pagamento, verifique.", erro.getMessage());
+        verify(repositorio, times(2)).recebeEmLote(eq(baixas), any());
+        verify(repositorio, never()).receber(any(), any(), any(), any(), anyInt(), any(), any());
+
+        // a posição de vencimentos só é baixada quando o lote é gravado
+        verify(vencimentos, times(2)).somaReceber(7L, VENCIMENTO, -10.0);
+    }
+
+    private Parcela parcela(Long codigo, Double restante, Double recebido, int quitado) {
+        Parcela parcela = new Parcela();
+        parcela.setCodigo(codigo);
+        parcela.setValor_restante(restante);
+        parcela.setValor_recebido(recebido);
+        parcela.setQuitado(quitado);
+        parcela.setData_vencimento(Date.valueOf(VENCIMENTO));
+
+        Pessoa pessoa = new Pessoa();
+        pessoa.setCodigo(7L);
+        Receber receber = new Receber();
+        receber.setPessoa(pessoa);
+        parcela.setReceber(receber);
+        return parcela;
+    }
+
+}
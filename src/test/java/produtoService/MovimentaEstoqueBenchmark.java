@@ -0,0 +1,118 @@
+package produtoService;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import net.originmobi.pdv.enumerado.EntradaSaida;
+import net.originmobi.pdv.repository.ProdutoRepository;
+import net.originmobi.pdv.repository.ProdutoRepositoryImpl;
+import net.originmobi.pdv.service.ProdutoService;
+import net.originmobi.pdv.service.VendaProdutoService;
+
+/*
+ * Tempo da movimentação de estoque no fechamento de vendas com 5, 50 e 500
+ * itens. O banco é simulado com um tempo fixo por ida (idaAoBanco, em
+ * microssegundos): a busca dos itens, a busca dos saldos e o lote de inserts
+ * do ProdutoRepositoryImpl, assim o resultado mostra quanto o fechamento
+ * cresce com a quantidade de itens. Não roda com os testes, para executar:
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=produtoService.MovimentaEstoqueBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovimentaEstoqueBenchmark {
+
+    @Param({ "5", "50", "500" })
+    int itens;
+
+    @Param({ "0", "200" })
+    long idaAoBanco;
+
+    private ProdutoService produtoService;
+
+    @Setup
+    public void setup() {
+        List<Object[]> itensVenda = new ArrayList<>();
+        List<Object[]> saldos = new ArrayList<>();
+
+        for (long i = 1; i <= itens; i++) {
+            itensVenda.add(new Object[] { i, 2 });
+            saldos.add(new Object[] { i, "SIM", 10 });
+        }
+
+        VendaProdutoService vendaProdutos = new VendaProdutoService() {
+            @Override
+            public List<Object[]> buscaQtdProduto(Long codvenda) {
+                idaAoBanco();
+                return itensVenda;
+            }
+        };
+
+        ProdutoRepositoryImpl lote = new ProdutoRepositoryImpl();
+        ReflectionTestUtils.setField(lote, "jdbc", new JdbcTemplate() {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> parametros) {
+                idaAoBanco();
+                return new int[parametros.size()];
+            }
+        });
+
+        ProdutoRepository produtos = (ProdutoRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ProdutoRepository.class }, (proxy, metodo, argumentos) -> {
+                    switch (metodo.getName()) {
+                    case "saldosEstoque":
+                        if (((Collection<?>) argumentos[0]).size() != itens)
+                            throw new IllegalStateException("saldos consultados um a um");
+                        idaAoBanco();
+                        return saldos;
+                    case "movimentaEstoqueEmLote":
+                        return metodo.invoke(lote, argumentos);
+                    default:
+                        throw new UnsupportedOperationException(metodo.getName());
+                    }
+                });
+
+        produtoService = new ProdutoService();
+        ReflectionTestUtils.setField(produtoService, "produtos", produtos);
+        ReflectionTestUtils.setField(produtoService, "vendaProdutos", vendaProdutos);
+    }
+
+    @Benchmark
+    public int fechamento() {
+        return produtoService.movimentaEstoque(10L, EntradaSaida.SAIDA);
+    }
+
+    private void idaAoBanco() {
+        if (idaAoBanco > 0)
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(idaAoBanco));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(MovimentaEstoqueBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
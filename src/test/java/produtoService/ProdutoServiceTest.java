@@ -0,0 +1,117 @@
+package produtoService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import net.originmobi.pdv.enumerado.EntradaSaida;
+import net.originmobi.pdv.repository.ProdutoRepository;
+import net.originmobi.pdv.service.ProdutoService;
+import net.originmobi.pdv.service.VendaProdutoService;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ProdutoService — testes unitarios")
+class ProdutoServiceTest {
+
+    @InjectMocks
+    private ProdutoService produtoService;
+
+    @Mock private ProdutoRepository produtos;
+    @Mock private VendaProdutoService vendaProdutos;
+
+    // linhas no formato de VendaProdutosRepository.buscaQtdProduto: [produto, qtd]
+    private List<Object[]> itensVenda(int qtdItens) {
+        List<Object[]> itens = new ArrayList<>();
+        for (long i = 1; i <= qtdItens; i++)
+            itens.add(new Object[] { i, 2 });
+        return itens;
+    }
+
+    // linhas no formato de ProdutoRepository.saldosEstoque: [produto, controla_estoque, saldo]
+    private List<Object[]> saldos(int qtdItens, String controla, int saldo) {
+        List<Object[]> linhas = new ArrayList<>();
+        for (long i = 1; i <= qtdItens; i++)
+            linhas.add(new Object[] { i, controla, saldo });
+        return linhas;
+    }
+
+    @Test
+    @DisplayName("movimentaEstoque(): deve gravar todas as movimentações em um único lote")
+    @SuppressWarnings("unchecked")
+    void movimentaEstoque_GravaMovimentacoesEmLote() {
+        when(vendaProdutos.buscaQtdProduto(10L)).thenReturn(itensVenda(3));
+        when(produtos.saldosEstoque(anyCollection())).thenReturn(saldos(3, "SIM", 5));
+
+        produtoService.movimentaEstoque(10L, EntradaSaida.SAIDA);
+
+        ArgumentCaptor<Map<Long, Integer>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(produtos).movimentaEstoqueEmLote(captor.capture(), eq("SAIDA"), eq("Venda 10"), any());
+        assertEquals(3, captor.getValue().size());
+        assertEquals(Integer.valueOf(2), captor.getValue().get(1L));
+        verify(produtos, never()).findByCodigoIn(anyLong());
+        verify(produtos, never()).saldoEstoque(anyLong());
+    }
+
+    @Test
+    @DisplayName("movimentaEstoque(): produto sem estoque suficiente deve lançar exceção e não gravar nada")
+    void movimentaEstoque_SemEstoque_LancaExcecao() {
+        when(vendaProdutos.buscaQtdProduto(10L)).thenReturn(itensVenda(2));
+        when(produtos.saldosEstoque(anyCollection())).thenReturn(saldos(2, "SIM", 1));
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> produtoService.movimentaEstoque(10L, EntradaSaida.SAIDA));
+
+        assertEquals("O produto de código 1 não tem estoque suficiente, verifique", ex.getMessage());
+        verify(produtos, never()).movimentaEstoqueEmLote(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("movimentaEstoque(): produtos que não controlam estoque não devem ser movimentados")
+    void movimentaEstoque_ProdutoNaoControlaEstoque_NaoMovimenta() {
+        when(vendaProdutos.buscaQtdProduto(10L)).thenReturn(itensVenda(2));
+        when(produtos.saldosEstoque(anyCollection())).thenReturn(saldos(2, "NAO", 0));
+
+        produtoService.movimentaEstoque(10L, EntradaSaida.SAIDA);
+
+        verify(produtos, never()).movimentaEstoqueEmLote(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("movimentaEstoque(): fechamento com 5, 50 e 500 itens mantém três idas ao banco")
+    void movimentaEstoque_IdasAoBancoConstantes() {
+        int[] tamanhos = { 5, 50, 500 };
+
+        for (int tamanho : tamanhos) {
+            reset(produtos, vendaProdutos);
+            List<Object[]> itens = itensVenda(tamanho);
+            List<Object[]> saldos = saldos(tamanho, "SIM", 10);
+            when(vendaProdutos.buscaQtdProduto(anyLong())).thenReturn(itens);
+            when(produtos.saldosEstoque(anyCollection())).thenAnswer(inv -> {
+                assertEquals(tamanho, ((Collection<?>) inv.getArgument(0)).size());
+                return saldos;
+            });
+
+            produtoService.movimentaEstoque(10L, EntradaSaida.SAIDA);
+
+            // uma consulta de itens, uma de saldos e um lote de inserts por venda
+            verify(vendaProdutos, times(1)).buscaQtdProduto(anyLong());
+            verify(produtos, times(1)).saldosEstoque(anyCollection());
+            verify(produtos, times(1)).movimentaEstoqueEmLote(any(), any(), any(), any());
+            verifyNoMoreInteractions(produtos, vendaProdutos);
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package recebimentoService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import net.originmobi.pdv.model.Parcela;
+import net.originmobi.pdv.model.Pessoa;
+import net.originmobi.pdv.model.Recebimento;
+import net.originmobi.pdv.repository.ParcelaSituacao;
+import net.originmobi.pdv.repository.RecebimentoRepository;
+import net.originmobi.pdv.service.ParcelaService;
+import net.originmobi.pdv.service.PessoaService;
+import net.originmobi.pdv.service.RecebimentoService;
+
+@ExtendWith(MockitoExtension.class)
+class RecebimentoServiceTest {
+
+    @InjectMocks
+    private RecebimentoService recebimentos;
+
+    @Mock private RecebimentoRepository repositorio;
+    @Mock private ParcelaService parcelas;
+    @Mock private PessoaService pessoas;
+
+    @Test
+    @DisplayName("abrirRecebimentos(): deve buscar as parcelas em uma consulta e abrir um recebimento por cliente")
+    void abrirRecebimentos_VariosClientes() {
+        when(parcelas.situacao(any())).thenReturn(Arrays.asList(situacao(1L, 0, 10.1, 7L), situacao(2L, 0, 20.2, 8L),
+                situacao(3L, 0, 0.2, 7L)));
+        when(parcelas.referencia(anyLong())).thenAnswer(i -> parcela(i.getArgument(0)));
+        when(pessoas.referencia(anyLong())).thenAnswer(i -> pessoa(i.getArgument(0)));
+        when(repositorio.saveAll(any())).thenAnswer(i -> {
+            long codigo = 100;
+            for (Recebimento recebimento : i.<Iterable<Recebimento>>getArgument(0))
+                recebimento.setCodigo(codigo++);
+            return null;
+        });
+
+        Map<Long, Long> abertos = recebimentos.abrirRecebimentos(Arrays.asList(1L, 2L, 3L, 1L));
+
+        assertEquals(2, abertos.size());
+        assertEquals(100L, abertos.get(7L));
+        assertEquals(101L, abertos.get(8L));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Recebimento>> gravados = ArgumentCaptor.forClass(Collection.class);
+        verify(repositorio).saveAll(gravados.capture());
+
+        List<Recebimento> lista = new ArrayList<>(gravados.getValue());
+        assertEquals(2, lista.get(0).getParcela().size());
+        assertEquals(10.3, lista.get(0).getValor_total(), 0.0);
+        assertEquals(20.2, lista.get(1).getValor_total(), 0.0);
+
+        verify(parcelas, times(1)).situacao(any());
+        verify(parcelas, never()).busca(anyLong());
+        verify(pessoas, never()).buscaPessoa(anyLong());
+    }
+
+    @Test
+    @DisplayName("abrirRecebimento(): deve recusar parcela quitada ou de outro cliente sem gravar nada")
+    void abrirRecebimento_ParcelaInvalida() {
+        when(parcelas.situacao(any())).thenReturn(Arrays.asList(situacao(1L, 0, 10.0, 7L), situacao(2L, 0, 5.0, 8L)));
+        when(parcelas.referencia(anyLong())).thenAnswer(i -> parcela(i.getArgument(0)));
+
+        RuntimeException erro = assertThrows(RuntimeException.class,
+                () -> recebimentos.abrirRecebimento(7L, new String[] { "1", "2" }));
+        assertEquals("A parcela 2 não pertence ao cliente selecionado", erro.getMessage());
+
+        when(parcelas.situacao(any())).thenReturn(Arrays.asList(situacao(1L, 1, 0.0, 7L)));
+
+        erro = assertThrows(RuntimeException.class, () -> recebimentos.abrirRecebimento(7L, new String[] { "1" }));
+        assertEquals("Parcela 1 já esta quitada, verifique.", erro.getMessage());
+
+        erro = assertThrows(RuntimeException.class, () -> recebimentos.abrirRecebimento(7L, new String[] { "9" }));
+        assertEquals("Parcela 9 não encontrada, verifique.", erro.getMessage());
+
+        verifyNoInteractions(repositorio);
+    }
+
+    private ParcelaSituacao situacao(Long codigo, int quitado, double restante, Long pessoa) {
+        return new ParcelaSituacao() {
+            public Long getCodigo() { return codigo; }
+            public Integer getQuitado() { return quitado; }
+            public Double getRestante() { return restante; }
+            public Long getPessoa() { return pessoa; }
+        };
+    }
+
+    private Parcela parcela(Long codigo) {
+        Parcela parcela = new Parcela();
+        parcela.setCodigo(codigo);
+        return parcela;
+    }
+
+    private Pessoa pessoa(Long codigo) {
+        Pessoa pessoa = new Pessoa();
+        pessoa.setCodigo(codigo);
+        return pessoa;
+    }
+
+}
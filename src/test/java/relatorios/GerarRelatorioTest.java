@@ -0,0 +1,43 @@
+package relatorios;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import net.originmobi.pdv.relatorios.GerarRelatorio;
+import net.sf.jasperreports.engine.JasperReport;
+
+class GerarRelatorioTest {
+
+    private GerarRelatorio novoGerador() {
+        GerarRelatorio relatorio = new GerarRelatorio();
+        ReflectionTestUtils.setField(relatorio, "resources", new PathMatchingResourcePatternResolver());
+        return relatorio;
+    }
+
+    @Test
+    @DisplayName("compilado(): deve compilar o relatório uma única vez e reutilizar o cache")
+    void compilado_ReutilizaCache() throws Exception {
+        GerarRelatorio relatorio = novoGerador();
+
+        JasperReport primeiro = relatorio.compilado("comanda.jrxml");
+        JasperReport segundo = relatorio.compilado("comanda.jrxml");
+
+        assertNotNull(primeiro);
+        assertSame(primeiro, segundo);
+    }
+
+    @Test
+    @DisplayName("compilado(): relatório inexistente deve lançar IOException")
+    void compilado_RelatorioInexistente_LancaExcecao() {
+        GerarRelatorio relatorio = novoGerador();
+
+        assertThrows(IOException.class, () -> relatorio.compilado("naoexiste.jrxml"));
+    }
+
+}
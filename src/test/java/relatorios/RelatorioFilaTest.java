@@ -0,0 +1,103 @@
+package relatorios;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import net.originmobi.pdv.enumerado.relatorio.RelatorioSituacao;
+import net.originmobi.pdv.relatorios.GerarRelatorio;
+import net.originmobi.pdv.relatorios.RelatorioFila;
+
+class RelatorioFilaTest {
+
+    @TempDir
+    Path diretorio;
+
+    private GerarRelatorio relatorios = mock(GerarRelatorio.class);
+    private RelatorioFila fila;
+
+    @BeforeEach
+    void setup() throws Exception {
+        fila = new RelatorioFila();
+        ReflectionTestUtils.setField(fila, "threads", 1);
+        ReflectionTestUtils.setField(fila, "capacidade", 5);
+        ReflectionTestUtils.setField(fila, "ttl", 60000L);
+        ReflectionTestUtils.setField(fila, "diretorio", diretorio.toString());
+        ReflectionTestUtils.setField(fila, "relatorios", relatorios);
+        fila.inicia();
+    }
+
+    @AfterEach
+    void encerra() {
+        fila.encerra();
+    }
+
+    private void aguarda(String id) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            Object situacao = fila.situacao(id).get("situacao");
+            if (situacao.equals(RelatorioSituacao.CONCLUIDO) || situacao.equals(RelatorioSituacao.ERRO))
+                return;
+            Thread.sleep(20);
+        }
+        fail("relatório não foi gerado");
+    }
+
+    @Test
+    @DisplayName("enfileira(): deve gerar o PDF em disco e reutilizar o job apenas enquanto ele não foi concluído")
+    void enfileira_GeraPdfEReutilizaJob() throws Exception {
+        CountDownLatch liberado = new CountDownLatch(1);
+
+        doAnswer(inv -> {
+            liberado.await(1, TimeUnit.SECONDS);
+            ((OutputStream) inv.getArgument(3)).write("%PDF".getBytes());
+            return null;
+        }).when(relatorios).exporta(eq("comanda.jrxml"), anyMap(), eq(false), any(OutputStream.class));
+
+        String id = fila.enfileira("comanda.jrxml", Collections.singletonMap("codvenda", 1), false);
+
+        // ainda sendo gerado, o mesmo pedido reutiliza o job
+        assertEquals(id, fila.enfileira("comanda.jrxml", Collections.singletonMap("codvenda", 1), false));
+
+        liberado.countDown();
+        aguarda(id);
+
+        Optional<Path> arquivo = fila.arquivo(id);
+        assertTrue(arquivo.isPresent());
+        assertEquals("%PDF", new String(Files.readAllBytes(arquivo.get())));
+
+        // concluído, a comanda é gerada novamente com os itens atuais da venda
+        String novo = fila.enfileira("comanda.jrxml", Collections.singletonMap("codvenda", 1), false);
+        assertNotEquals(id, novo);
+        aguarda(novo);
+
+        verify(relatorios, times(2)).exporta(any(), anyMap(), anyBoolean(), any());
+    }
+
+    @Test
+    @DisplayName("enfileira(): erro na geração deve marcar o job com ERRO e não disponibilizar arquivo")
+    void enfileira_ErroNaGeracao_MarcaErro() throws Exception {
+        doThrow(new RuntimeException("falha")).when(relatorios).exporta(any(), anyMap(), anyBoolean(), any());
+
+        String id = fila.enfileira("caixa.jrxml", Collections.singletonMap("codcaixa", 1), true);
+        aguarda(id);
+
+        assertEquals(RelatorioSituacao.ERRO, fila.situacao(id).get("situacao"));
+        assertFalse(fila.arquivo(id).isPresent());
+    }
+
+}
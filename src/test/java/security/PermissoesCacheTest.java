@@ -0,0 +1,87 @@
+package security;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import net.originmobi.pdv.model.GrupoUsuario;
+import net.originmobi.pdv.repository.PermissoesRespository;
+import net.originmobi.pdv.security.PermissoesCache;
+
+class PermissoesCacheTest {
+
+    private PermissoesRespository permissoes = mock(PermissoesRespository.class);
+    private PermissoesCache cache;
+
+    @BeforeEach
+    void setup() {
+        cache = new PermissoesCache();
+        ReflectionTestUtils.setField(cache, "permissoes", permissoes);
+
+        when(permissoes.listaPermissoesPorGrupo()).thenReturn(Arrays.asList(
+                new Object[] { 1, "VENDA" },
+                new Object[] { 1, "CAIXA" },
+                new Object[] { 2, "CAIXA" },
+                new Object[] { 2, "AJUSTE" }));
+    }
+
+    private GrupoUsuario grupo(long codigo) {
+        GrupoUsuario grupo = new GrupoUsuario();
+        grupo.setCodigo(codigo);
+        return grupo;
+    }
+
+    private Collection<String> nomes(Collection<GrantedAuthority> auths) {
+        return auths.stream().map(GrantedAuthority::getAuthority).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("authorities(): deve juntar as permissões dos grupos com uma única consulta")
+    void authorities_UmaConsultaIndependenteDosGrupos() {
+        assertEquals(Arrays.asList("ROLE_AJUSTE", "ROLE_CAIXA", "ROLE_VENDA"),
+                nomes(cache.authorities(Arrays.asList(grupo(1), grupo(2)))));
+        assertEquals(Arrays.asList("ROLE_CAIXA", "ROLE_VENDA"),
+                nomes(cache.authorities(Collections.singletonList(grupo(1)))));
+        assertTrue(cache.authorities(Collections.singletonList(grupo(3))).isEmpty());
+
+        verify(permissoes, times(1)).listaPermissoesPorGrupo();
+    }
+
+    @Test
+    @DisplayName("invalida(): deve recarregar as permissões na próxima consulta")
+    void invalida_RecarregaPermissoes() {
+        cache.authorities(Collections.singletonList(grupo(1)));
+
+        when(permissoes.listaPermissoesPorGrupo())
+                .thenReturn(Collections.singletonList(new Object[] { 1, "PRODUTO" }));
+        cache.invalida();
+
+        assertEquals(Arrays.asList("ROLE_PRODUTO"), nomes(cache.authorities(Collections.singletonList(grupo(1)))));
+        verify(permissoes, times(2)).listaPermissoesPorGrupo();
+    }
+
+    @Test
+    @DisplayName("invalida(): carga em andamento durante a invalidação não deve voltar ao cache")
+    void invalida_DuranteCarga_NaoGuardaPermissoesAnteriores() {
+        when(permissoes.listaPermissoesPorGrupo()).thenAnswer(invocacao -> {
+            // permissão revogada enquanto a consulta ainda lia os dados anteriores
+            cache.invalida();
+            return Collections.singletonList(new Object[] { 1, "VENDA" });
+        }).thenReturn(Collections.emptyList());
+
+        assertEquals(Arrays.asList("ROLE_VENDA"), nomes(cache.authorities(Collections.singletonList(grupo(1)))));
+        assertTrue(cache.authorities(Collections.singletonList(grupo(1))).isEmpty());
+        verify(permissoes, times(2)).listaPermissoesPorGrupo();
+    }
+
+}
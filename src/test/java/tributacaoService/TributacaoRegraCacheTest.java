@@ -0,0 +1,101 @@
+package tributacaoService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import net.originmobi.pdv.enumerado.EntradaSaida;
+import net.originmobi.pdv.model.Estado;
+import net.originmobi.pdv.model.Tributacao;
+import net.originmobi.pdv.model.TributacaoRegra;
+import net.originmobi.pdv.repository.TributacaoRegraRepository;
+import net.originmobi.pdv.service.TributacaoRegraCache;
+
+@ExtendWith(MockitoExtension.class)
+class TributacaoRegraCacheTest {
+
+    @InjectMocks
+    private TributacaoRegraCache cache;
+
+    @Mock
+    private TributacaoRegraRepository regras;
+
+    @Test
+    @DisplayName("regra(): deve buscar a regra por tributação, UF e tipo consultando as regras uma única vez")
+    void regra_IndicePorTributacaoUfTipo() {
+        TributacaoRegra spSaida = regra(1L, 1L, "SP", EntradaSaida.SAIDA);
+        TributacaoRegra rjSaida = regra(2L, 1L, "RJ", EntradaSaida.SAIDA);
+        TributacaoRegra spSaidaNova = regra(3L, 1L, "SP", EntradaSaida.SAIDA);
+        TributacaoRegra outra = regra(4L, 2L, "SP", EntradaSaida.ENTRADA);
+
+        when(regras.listaComTributacao()).thenReturn(Arrays.asList(spSaida, rjSaida, spSaidaNova, outra));
+
+        for (int i = 0; i < 100; i++)
+            assertSame(spSaidaNova, cache.regra(1L, "SP", EntradaSaida.SAIDA));
+
+        assertSame(rjSaida, cache.regra(1L, "RJ", EntradaSaida.SAIDA));
+        assertNull(cache.regra(1L, "SP", EntradaSaida.ENTRADA));
+        assertTrue(cache.possuiRegra(2L, EntradaSaida.ENTRADA));
+        assertFalse(cache.possuiRegra(2L, EntradaSaida.SAIDA));
+        assertSame(spSaida, cache.primeira(1L));
+
+        verify(regras, times(1)).listaComTributacao();
+    }
+
+    @Test
+    @DisplayName("invalida(): deve recarregar as regras na próxima busca")
+    void invalida_RecarregaRegras() {
+        TributacaoRegra antiga = regra(1L, 1L, "SP", EntradaSaida.SAIDA);
+        TributacaoRegra alterada = regra(1L, 1L, "MG", EntradaSaida.SAIDA);
+
+        when(regras.listaComTributacao()).thenReturn(Arrays.asList(antiga), Arrays.asList(alterada));
+
+        assertSame(antiga, cache.regra(1L, "SP", EntradaSaida.SAIDA));
+
+        cache.invalida();
+
+        assertNull(cache.regra(1L, "SP", EntradaSaida.SAIDA));
+        assertSame(alterada, cache.regra(1L, "MG", EntradaSaida.SAIDA));
+        verify(regras, times(2)).listaComTributacao();
+    }
+
+    @Test
+    @DisplayName("invalida(): regra alterada durante a carga não deve manter a regra anterior no índice")
+    void invalida_DuranteCarga_RecarregaRegras() {
+        TributacaoRegra antiga = regra(1L, 1L, "SP", EntradaSaida.SAIDA);
+        TributacaoRegra alterada = regra(1L, 1L, "MG", EntradaSaida.SAIDA);
+
+        when(regras.listaComTributacao()).thenAnswer(invocacao -> {
+            cache.invalida();
+            return Arrays.asList(antiga);
+        }).thenReturn(Arrays.asList(alterada));
+
+        assertSame(antiga, cache.regra(1L, "SP", EntradaSaida.SAIDA));
+        assertSame(alterada, cache.regra(1L, "MG", EntradaSaida.SAIDA));
+        verify(regras, times(2)).listaComTributacao();
+    }
+
+    private TributacaoRegra regra(Long codigo, Long codTributacao, String uf, EntradaSaida tipo) {
+        Tributacao tributacao = new Tributacao();
+        tributacao.setCodigo(codTributacao);
+
+        Estado estado = new Estado();
+        estado.setSigla(uf);
+
+        TributacaoRegra regra = new TributacaoRegra();
+        regra.setCodigo(codigo);
+        regra.setTributacao(tributacao);
+        regra.setUf(estado);
+        regra.setTipo(tipo);
+        return regra;
+    }
+
+}
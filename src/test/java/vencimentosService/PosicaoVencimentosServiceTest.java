@@ -0,0 +1,162 @@
+package vencimentosService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.originmobi.pdv.repository.PagarParcelaRespository;
+import net.originmobi.pdv.repository.ParcelaRepository;
+import net.originmobi.pdv.repository.VencimentoAberto;
+import net.originmobi.pdv.service.DashboardEvento;
+import net.originmobi.pdv.service.PosicaoVencimentos;
+import net.originmobi.pdv.service.PosicaoVencimentosService;
+
+class PosicaoVencimentosServiceTest {
+
+    private PosicaoVencimentosService vencimentos;
+    private ParcelaRepository parcelas;
+    private ApplicationEventPublisher eventos;
+    private LocalDate hoje;
+
+    @BeforeEach
+    void setup() {
+        parcelas = mock(ParcelaRepository.class);
+        hoje = LocalDate.now();
+
+        vencimentos = new PosicaoVencimentosService();
+        ReflectionTestUtils.setField(vencimentos, "parcelas", parcelas);
+        ReflectionTestUtils.setField(vencimentos, "parcelasPagar", mock(PagarParcelaRespository.class));
+        eventos = mock(ApplicationEventPublisher.class);
+        ReflectionTestUtils.setField(vencimentos, "eventos", eventos);
+    }
+
+    @AfterEach
+    void limpa() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    @DisplayName("receber(): deve separar os valores por faixa de vencimento com uma única consulta")
+    void receber_Faixas() {
+        when(parcelas.vencimentosAbertos()).thenReturn(Arrays.asList(aberto(1L, hoje.minusDays(1), 10.0),
+                aberto(1L, hoje, 20.0), aberto(1L, hoje.plusDays(30), 5.0), aberto(2L, hoje.plusDays(31), 30.0),
+                aberto(2L, hoje.plusDays(61), 40.0)));
+
+        PosicaoVencimentos geral = vencimentos.receber();
+        PosicaoVencimentos cliente = vencimentos.receber(1L);
+
+        assertEquals(new BigDecimal("10.00"), geral.getVencido());
+        assertEquals(new BigDecimal("25.00"), geral.getAte30());
+        assertEquals(new BigDecimal("30.00"), geral.getDe31a60());
+        assertEquals(new BigDecimal("40.00"), geral.getAcima60());
+        assertEquals(new BigDecimal("35.00"), cliente.getTotal());
+        assertEquals(BigDecimal.ZERO, vencimentos.receber(99L).getTotal());
+        assertEquals("105,00", vencimentos.totalReceber());
+
+        verify(parcelas, times(1)).vencimentosAbertos();
+    }
+
+    @Test
+    @DisplayName("somaReceber(): deve atualizar a posição carregada pela diferença após o commit, sem consultar o banco novamente")
+    void somaReceber_Incremental() {
+        // antes do commit o banco tem apenas a parcela vencida
+        when(parcelas.vencimentosAbertos()).thenReturn(Arrays.asList(aberto(1L, hoje.minusDays(5), 10.0)));
+        assertEquals(new BigDecimal("10.00"), vencimentos.receber(1L).getVencido());
+
+        TransactionSynchronizationManager.initSynchronization();
+        vencimentos.somaReceber(1L, hoje.plusDays(10), 50.0);
+        vencimentos.somaReceber(1L, hoje.minusDays(5), -10.0);
+
+        // nada muda antes do commit
+        assertEquals(new BigDecimal("10.00"), vencimentos.receber(1L).getVencido());
+
+        when(parcelas.vencimentosAbertos()).thenReturn(Arrays.asList(aberto(1L, hoje.plusDays(10), 50.0)));
+        confirma();
+
+        PosicaoVencimentos cliente = vencimentos.receber(1L);
+
+        assertEquals(0, cliente.getVencido().signum());
+        assertEquals(new BigDecimal("50.00"), cliente.getAte30());
+        verify(parcelas, times(1)).vencimentosAbertos();
+
+        // um único evento para o dashboard por transação
+        verify(eventos, times(1)).publishEvent(any(DashboardEvento.class));
+    }
+
+    @Test
+    @DisplayName("somaReceber(): sem posição carregada a diferença não deve ser somada à consulta que já contém a parcela")
+    void somaReceber_SemCarteira_NaoDuplica() {
+        TransactionSynchronizationManager.initSynchronization();
+        vencimentos.somaReceber(1L, hoje.plusDays(10), 50.0);
+
+        // depois do commit a consulta já traz a parcela gerada
+        when(parcelas.vencimentosAbertos()).thenReturn(Arrays.asList(aberto(1L, hoje.plusDays(10), 50.0)));
+        confirma();
+
+        assertEquals(new BigDecimal("50.00"), vencimentos.receber(1L).getAte30());
+
+        // a recarga descarta a memória e busca novamente do banco
+        vencimentos.recarrega();
+        assertEquals(new BigDecimal("50.00"), vencimentos.receber(1L).getAte30());
+        verify(parcelas, times(2)).vencimentosAbertos();
+    }
+
+    @Test
+    @DisplayName("receber(): carga durante um commit não deve ser guardada, pois não se sabe se viu a alteração")
+    void receber_CargaDuranteCommit() {
+        when(parcelas.vencimentosAbertos()).thenReturn(Arrays.asList(aberto(1L, hoje.plusDays(10), 50.0)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        vencimentos.somaReceber(1L, hoje.plusDays(10), 20.0);
+        List<TransactionSynchronization> sincronizacoes = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        sincronizacoes.forEach(s -> s.beforeCommit(false));
+        assertEquals(new BigDecimal("50.00"), vencimentos.receber(1L).getAte30());
+
+        when(parcelas.vencimentosAbertos()).thenReturn(Arrays.asList(aberto(1L, hoje.plusDays(10), 70.0)));
+        sincronizacoes.forEach(TransactionSynchronization::afterCommit);
+        sincronizacoes.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(new BigDecimal("70.00"), vencimentos.receber(1L).getAte30());
+        assertEquals(new BigDecimal("70.00"), vencimentos.receber(1L).getAte30());
+        verify(parcelas, times(2)).vencimentosAbertos();
+    }
+
+    /*
+     * Executa as sincronizações registradas como no commit de uma transação
+     */
+    private void confirma() {
+        List<TransactionSynchronization> sincronizacoes = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        sincronizacoes.forEach(s -> s.beforeCommit(false));
+        sincronizacoes.forEach(TransactionSynchronization::afterCommit);
+        sincronizacoes.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+
+    private VencimentoAberto aberto(Long codigo, LocalDate vencimento, Double valor) {
+        return new VencimentoAberto() {
+            public Long getCodigo() { return codigo; }
+            public Date getVencimento() { return Date.valueOf(vencimento); }
+            public Double getValor() { return valor; }
+        };
+    }
+
+}
@@ -0,0 +1,199 @@
+package vendaService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.originmobi.pdv.enumerado.produto.ProdutoBalanca;
+import net.originmobi.pdv.model.Produto;
+import net.originmobi.pdv.model.VendaProduto;
+import net.originmobi.pdv.service.ProdutoService;
+import net.originmobi.pdv.service.VendaCarrinhoService;
+import net.originmobi.pdv.service.VendaProdutoService;
+
+class VendaCarrinhoServiceTest {
+
+    @TempDir
+    Path diretorio;
+
+    private ProdutoService produtos = mock(ProdutoService.class);
+    private VendaProdutoService vendaProdutos = mock(VendaProdutoService.class);
+
+    private VendaCarrinhoService novoCarrinho() throws Exception {
+        VendaCarrinhoService carrinho = new VendaCarrinhoService();
+        ReflectionTestUtils.setField(carrinho, "ativo", true);
+        ReflectionTestUtils.setField(carrinho, "diretorio", diretorio.toString());
+        ReflectionTestUtils.setField(carrinho, "produtos", produtos);
+        ReflectionTestUtils.setField(carrinho, "vendaProdutos", vendaProdutos);
+        carrinho.inicia();
+        return carrinho;
+    }
+
+    private void produto(Long codigo, String descricao, Double valor) {
+        Produto produto = new Produto();
+        produto.setCodigo(codigo);
+        produto.setDescricao(descricao);
+        produto.setValor_venda(valor);
+        produto.setBalanca(ProdutoBalanca.NAO);
+        when(produtos.buscaProduto(codigo)).thenReturn(Optional.of(produto));
+    }
+
+    @Test
+    @DisplayName("adiciona()/remove(): deve manter itens e valor dos produtos em memória")
+    void adicionaERemove_MantemTotalEmMemoria() throws Exception {
+        produto(1L, "Arroz", 10.0);
+        produto(2L, "Feijão", 7.5);
+        VendaCarrinhoService carrinho = novoCarrinho();
+
+        carrinho.adiciona(5L, 1L, 0.0);
+        carrinho.adiciona(5L, 2L, 0.0);
+        carrinho.adiciona(5L, 1L, 3.2);
+
+        assertEquals(20.7, carrinho.valorProdutos(5L), 0.0001);
+
+        Long posicao = (Long) carrinho.listaProdutosVenda(5L).get(0)[3];
+        assertTrue(posicao < 0, "itens do carrinho devem ter posição negativa");
+
+        carrinho.remove(5L, posicao);
+
+        assertEquals(10.7, carrinho.valorProdutos(5L), 0.0001);
+        assertEquals(2, carrinho.listaProdutosVenda(5L).size());
+        verify(vendaProdutos, never()).salvarEmLote(any());
+        carrinho.encerra();
+    }
+
+    @Test
+    @DisplayName("inicia(): deve recuperar do log os itens não gravados após reinício")
+    void inicia_RecuperaItensDoLog() throws Exception {
+        produto(1L, "Arroz; tipo 1", 10.0);
+        VendaCarrinhoService carrinho = novoCarrinho();
+        carrinho.adiciona(5L, 1L, 0.0);
+        carrinho.adiciona(5L, 1L, 0.0);
+        carrinho.remove(5L, (Long) carrinho.listaProdutosVenda(5L).get(0)[3]);
+        carrinho.encerra();
+
+        VendaCarrinhoService reiniciado = novoCarrinho();
+
+        List<Object[]> itens = reiniciado.listaProdutosVenda(5L);
+        assertEquals(1, itens.size());
+        assertEquals("Arroz; tipo 1", itens.get(0)[1]);
+        assertEquals(10.0, reiniciado.valorProdutos(5L), 0.0001);
+        assertEquals(1, Files.readAllLines(diretorio.resolve("carrinho.log")).size(), "log deve ser compactado");
+        reiniciado.encerra();
+    }
+
+    @Test
+    @DisplayName("descarrega(): deve gravar todos os itens em um único lote e esvaziar o carrinho")
+    @SuppressWarnings("unchecked")
+    void descarrega_GravaEmLote() throws Exception {
+        produto(1L, "Arroz", 10.0);
+        VendaCarrinhoService carrinho = novoCarrinho();
+        for (int i = 0; i < 50; i++)
+            carrinho.adiciona(5L, 1L, 0.0);
+
+        carrinho.descarrega(5L);
+
+        verify(vendaProdutos, times(1)).salvarEmLote(argThat(l -> ((List<VendaProduto>) l).size() == 50));
+        assertFalse(carrinho.possuiItens(5L));
+        assertEquals(0.0, carrinho.valorProdutos(5L), 0.0001);
+        carrinho.encerra();
+    }
+
+    @Test
+    @DisplayName("fecha(): até o fim da transação a venda não deve aceitar novos itens no carrinho")
+    void fecha_RecusaItensAteFimDaTransacao() throws Exception {
+        produto(1L, "Arroz", 10.0);
+        VendaCarrinhoService carrinho = novoCarrinho();
+        carrinho.adiciona(5L, 1L, 0.0);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            carrinho.fecha(5L);
+
+            assertEquals("Venda fechada", carrinho.adiciona(5L, 1L, 0.0));
+            assertEquals("ok", carrinho.adiciona(6L, 1L, 0.0));
+
+            for (TransactionSynchronization sincronizacao : TransactionSynchronizationManager.getSynchronizations())
+                sincronizacao.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // após o rollback a venda continua aberta e volta a aceitar itens
+        assertEquals("ok", carrinho.adiciona(5L, 1L, 0.0));
+        assertEquals(2, carrinho.listaProdutosVenda(5L).size());
+        carrinho.encerra();
+    }
+
+    @Test
+    @DisplayName("fecha(): após o commit a venda só deixa o fechamento com o carrinho já vazio")
+    void fecha_Commit_EsvaziaCarrinhoAntesDeLiberar() throws Exception {
+        produto(1L, "Arroz", 10.0);
+        VendaCarrinhoService carrinho = novoCarrinho();
+        carrinho.adiciona(5L, 1L, 0.0);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            carrinho.fecha(5L);
+
+            // uma única sincronização retira os itens e libera a venda, nessa ordem
+            List<TransactionSynchronization> sincronizacoes = TransactionSynchronizationManager.getSynchronizations();
+            assertEquals(1, sincronizacoes.size());
+            sincronizacoes.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertFalse(carrinho.possuiItens(5L));
+        carrinho.encerra();
+    }
+
+    @Test
+    @DisplayName("fecha(): deve aguardar o checkpoint da venda e gravar os itens que ele devolveu no rollback")
+    @SuppressWarnings("unchecked")
+    void fecha_AguardaCheckpointDaVenda() throws Exception {
+        produto(1L, "Arroz", 10.0);
+        VendaCarrinhoService carrinho = novoCarrinho();
+        carrinho.adiciona(5L, 1L, 0.0);
+
+        // checkpoint gravando os itens da venda, ainda sem commit
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> checkpoint;
+        try {
+            carrinho.descarrega(5L);
+            checkpoint = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        CompletableFuture<Void> fechamento = CompletableFuture.runAsync(() -> carrinho.fecha(5L));
+        Thread.sleep(200);
+        assertFalse(fechamento.isDone(), "o fechamento deve aguardar o checkpoint");
+
+        // o checkpoint não grava mais a venda em fechamento
+        carrinho.descarrega(5L);
+        verify(vendaProdutos, times(1)).salvarEmLote(any());
+
+        checkpoint.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        fechamento.get(5, TimeUnit.SECONDS);
+
+        verify(vendaProdutos, times(2)).salvarEmLote(argThat(l -> ((List<VendaProduto>) l).size() == 1));
+        assertFalse(carrinho.possuiItens(5L));
+        carrinho.encerra();
+    }
+
+}
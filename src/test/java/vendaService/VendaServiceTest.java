@@ -13,10 +13,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import net.originmobi.pdv.controller.TituloService;
 import net.originmobi.pdv.enumerado.EntradaSaida;
@@ -33,13 +38,16 @@ import net.originmobi.pdv.model.Usuario;
 import net.originmobi.pdv.model.Venda;
 import net.originmobi.pdv.model.VendaProduto;
 import net.originmobi.pdv.repository.VendaRepository;
+import net.originmobi.pdv.security.UsuarioAtual;
 import net.originmobi.pdv.service.CaixaLancamentoService;
 import net.originmobi.pdv.service.CaixaService;
+import net.originmobi.pdv.service.DashboardEvento;
 import net.originmobi.pdv.service.PagamentoTipoService;
+import net.originmobi.pdv.service.PaginaCursor;
 import net.originmobi.pdv.service.ParcelaService;
 import net.originmobi.pdv.service.ProdutoService;
 import net.originmobi.pdv.service.ReceberService;
-import net.originmobi.pdv.service.UsuarioService;
+import net.originmobi.pdv.service.VendaCarrinhoService;
 import net.originmobi.pdv.service.VendaProdutoService;
 import net.originmobi.pdv.service.VendaService;
 import net.originmobi.pdv.service.cartao.CartaoLancamentoService;
@@ -52,7 +60,7 @@ class VendaServiceTest {
     private VendaService vendaService;
 
     @Mock private VendaRepository vendas;
-    @Mock private UsuarioService usuarios;
+    @Mock private UsuarioAtual usuarioAtual;
     @Mock private VendaProdutoService vendaProdutos;
     @Mock private PagamentoTipoService formaPagamentos;
     @Mock private CaixaService caixas;
@@ -62,6 +70,8 @@ class VendaServiceTest {
     @Mock private TituloService tituloService;
     @Mock private CartaoLancamentoService cartaoLancamento;
     @Mock private ProdutoService produtos;
+    @Mock private VendaCarrinhoService carrinho;
+    @Mock private ApplicationEventPublisher eventos;
 
     @Test
     @DisplayName("abreVenda(): se venda não tiver código deve preencher campos padrão, buscar usuário e salvar")
@@ -69,35 +79,27 @@ class VendaServiceTest {
 
         Venda venda = new Venda();
 
-        try (MockedStatic<net.originmobi.pdv.singleton.Aplicacao> app =
-                 mockStatic(net.originmobi.pdv.singleton.Aplicacao.class)) {
+        Usuario usuario = new Usuario();
+        usuario.setUser("natalia");
+        when(usuarioAtual.getUsuario()).thenReturn(usuario);
 
-            net.originmobi.pdv.singleton.Aplicacao aplicacaoMock = mock(net.originmobi.pdv.singleton.Aplicacao.class);
-            app.when(net.originmobi.pdv.singleton.Aplicacao::getInstancia).thenReturn(aplicacaoMock);
-            when(aplicacaoMock.getUsuarioAtual()).thenReturn("natalia");
+        when(vendas.save(any(Venda.class))).thenAnswer(inv -> {
+            Venda v = inv.getArgument(0);
+            v.setCodigo(123L);
+            return v;
+        });
 
-            Usuario usuario = new Usuario();
-            usuario.setUser("natalia");
-            when(usuarios.buscaUsuario("natalia")).thenReturn(usuario);
+        Long idGerado = vendaService.abreVenda(venda);
 
-            when(vendas.save(any(Venda.class))).thenAnswer(inv -> {
-                Venda v = inv.getArgument(0);
-                v.setCodigo(123L);
-                return v;
-            });
+        assertEquals(123L, idGerado, "deve retornar o código atribuído pelo repository");
+        assertEquals(VendaSituacao.ABERTA, venda.getSituacao(), "deve marcar como ABERTA");
+        assertEquals(0.00, venda.getValor_produtos(), 0.0001, "deve iniciar valor_produtos em 0.00");
+        assertNotNull(venda.getData_cadastro(), "deve preencher data_cadastro");
+        assertSame(usuario, venda.getUsuario(), "deve vincular o usuário atual");
 
-            Long idGerado = vendaService.abreVenda(venda);
-
-            assertEquals(123L, idGerado, "deve retornar o código atribuído pelo repository");
-            assertEquals(VendaSituacao.ABERTA, venda.getSituacao(), "deve marcar como ABERTA");
-            assertEquals(0.00, venda.getValor_produtos(), 0.0001, "deve iniciar valor_produtos em 0.00");
-            assertNotNull(venda.getData_cadastro(), "deve preencher data_cadastro");
-            assertSame(usuario, venda.getUsuario(), "deve vincular o usuário atual");
-
-            verify(usuarios).buscaUsuario("natalia");
-            verify(vendas).save(same(venda));
-            verify(vendas, never()).updateDadosVenda(any(), any(), any());
-        }
+        verify(usuarioAtual).getUsuario();
+        verify(vendas).save(same(venda));
+        verify(vendas, never()).updateDadosVenda(any(), any(), any());
     }
 
     @Test
@@ -117,46 +119,70 @@ class VendaServiceTest {
     }
 
     @Test
-    @DisplayName("busca(): se filter tiver código deve chamar findByCodigoIn")
-    void testBusca_FilterTemCodigo_ChamaFindByCodigoIn() {
+    @DisplayName("busca(): se filter tiver código deve buscar apenas a venda do código")
+    void testBusca_FilterTemCodigo_BuscaPorCodigo() {
         VendaFilter filter = new VendaFilter();
         filter.setCodigo(123L);
-        Pageable pageable = mock(Pageable.class);
-        Page<Venda> page = mock(Page.class);
-        when(vendas.findByCodigoIn(123L, pageable)).thenReturn(page);
+        Venda venda = new Venda();
+        venda.setCodigo(123L);
+        when(vendas.findById(123L)).thenReturn(Optional.of(venda));
 
-        Page<Venda> result = vendaService.busca(filter, "ABERTA", pageable);
+        PaginaCursor<Venda> result = vendaService.busca(filter, "ABERTA", null, null, false, PageRequest.of(0, 20));
 
-        assertSame(page, result);
-        verify(vendas, never()).findBySituacaoEquals(any(), any());
+        assertEquals(Arrays.asList(venda), result.getConteudo());
+        assertFalse(result.hasNext());
+        verify(vendas, never()).listaDepois(any(), any(), any());
     }
 
     @Test
-    @DisplayName("busca(): se filter não tiver código deve chamar findBySituacaoEquals(ABERTA)")
-    void testBusca_FilterSemCodigo_ChamaFindBySituacao() {
+    @DisplayName("busca(): deve paginar pelo código, sem contar o total, e voltar pelo token anterior")
+    void testBusca_PaginacaoPorChave() {
         VendaFilter filter = new VendaFilter();
-        Pageable pageable = mock(Pageable.class);
-        Page<Venda> page = mock(Page.class);
-        when(vendas.findBySituacaoEquals(VendaSituacao.ABERTA, pageable)).thenReturn(page);
+        when(vendas.listaDepois(eq(VendaSituacao.FECHADA), eq(0L), eq(PageRequest.of(0, 3))))
+                .thenReturn(Arrays.asList(venda(1L), venda(2L), venda(3L)));
+
+        PaginaCursor<Venda> primeira = vendaService.busca(filter, "FECHADA", null, null, false, PageRequest.of(0, 2));
+
+        assertEquals(2, primeira.getConteudo().size());
+        assertFalse(primeira.hasPrevious());
+        assertTrue(primeira.hasNext());
+        assertNull(primeira.getTotal());
 
-        Page<Venda> result = vendaService.busca(filter, "ABERTA", pageable);
+        when(vendas.listaDepois(eq(VendaSituacao.FECHADA), eq(2L), any()))
+                .thenReturn(Arrays.asList(venda(3L)));
 
-        assertSame(page, result);
-        verify(vendas).findBySituacaoEquals(eq(VendaSituacao.ABERTA), eq(pageable));
+        PaginaCursor<Venda> segunda = vendaService.busca(filter, "FECHADA", primeira.getProximo(), null, false,
+                PageRequest.of(0, 2));
+
+        assertEquals(Long.valueOf(3L), segunda.getConteudo().get(0).getCodigo());
+        assertFalse(segunda.hasNext());
+        assertTrue(segunda.hasPrevious());
+
+        // voltando, as linhas vêm do código mais próximo para o mais distante
+        when(vendas.listaAntes(eq(VendaSituacao.FECHADA), eq(3L), any()))
+                .thenReturn(Arrays.asList(venda(2L), venda(1L)));
+
+        PaginaCursor<Venda> anterior = vendaService.busca(filter, "FECHADA", null, segunda.getAnterior(), false,
+                PageRequest.of(0, 2));
+
+        assertEquals(Long.valueOf(1L), anterior.getConteudo().get(0).getCodigo());
+        assertFalse(anterior.hasPrevious());
+        assertTrue(anterior.hasNext());
+        verify(vendas, never()).countBySituacao(any());
     }
 
     @Test
-    @DisplayName("busca(): se situacao != 'ABERTA' deve chamar findBySituacaoEquals(FECHADA)")
-    void testBusca_SituacaoFechada_ChamaFindBySituacaoFechada() {
-        VendaFilter filter = new VendaFilter(); // sem código
-        Pageable pageable = mock(Pageable.class);
-        Page<Venda> page = mock(Page.class);
-        when(vendas.findBySituacaoEquals(VendaSituacao.FECHADA, pageable)).thenReturn(page);
+    @DisplayName("busca(): deve contar o total apenas quando solicitado")
+    void testBusca_ContarTotal() {
+        VendaFilter filter = new VendaFilter();
+        when(vendas.listaDepois(eq(VendaSituacao.ABERTA), eq(0L), any())).thenReturn(Arrays.asList(venda(1L)));
+        when(vendas.countBySituacao(VendaSituacao.ABERTA)).thenReturn(1L);
 
-        Page<Venda> result = vendaService.busca(filter, "FECHADA", pageable);
+        PaginaCursor<Venda> result = vendaService.busca(filter, "ABERTA", "", "", true, PageRequest.of(0, 20));
 
-        assertSame(page, result);
-        verify(vendas).findBySituacaoEquals(eq(VendaSituacao.FECHADA), eq(pageable));
+        assertEquals(Long.valueOf(1L), result.getTotal());
+        assertThrows(RuntimeException.class,
+                () -> vendaService.busca(filter, "ABERTA", "invalido", null, false, PageRequest.of(0, 20)));
     }
 
     @Test
@@ -181,6 +207,33 @@ class VendaServiceTest {
         verify(vendaProdutos, never()).salvar(any());
     }
 
+    @Test
+    @DisplayName("addProduto(): com carrinho ativo deve adicionar ao carrinho sem gravar em venda_produtos")
+    void testAddProduto_CarrinhoAtivo_AdicionaNoCarrinho() {
+        when(carrinho.isAtivo()).thenReturn(true);
+        when(carrinho.possuiItens(1L)).thenReturn(true);
+        when(carrinho.adiciona(1L, 2L, 0.0)).thenReturn("ok");
+
+        String r = vendaService.addProduto(1L, 2L, 0.0);
+
+        assertEquals("ok", r);
+        verify(vendas, never()).verificaSituacao(anyLong());
+        verify(vendaProdutos, never()).salvar(any());
+    }
+
+    @Test
+    @DisplayName("removeProduto(): com carrinho ativo e posição negativa deve remover do carrinho")
+    void testRemoveProduto_CarrinhoAtivo_RemoveDoCarrinho() {
+        when(carrinho.isAtivo()).thenReturn(true);
+        when(carrinho.remove(99L, -3L)).thenReturn("ok");
+
+        String r = vendaService.removeProduto(-3L, 99L);
+
+        assertEquals("ok", r);
+        verify(vendas, never()).findByCodigoEquals(anyLong());
+        verify(vendaProdutos, never()).removeProduto(anyLong());
+    }
+
     @Test
     @DisplayName("removeProduto(): se venda estiver ABERTA deve remover produto e retornar 'ok'")
     void testRemoveProduto_VendaAberta_RemoveERetornaOk() {
@@ -253,28 +306,23 @@ class VendaServiceTest {
         when(caixas.caixaIsAberto()).thenReturn(true);
         when(caixas.caixaAberto()).thenReturn(Optional.of(new Caixa()));
 
-        try (MockedStatic<net.originmobi.pdv.singleton.Aplicacao> app = mockStatic(net.originmobi.pdv.singleton.Aplicacao.class)) {
-            net.originmobi.pdv.singleton.Aplicacao aplicacaoMock = mock(net.originmobi.pdv.singleton.Aplicacao.class);
-            app.when(net.originmobi.pdv.singleton.Aplicacao::getInstancia).thenReturn(aplicacaoMock);
-            when(aplicacaoMock.getUsuarioAtual()).thenReturn("natalia");
-
-            Usuario u = new Usuario();
-            u.setUser("natalia");
-            when(usuarios.buscaUsuario("natalia")).thenReturn(u);
-
-            String msg = vendaService.fechaVenda(codVenda, codForma, vlProdutos, desconto, acrescimo, vlParcelas, titulos);
-
-            assertEquals("Venda finalizada com sucesso", msg);
-            double vlFinal = (vlProdutos + acrescimo) - desconto;
-            verify(receberServ).cadastrar(any(Receber.class));
-            verify(vendas, atLeastOnce()).fechaVenda(eq(codVenda), eq(VendaSituacao.FECHADA), eq(vlFinal),
-                    eq(desconto), eq(acrescimo), any(), eq(forma));
-            verify(produtos).movimentaEstoque(eq(codVenda), eq(net.originmobi.pdv.enumerado.EntradaSaida.SAIDA));
-            verify(lancamentos).lancamento(any(CaixaLancamento.class));
-            verify(parcelas, never()).gerarParcela(anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(),
-                    any(Receber.class), anyInt(), anyInt(), any(), any());
-            verify(cartaoLancamento, never()).lancamento(anyDouble(), any());
-        }
+
+        Usuario u = new Usuario();
+        u.setUser("natalia");
+        when(usuarioAtual.getUsuario()).thenReturn(u);
+
+        String msg = vendaService.fechaVenda(codVenda, codForma, vlProdutos, desconto, acrescimo, vlParcelas, titulos);
+
+        assertEquals("Venda finalizada com sucesso", msg);
+        double vlFinal = (vlProdutos + acrescimo) - desconto;
+        verify(receberServ).cadastrar(any(Receber.class));
+        verify(vendas, atLeastOnce()).fechaVenda(eq(codVenda), eq(VendaSituacao.FECHADA), eq(vlFinal),
+                eq(desconto), eq(acrescimo), any(), eq(forma));
+        verify(produtos).movimentaEstoque(eq(codVenda), eq(net.originmobi.pdv.enumerado.EntradaSaida.SAIDA));
+        verify(lancamentos).lancamento(any(CaixaLancamento.class));
+        verify(parcelas, never()).gerarParcela(anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(),
+                any(Receber.class), anyInt(), anyInt(), any(), any());
+        verify(cartaoLancamento, never()).lancamento(anyDouble(), any());
     }
 
     @Test
@@ -379,6 +427,88 @@ class VendaServiceTest {
         verify(vendas, atLeastOnce()).fechaVenda(eq(codVenda), eq(VendaSituacao.FECHADA), eq(Double.valueOf(200.00)),
                 eq(Double.valueOf(0.0)), eq(Double.valueOf(0.0)), any(java.sql.Timestamp.class), eq(forma));
         verify(produtos).movimentaEstoque(eq(codVenda), eq(EntradaSaida.SAIDA));
+        // uma única venda fechada no dashboard, independente da quantidade de parcelas
+        verify(eventos, times(1)).publishEvent(any(DashboardEvento.class));
+    }
+
+    @Test
+    @DisplayName("fechaVenda(): deve registrar tempo do fechamento, das etapas, pagamentos e itens da venda")
+    void testFechaVenda_RegistraMetricas() {
+        SimpleMeterRegistry registro = new SimpleMeterRegistry();
+        Metrics.addRegistry(registro);
+
+        try {
+            Long codVenda = 9L, codForma = 300L;
+            Venda venda = mock(Venda.class);
+            when(vendas.findByCodigoEquals(codVenda)).thenReturn(venda);
+            when(venda.isAberta()).thenReturn(true);
+            when(venda.getPessoa()).thenReturn(new Pessoa());
+
+            PagamentoTipo forma = new PagamentoTipo();
+            forma.setCodigo(codForma);
+            forma.setDescricao("30/60 dias");
+            forma.setFormaPagamento("30/60");
+            when(formaPagamentos.busca(codForma)).thenReturn(forma);
+            when(tituloService.busca(anyLong())).thenReturn(Optional.of(mock(Titulo.class)));
+            when(produtos.movimentaEstoque(codVenda, EntradaSaida.SAIDA)).thenReturn(12);
+
+            vendaService.fechaVenda(codVenda, codForma, 200.00, 0.0, 0.0, new String[]{"100.00", "100.00"},
+                    new String[]{"1", "2"});
+
+            assertEquals(1, registro.get("pdv.venda.fechamento").tag("resultado", "sucesso").timer().count());
+            assertEquals(1, registro.get("pdv.venda.etapa").tag("etapa", "receber").timer().count());
+            assertEquals(2, registro.get("pdv.venda.etapa").tag("etapa", "parcela").timer().count());
+            assertEquals(1, registro.get("pdv.venda.etapa").tag("etapa", "estoque").timer().count());
+            assertEquals(2.0, registro.get("pdv.venda.pagamentos").tag("tipo", "APRAZO").counter().count(), 0.0001);
+            assertEquals(1.0, registro.get("pdv.venda.fechadas").tag("forma_pagamento", "30/60 dias").counter().count(), 0.0001);
+            assertEquals(12.0, registro.get("pdv.venda.itens").summary().totalAmount(), 0.0001);
+        } finally {
+            Metrics.removeRegistry(registro);
+        }
+    }
+
+    @Test
+    @DisplayName("fechaVenda(): com rollback o fechamento conta como erro e a venda não conta como fechada")
+    void testFechaVenda_Rollback_NaoRegistraVendaFechada() {
+        SimpleMeterRegistry registro = new SimpleMeterRegistry();
+        Metrics.addRegistry(registro);
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            Long codVenda = 9L, codForma = 300L;
+            Venda venda = mock(Venda.class);
+            when(vendas.findByCodigoEquals(codVenda)).thenReturn(venda);
+            when(venda.isAberta()).thenReturn(true);
+            when(venda.getPessoa()).thenReturn(new Pessoa());
+
+            PagamentoTipo forma = new PagamentoTipo();
+            forma.setCodigo(codForma);
+            forma.setDescricao("30/60 dias");
+            forma.setFormaPagamento("30/60");
+            when(formaPagamentos.busca(codForma)).thenReturn(forma);
+            when(tituloService.busca(anyLong())).thenReturn(Optional.of(mock(Titulo.class)));
+            when(produtos.movimentaEstoque(codVenda, EntradaSaida.SAIDA)).thenReturn(12);
+
+            vendaService.fechaVenda(codVenda, codForma, 200.00, 0.0, 0.0, new String[]{"100.00", "100.00"},
+                    new String[]{"1", "2"});
+
+            // nada do resultado é registrado antes do fim da transação
+            assertEquals(0, registro.find("pdv.venda.fechamento").timers().stream().mapToLong(Timer::count).sum());
+            assertEquals(0.0, registro.find("pdv.venda.fechadas").counters().stream().mapToDouble(Counter::count).sum());
+
+            for (TransactionSynchronization sincronizacao : TransactionSynchronizationManager.getSynchronizations())
+                sincronizacao.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+            assertEquals(1, registro.get("pdv.venda.fechamento").tag("resultado", "erro").timer().count());
+            assertEquals(0, registro.find("pdv.venda.fechamento").tag("resultado", "sucesso").timers().stream()
+                    .mapToLong(Timer::count).sum());
+            assertEquals(0.0, registro.find("pdv.venda.fechadas").counters().stream().mapToDouble(Counter::count).sum());
+            assertEquals(0.0, registro.find("pdv.venda.pagamentos").counters().stream().mapToDouble(Counter::count).sum());
+            assertEquals(0, registro.find("pdv.venda.itens").summaries().stream().mapToLong(s -> s.count()).sum());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+            Metrics.removeRegistry(registro);
+        }
     }
 
     @Test
@@ -462,23 +592,17 @@ class VendaServiceTest {
         when(caixas.caixaIsAberto()).thenReturn(true);
         when(caixas.caixaAberto()).thenReturn(Optional.of(new Caixa()));
 
-        try (MockedStatic<net.originmobi.pdv.singleton.Aplicacao> app =
-                 mockStatic(net.originmobi.pdv.singleton.Aplicacao.class)) {
-            net.originmobi.pdv.singleton.Aplicacao aplicacaoMock = mock(net.originmobi.pdv.singleton.Aplicacao.class);
-            app.when(net.originmobi.pdv.singleton.Aplicacao::getInstancia).thenReturn(aplicacaoMock);
-            when(aplicacaoMock.getUsuarioAtual()).thenReturn("tester");
-            when(usuarios.buscaUsuario("tester")).thenReturn(new Usuario());
-
-            doThrow(new RuntimeException("falhou fechar"))
-                .when(vendas).fechaVenda(eq(codVenda), eq(VendaSituacao.FECHADA),
-                                         anyDouble(), anyDouble(), anyDouble(),
-                                         any(java.sql.Timestamp.class), eq(forma));
-
-            RuntimeException ex = assertThrows(RuntimeException.class, () ->
-                vendaService.fechaVenda(codVenda, codForma, 200.0, 0.0, 0.0, vlParcelas, titulos)
-            );
-            assertEquals("Erro ao fechar a venda, chame o suporte", ex.getMessage());
-        }
+        when(usuarioAtual.getUsuario()).thenReturn(new Usuario());
+
+        doThrow(new RuntimeException("falhou fechar"))
+            .when(vendas).fechaVenda(eq(codVenda), eq(VendaSituacao.FECHADA),
+                                     anyDouble(), anyDouble(), anyDouble(),
+                                     any(java.sql.Timestamp.class), eq(forma));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () ->
+            vendaService.fechaVenda(codVenda, codForma, 200.0, 0.0, 0.0, vlParcelas, titulos)
+        );
+        assertEquals("Erro ao fechar a venda, chame o suporte", ex.getMessage());
     }
 
     @Test
@@ -573,4 +697,9 @@ class VendaServiceTest {
         verifyNoInteractions(lancamentos, cartaoLancamento, parcelas);
     }
 
+    private Venda venda(Long codigo) {
+        Venda venda = new Venda();
+        venda.setCodigo(codigo);
+        return venda;
+    }
 }